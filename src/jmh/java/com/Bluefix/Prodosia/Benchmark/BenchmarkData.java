@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Benchmark;
+
+import com.github.kskelm.baringo.model.Comment;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the data for the benchmarks.
+ *
+ * Every generator uses a fixed seed, so that consecutive runs measure the same input.
+ */
+public class BenchmarkData
+{
+    public static final long Seed = 20181017L;
+
+    private static final String Alphabet = "abcdefghijklmnopqrstuvwxyz0123456789_";
+
+    //region Names
+
+    /**
+     * Generate unique imgur names of varying length.
+     * @param amount The amount of names.
+     * @param seed The seed for the generator.
+     * @return The generated names.
+     */
+    public static String[] names(int amount, long seed)
+    {
+        Random random = new Random(seed);
+        String[] output = new String[amount];
+
+        for (int i = 0; i < amount; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int length = 2 + random.nextInt(14);
+
+            for (int j = 0; j < length; j++)
+                sb.append(Alphabet.charAt(random.nextInt(Alphabet.length())));
+
+            // append the index to keep the names unique.
+            output[i] = sb.append(i).toString();
+        }
+
+        return output;
+    }
+
+    /**
+     * Generate mention entries as they are fed to the partition algorithm.
+     * @param amount The amount of entries.
+     * @param seed The seed for the generator.
+     * @return The generated entries.
+     */
+    public static List<String> mentions(int amount, long seed)
+    {
+        List<String> output = new ArrayList<>(amount);
+
+        for (String n : names(amount, seed))
+            output.add("@" + n + " ");
+
+        return output;
+    }
+
+    //endregion
+
+    //region Comments
+
+    /**
+     * Generate a comment tree in which comments mention random users.
+     * @param amount The amount of comments in the tree.
+     * @param names The names that can be mentioned or be the author of a comment.
+     * @param seed The seed for the generator.
+     * @return The top-level comments of the tree.
+     */
+    public static List<Comment> commentTree(int amount, String[] names, long seed)
+    {
+        Random random = new Random(seed);
+
+        JsonArray root = new JsonArray();
+        List<JsonObject> all = new ArrayList<>();
+
+        for (int i = 0; i < amount; i++)
+        {
+            JsonObject c = new JsonObject();
+            c.addProperty("id", i + 1);
+            c.addProperty("author", names[random.nextInt(names.length)]);
+            c.add("children", new JsonArray());
+
+            // most comments are replies to an earlier comment.
+            if (all.isEmpty() || random.nextInt(4) == 0)
+            {
+                c.addProperty("parent_id", 0);
+                root.add(c);
+            }
+            else
+            {
+                JsonObject parent = all.get(random.nextInt(all.size()));
+                c.addProperty("parent_id", parent.get("id").getAsLong());
+                parent.getAsJsonArray("children").add(c);
+            }
+
+            StringBuilder text = new StringBuilder("nice post");
+            int mentions = random.nextInt(4);
+
+            for (int j = 0; j < mentions; j++)
+                text.append(" @").append(names[random.nextInt(names.length)]);
+
+            c.addProperty("comment", text.toString());
+            all.add(c);
+        }
+
+        return new Gson().fromJson(root, new TypeToken<List<Comment>>(){}.getType());
+    }
+
+    //endregion
+
+    //region Commands
+
+    /**
+     * Generate command arguments, some of which contain quoted parts.
+     * @param amount The amount of argument strings.
+     * @param seed The seed for the generator.
+     * @return The generated arguments.
+     */
+    public static String[] arguments(int amount, long seed)
+    {
+        Random random = new Random(seed);
+        String[] names = names(64, seed);
+        String[] output = new String[amount];
+
+        for (int i = 0; i < amount; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int words = 1 + random.nextInt(12);
+
+            for (int j = 0; j < words; j++)
+            {
+                String word = names[random.nextInt(names.length)];
+
+                if (random.nextInt(6) == 0)
+                    sb.append('"').append(word).append(' ').append(word).append("\" ");
+                else
+                    sb.append(word).append(random.nextBoolean() ? " " : "   ");
+            }
+
+            output[i] = sb.toString();
+        }
+
+        return output;
+    }
+
+    /**
+     * Generate comments of which roughly half contain one of the prefixes.
+     * @param amount The amount of comments.
+     * @param prefixes The prefixes that can occur in the comments.
+     * @param seed The seed for the generator.
+     * @return The generated comments.
+     */
+    public static String[] prefixComments(int amount, String[] prefixes, long seed)
+    {
+        Random random = new Random(seed);
+        String[] names = names(64, seed);
+        String[] output = new String[amount];
+
+        for (int i = 0; i < amount; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int words = random.nextInt(20);
+
+            for (int j = 0; j < words; j++)
+                sb.append(names[random.nextInt(names.length)]).append(' ');
+
+            if (random.nextBoolean())
+                sb.append(prefixes[random.nextInt(prefixes.length)]).append(" tag a b c");
+
+            output[i] = sb.toString();
+        }
+
+        return output;
+    }
+
+    //endregion
+}
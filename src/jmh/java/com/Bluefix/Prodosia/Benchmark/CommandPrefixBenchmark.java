@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Benchmark;
+
+import com.Bluefix.Prodosia.Prefix.CommandPrefix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures detecting the command prefix in comments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandPrefixBenchmark
+{
+    private static final String[] Prefixes = { "@prodosia", "@tagbot", "!tag" };
+
+    private CommandPrefix prefix;
+    private String[] comments;
+
+    @Setup
+    public void setUp()
+    {
+        prefix = new CommandPrefix(CommandPrefix.Type.IMGUR, CommandPrefix.parsePatternForItems(Prefixes));
+        comments = BenchmarkData.prefixComments(1000, Prefixes, BenchmarkData.Seed);
+    }
+
+    @Benchmark
+    public int matchIndex()
+    {
+        int counter = 0;
+
+        for (String c : comments)
+        {
+            if (prefix.matchIndex(c) >= 0)
+                counter++;
+        }
+
+        return counter;
+    }
+}
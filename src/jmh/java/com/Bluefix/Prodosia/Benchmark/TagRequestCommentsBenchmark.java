@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Benchmark;
+
+import com.Bluefix.Prodosia.DataHandler.TaglistHandler;
+import com.Bluefix.Prodosia.DataHandler.UserHandler;
+import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
+import com.Bluefix.Prodosia.DataType.Taglist.Rating;
+import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
+import com.Bluefix.Prodosia.DataType.User.User;
+import com.Bluefix.Prodosia.DataType.User.UserSubscription;
+import com.Bluefix.Prodosia.Imgur.Tagging.TagRequestComments;
+import com.github.kskelm.baringo.model.Comment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of tag comments for a post with existing comments.
+ *
+ * The subscribers are stored in the database of the working directory, which
+ * the benchmark profile points to a directory inside `target`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagRequestCommentsBenchmark
+{
+    private static final String TaglistAbbreviation = "benchmark";
+
+    /**
+     * The first imgur id that is used for the generated users.
+     */
+    private static final long BaseImgurId = 900000000L;
+
+    @Param({"1000", "5000"})
+    private int users;
+
+    @Param({"100", "1000"})
+    private int comments;
+
+    private BaseTagRequest tagRequest;
+    private List<Comment> postComments;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        Taglist taglist = TaglistHandler.getTaglistByAbbreviation(TaglistAbbreviation);
+
+        if (taglist == null)
+        {
+            taglist = new Taglist(TaglistAbbreviation, "benchmark taglist", true);
+            TaglistHandler.handler().set(taglist);
+        }
+
+        String[] names = BenchmarkData.names(users, BenchmarkData.Seed);
+        Rating[] ratings = Rating.values();
+
+        // only store the users that weren't stored by a previous run.
+        for (int i = 0; i < names.length; i++)
+        {
+            if (UserHandler.getUserByImgurId(BaseImgurId + i) != null)
+                continue;
+
+            HashSet<Rating> r = new HashSet<>();
+            r.add(ratings[i % ratings.length]);
+
+            HashSet<UserSubscription> subscriptions = new HashSet<>();
+            subscriptions.add(new UserSubscription(taglist, r, i % 10 == 0 ? "spiders" : ""));
+
+            UserHandler.handler().set(new User(names[i], BaseImgurId + i, subscriptions));
+        }
+
+        HashSet<Taglist> taglists = new HashSet<>();
+        taglists.add(taglist);
+
+        tagRequest = new BaseTagRequest(taglists, Rating.SAFE, "", false);
+        postComments = BenchmarkData.commentTree(comments, names, BenchmarkData.Seed);
+    }
+
+    @Benchmark
+    public LinkedList<String> parseCommentsForTagRequest() throws Exception
+    {
+        return TagRequestComments.parseCommentsForTagRequest(tagRequest, postComments);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Benchmark;
+
+import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
+import com.Bluefix.Prodosia.DataType.Taglist.Rating;
+import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
+import com.Bluefix.Prodosia.DataType.User.Filter;
+import com.Bluefix.Prodosia.DataType.User.UserSubscription;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching subscriptions against a tag request, with and without filters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSubscriptionBenchmark
+{
+    private static final String[] FilterWords = { "spiders", "snakes", "gore", "clowns", "feet", "politics" };
+
+    @Param({"false", "true"})
+    private boolean filtered;
+
+    private UserSubscription[] subscriptions;
+    private BaseTagRequest tagRequest;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(BenchmarkData.Seed);
+        Taglist taglist = new Taglist(1, "benchmark", "benchmark taglist", true);
+        Rating[] ratings = Rating.values();
+
+        subscriptions = new UserSubscription[10000];
+
+        for (int i = 0; i < subscriptions.length; i++)
+        {
+            StringBuilder filters = new StringBuilder();
+
+            if (filtered)
+            {
+                int amount = random.nextInt(3);
+
+                for (int j = 0; j < amount; j++)
+                    filters.append(FilterWords[random.nextInt(FilterWords.length)]).append(' ');
+            }
+
+            HashSet<Rating> r = new HashSet<>();
+            r.add(ratings[random.nextInt(ratings.length)]);
+
+            subscriptions[i] = new UserSubscription(taglist, r, filters.toString().trim());
+        }
+
+        String filter = filtered
+                ? Filter.getPatternForFilters(Arrays.asList("spiders", "gore").iterator())
+                : "";
+
+        tagRequest = new BaseTagRequest(new HashSet<>(Arrays.asList(taglist)), Rating.SAFE, filter, false);
+    }
+
+    @Benchmark
+    public int partOf()
+    {
+        int counter = 0;
+
+        for (UserSubscription us : subscriptions)
+        {
+            if (us.partOf(tagRequest))
+                counter++;
+        }
+
+        return counter;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Partition strategy that applies best-fit decreasing.
+ *
+ * The entries are placed from long to short, each on the open line that has the
+ * least space left that can still hold it. Lines are grouped by their remaining
+ * space, which has at most `maxLength` values, so every entry is placed in
+ * O(maxLength) time without any boxing.
+ *
+ * The amount of lines is at most 11/9 of the optimal amount, plus one.
+ */
+class BestFitPartition implements PartitionStrategy
+{
+    @Override
+    public List<int[]> split(int[] histogram, int maxLength)
+    {
+        int entries = 0;
+
+        for (int count : histogram)
+            entries += count;
+
+        // the lines that were opened, with their entries and remaining space.
+        int[][] lines = new int[Math.max(1, entries)][];
+        int[] lineSize = new int[lines.length];
+        int lineCount = 0;
+
+        // every line is part of the linked list that corresponds with its remaining space.
+        int[] head = new int[maxLength + 1];
+        int[] next = new int[lines.length];
+        Arrays.fill(head, -1);
+
+        for (int length = maxLength; length > 0; length--)
+        {
+            for (int n = histogram[length]; n > 0; n--)
+            {
+                // find the line with the least remaining space that fits the entry.
+                int space = length;
+
+                while (space <= maxLength && head[space] < 0)
+                    space++;
+
+                int line;
+
+                if (space <= maxLength)
+                {
+                    line = head[space];
+                    head[space] = next[line];
+                }
+                else
+                {
+                    line = lineCount++;
+                    lines[line] = new int[4];
+                    space = maxLength;
+                }
+
+                // add the entry to the line.
+                if (lineSize[line] == lines[line].length)
+                    lines[line] = Arrays.copyOf(lines[line], lineSize[line] * 2);
+
+                lines[line][lineSize[line]++] = length;
+
+                // move the line to the list of its new remaining space.
+                int remaining = space - length;
+                next[line] = head[remaining];
+                head[remaining] = line;
+            }
+        }
+
+        List<int[]> output = new ArrayList<>(lineCount);
+
+        for (int i = 0; i < lineCount; i++)
+            output.add(Arrays.copyOf(lines[i], lineSize[i]));
+
+        return output;
+    }
+}
@@ -27,10 +27,22 @@ import java.util.*;
 /**
  * Helper class for the Partition problem.
  *
- * Incorporates a dynamic programming solution.
+ * The entries are spread over lines by a `PartitionStrategy`. By default this is
+ * best-fit decreasing, which runs in linear time. The dynamic programming solution
+ * is available as `Optimal`.
  */
 public class Partition
 {
+    /**
+     * Fills every line as close to the maximum length as possible.
+     */
+    public static final PartitionStrategy Optimal = new OptimalPartition();
+
+    /**
+     * Places the entries from long to short on the line where they fit best.
+     */
+    public static final PartitionStrategy BestFit = new BestFitPartition();
+
     /**
      * Partition the entries provided into as few lines as possible without exceeding the maximum length.
      * @param entries The entries to be partitioned.
@@ -40,11 +52,24 @@ public class Partition
      */
     public static LinkedList<String> partitionEntries(Iterable<String> entries, int maxLength)
     {
-        // first, parse a list with all entry lengths and corresponding strings.
-        LengthStruct ls = new LengthStruct(entries);
+        return partitionEntries(entries, maxLength, BestFit);
+    }
+
+    /**
+     * Partition the entries provided into as few lines as possible without exceeding the maximum length.
+     * @param entries The entries to be partitioned.
+     * @param maxLength The maximum allowed length per line.
+     * @param strategy The strategy that spreads the entries over the lines.
+     * @return A list with all entries partitioned so that it does not exceed the maximum length.
+     * @throws IllegalArgumentException if any entry is larger than the allowed max length.
+     */
+    public static LinkedList<String> partitionEntries(Iterable<String> entries, int maxLength, PartitionStrategy strategy)
+    {
+        // first, parse a histogram with all entry lengths and corresponding strings.
+        LengthStruct ls = new LengthStruct(entries, maxLength);
 
         // spread the known lengths into partitions.
-        LinkedList<ArrayList<Integer>> partitionSplit = splitEntriesByLength(ls.length, maxLength);
+        List<int[]> partitionSplit = strategy.split(ls.histogram, maxLength);
 
         // reconstruct the string partitions and return.
         return reconstructStringPartition(partitionSplit, ls.lengthMap);
@@ -52,12 +77,12 @@ public class Partition
 
     private static class LengthStruct
     {
-        private ArrayList<Integer> length;
+        private int[] histogram;
         private HashMap<Integer, LinkedList<String>> lengthMap;
 
-        public LengthStruct(Iterable<String> entries)
+        public LengthStruct(Iterable<String> entries, int maxLength)
         {
-            length = new ArrayList<>();
+            histogram = new int[maxLength + 1];
             lengthMap = new HashMap<>();
 
             parseEntries(entries);
@@ -77,8 +102,11 @@ public class Partition
                 if (entry == null || entry.isEmpty())
                     continue;
 
+                // if the entry is larger than is allowed, throw an exception
+                if (entry.length() >= histogram.length)
+                    throw new IllegalArgumentException("The Partition algorithm was given an entry that exceeded the maximum length.");
 
-                length.add(entry.length());
+                histogram[entry.length()]++;
 
                 // retrieve the list of entries.
                 LinkedList<String> list = lengthMap.get(entry.length());
@@ -94,9 +122,9 @@ public class Partition
             }
         }
 
-        public ArrayList<Integer> getLength()
+        public int[] getHistogram()
         {
-            return length;
+            return histogram;
         }
 
         public HashMap<Integer, LinkedList<String>> getLengthMap()
@@ -107,164 +135,22 @@ public class Partition
 
 
 
-    //region Dynamic programming solution
-
-    /**
-     * Take the length of all entries and separate these in as few parts as possible.
-     * Each comment cannot exceed the maximum length
-     * @param entries The entries to be spread. This linkedlist will be emptied.
-     * @param maxLength The maximum allowed length per partition
-     * @return
-     */
-    private static LinkedList<ArrayList<Integer>> splitEntriesByLength(ArrayList<Integer> entries, int maxLength)
-    {
-        LinkedList<ArrayList<Integer>> output = new LinkedList<>();
-
-        while (!entries.isEmpty())
-        {
-            output.add(dynamicFillSingleRow(entries, maxLength));
-        }
-
-        return output;
-    }
-
-    /**
-     * Use the entries to fill a single arraylist with entries that come as close to the maximum length as possible.
-     * @param entries
-     * @param maxLength
-     * @return
-     */
-    private static ArrayList<Integer> dynamicFillSingleRow(ArrayList<Integer> entries, int maxLength)
-    {
-        int[] dynamicBlock = dynamicFillSingleRowArray(entries, maxLength);
-
-
-        // translate the dynamic block into a list with integers.
-        ArrayList<Integer> output = new ArrayList<>();
-
-        // find the last pivot
-        int lastPivot = -1;
-
-        for (int i = dynamicBlock.length - 1; i >= 0 && lastPivot < 0; i--)
-        {
-            if (dynamicBlock[i] > 0)
-                lastPivot = i;
-        }
-
-        // if there was no last pivot, something is wrong with the algorithm logic
-        if (lastPivot < 0)
-            throw new IllegalArgumentException("ba1bbd0a-390b-4b4e-b7f2-b80d7e34eca5");
-
-        // backtrack all values from the last pivot.
-        while (lastPivot >= 0)
-        {
-            int pivotValue = dynamicBlock[lastPivot];
-
-            if (pivotValue == 0)
-                throw new IllegalArgumentException("8501419e-3f56-440d-a43d-876124a650a4");
-
-            output.add(pivotValue);
-            lastPivot -= pivotValue;
-
-            // complete the pivot value from the entries.
-            if (!entries.remove((Object)pivotValue))
-                throw new IllegalArgumentException("5061367f-6801-40d8-b6c5-86bd3117a59d");
-        }
-
-        return output;
-    }
-
-
-    /**
-     * Fill an array with pivots.
-     *
-     * The logic behind this is that any integer 'entry' is either part of the solution or not part of the
-     * solution. This means that it can either serve as a pivot for another entry or not.
-     *
-     * if a spot in the block was already occupied, it means a different combination of pivots made that combination
-     * possible.
-     *
-     * By indicating which value made the pivot possible, we can backtrack it afterwards.
-     *
-     * This algorithm automatically stops as soon as the last entry has found a pivot, since that means
-     * we have an optimal solution.
-     * @param entries
-     * @param maxLength
-     * @return
-     */
-    private static int[] dynamicFillSingleRowArray(ArrayList<Integer> entries, int maxLength)
-    {
-        int[] dynamicBlock = new int[maxLength];
-
-        // loop through all entries and attempt to add them as pivots.
-        for (Integer e : entries)
-        {
-            // if the entry is larger than is allowed, throw an exception
-            if (e > maxLength)
-                throw new IllegalArgumentException("The Partition algorithm was given an entry that exceeded the maximum length.");
-
-            // keep track of our own pivot positions so we don't pivot on ourselves
-            HashSet<Integer> newPivots = new HashSet<Integer>();
-
-            // attempt to add the entry as a base pivot (first entry in the array.
-            if (dynamicBlock[e-1] == 0)
-            {
-                dynamicBlock[e-1] = e;
-                newPivots.add(e-1);
-            }
-
-            // loop through the dynamic block and attempt to pivot on any entries that aren't ours.
-            for (int i = e; i < dynamicBlock.length; i++)
-            {
-                // if the current pivot position isn't empty, continue
-                if (dynamicBlock[i] != 0)
-                    continue;
-
-                // If there is no former value we can pivot on, continue
-                if (dynamicBlock[i-e] == 0)
-                    continue;
-
-                // if the former pivot position was ours, continue
-                if (newPivots.contains(i-e))
-                    continue;
-
-                // we are allowed to pivot here.
-                dynamicBlock[i] = e;
-                newPivots.add(i);
-            }
-
-            // if the very last item of the collection has been set, return
-            if (dynamicBlock[dynamicBlock.length -1] != 0)
-                return dynamicBlock;
-        }
-
-        return dynamicBlock;
-    }
-
-
-
-
-    //endregion
-
-
-
-
     /**
      * Take all integers from the partitions and replace them with corresponding items from the map.
      * @param partitions The calculated partitions with the required lengths.
      * @param lengthMap The map that links length to a specific string item.
      * @return The String-partitioned list.
      */
-    private static LinkedList<String> reconstructStringPartition(LinkedList<ArrayList<Integer>> partitions, HashMap<Integer, LinkedList<String>> lengthMap)
+    private static LinkedList<String> reconstructStringPartition(List<int[]> partitions, HashMap<Integer, LinkedList<String>> lengthMap)
     {
         LinkedList<String> output = new LinkedList<>();
 
-        for (ArrayList<Integer> list : partitions)
+        for (int[] list : partitions)
         {
             StringBuilder sb = new StringBuilder();
 
             // find the corresponding text for the specified length
-            for (Integer i : list)
+            for (int i : list)
             {
                 LinkedList<String> sList = lengthMap.get(i);
 
@@ -281,20 +167,3 @@ public class Partition
     }
 
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
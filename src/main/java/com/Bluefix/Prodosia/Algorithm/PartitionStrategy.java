@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Algorithm;
+
+import java.util.List;
+
+/**
+ * A strategy that spreads entries over as few lines as possible.
+ *
+ * The entries are only known by their length. The strategy decides which lengths
+ * end up together on a line, after which `Partition` fills in the actual entries.
+ */
+public interface PartitionStrategy
+{
+    /**
+     * Spread the entries over lines that do not exceed the maximum length.
+     * @param histogram The amount of entries for every length, indexed by length.
+     *                  The histogram contains `maxLength + 1` items.
+     * @param maxLength The maximum allowed length per line.
+     * @return The lengths of the entries on every line.
+     */
+    List<int[]> split(int[] histogram, int maxLength);
+}
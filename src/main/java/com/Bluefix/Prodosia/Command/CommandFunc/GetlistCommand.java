@@ -23,16 +23,14 @@
 package com.Bluefix.Prodosia.Command.CommandFunc;
 
 import com.Bluefix.Prodosia.Command.CommandHelper.TagRequestParser;
+import com.Bluefix.Prodosia.DataHandler.UserHandler;
 import com.Bluefix.Prodosia.DataType.Command.CommandInformation;
 import com.Bluefix.Prodosia.DataType.Command.FileTransferable;
-import com.Bluefix.Prodosia.DataType.User.User;
-import com.Bluefix.Prodosia.Imgur.Tagging.TagRequestComments;
+import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 
 public class GetlistCommand implements ICommandFunc
@@ -87,35 +85,35 @@ public class GetlistCommand implements ICommandFunc
                 return;
         }
 
-        // find all users that correspond to this tag request.
-        ArrayList<User> users = TagRequestComments.findUsersForTagRequest(trr.getTagRequest());
+        BaseTagRequest tagRequest = trr.getTagRequest();
+        String pattern = syntaxPattern;
 
-        // sort the users.
-        Collections.sort(users, new User.AlphabeticalComparator());
-
-
-        // write all these users to a temporary file
+        // write all users that correspond to this tag request to a temporary file.
+        // the users are streamed in alphabetical order, so they do not have to be kept in memory.
         try
         {
             File temp = File.createTempFile("list", ".txt");
 
-            BufferedWriter bw = new BufferedWriter(new FileWriter(temp));
-            int counter = 0;
-
-            for (User u : users)
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(temp)))
             {
-                String item = syntaxPattern;
+                int[] counter = new int[]{0};
 
-                item = item.replace("%n", u.getImgurName());
-                item = item.replace("%i", "" + u.getImgurId());
-                item = item.replace("%c", "" + counter++);
-                item = item.replace("\\n", "\r\n");
-                item = item.replace("\\t", "\t");
+                UserHandler.forEachUserAlphabetically(u ->
+                {
+                    if (!u.partOfTagRequest(tagRequest))
+                        return;
 
-                bw.write(item);
-            }
+                    String item = pattern;
+
+                    item = item.replace("%n", u.getImgurName());
+                    item = item.replace("%i", "" + u.getImgurId());
+                    item = item.replace("%c", "" + counter[0]++);
+                    item = item.replace("\\n", "\r\n");
+                    item = item.replace("\\t", "\t");
 
-            bw.close();
+                    bw.write(item);
+                });
+            }
 
             // finally, send the file to the user.
             ((FileTransferable)ci).sendFile(temp);
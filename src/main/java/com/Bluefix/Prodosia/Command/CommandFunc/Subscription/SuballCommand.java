@@ -30,8 +30,11 @@ import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 import com.Bluefix.Prodosia.DataType.User.User;
 import com.Bluefix.Prodosia.DataType.User.UserSubscription;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.PostCommentCache;
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.github.kskelm.baringo.model.Comment;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -102,7 +105,7 @@ public class SuballCommand implements ICommandFunc
 
         try
         {
-            comments = ImgurManager.client().galleryService().getItemComments(imgurId, Comment.Sort.Best);
+            comments = PostCommentCache.handler().getComments(imgurId);
         }
         catch (Exception e)
         {
@@ -137,6 +140,9 @@ public class SuballCommand implements ICommandFunc
 
         if (subComments != null)
         {
+            // the post comments are shared through the cache, so filter a copy.
+            subComments = new ArrayList<>(subComments);
+
             // complete the calls from the tracker and the bot account itself.
             subComments.removeIf(c ->
             {
@@ -181,7 +187,26 @@ public class SuballCommand implements ICommandFunc
         if (pattern != null && !pattern.isEmpty())
             p = Pattern.compile(pattern);
 
-        int counter = 0;
+        // create the subscription data for the users.
+        HashSet<UserSubscription> subscription = new HashSet<>();
+
+        for (Taglist tl : taglists)
+        {
+            HashSet<Rating> ratings = new HashSet<>();
+
+            if (tl.hasRatings())
+            {
+                ratings.add(Rating.SAFE);
+                ratings.add(Rating.QUESTIONABLE);
+                ratings.add(Rating.EXPLICIT);
+            } else
+                ratings.add(Rating.ALL);
+
+            subscription.add(new UserSubscription(tl, ratings, ""));
+        }
+
+        ArrayList<User> users = new ArrayList<>();
+        ArrayList<String> failed = new ArrayList<>();
 
         for (Comment c : comments)
         {
@@ -192,38 +217,54 @@ public class SuballCommand implements ICommandFunc
 
             try
             {
-                // create the subscription data for this user.
-                HashSet<UserSubscription> subscription = new HashSet<>();
-
-                for (Taglist tl : taglists)
-                {
-                    HashSet<Rating> ratings = new HashSet<>();
-
-                    if (tl.hasRatings())
-                    {
-                        ratings.add(Rating.SAFE);
-                        ratings.add(Rating.QUESTIONABLE);
-                        ratings.add(Rating.EXPLICIT);
-                    } else
-                        ratings.add(Rating.ALL);
+                users.add(new User(c.getAuthorName(), c.getAuthorId(), subscription));
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+                failed.add(c.getAuthorName());
+            }
+        }
 
-                    subscription.add(new UserSubscription(tl, ratings, ""));
-                }
+        int counter = 0;
 
+        // store all users in a single transaction.
+        SqlBuilder.beginTransaction();
 
-                // Create a new user and store it.
-                User u = new User(c.getAuthorName(), c.getAuthorId(), subscription);
+        try
+        {
+            for (User u : users)
+            {
+                // store each user within its own savepoint, so a failure only discards that user.
+                SqlBuilder.beginTransaction();
 
-                u.store();
+                try
+                {
+                    u.store();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                    SqlBuilder.rollbackTransaction();
+                    failed.add(u.getImgurName());
+                    continue;
+                }
 
+                SqlBuilder.commitTransaction();
                 counter++;
             }
-            catch (Exception e)
-            {
-                e.printStackTrace();
-                ci.reply("Something went wrong while trying to subscribe \"" + c.getAuthorName() + "\"");
-            }
         }
+        catch (Exception e)
+        {
+            SqlBuilder.rollbackTransaction();
+            throw e;
+        }
+
+        SqlBuilder.commitTransaction();
+
+        // only reply once the transaction has completed.
+        for (String name : failed)
+            ci.reply("Something went wrong while trying to subscribe \"" + name + "\"");
 
         return counter;
     }
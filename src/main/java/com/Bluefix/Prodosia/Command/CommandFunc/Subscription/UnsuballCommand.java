@@ -29,9 +29,12 @@ import com.Bluefix.Prodosia.DataType.Command.ImgurCommandInformation;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 import com.Bluefix.Prodosia.DataType.User.User;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.PostCommentCache;
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.github.kskelm.baringo.model.Comment;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -102,7 +105,7 @@ public class UnsuballCommand implements ICommandFunc
 
         try
         {
-            comments = ImgurManager.client().galleryService().getItemComments(imgurId, Comment.Sort.Best);
+            comments = PostCommentCache.handler().getComments(imgurId);
         }
         catch (BaringoApiException e)
         {
@@ -135,6 +138,9 @@ public class UnsuballCommand implements ICommandFunc
 
         if (subComments != null)
         {
+            // the post comments are shared through the cache, so filter a copy.
+            subComments = new ArrayList<>(subComments);
+
             // complete the calls from the tracker and the bot account itself.
             subComments.removeIf(c ->
             {
@@ -178,7 +184,8 @@ public class UnsuballCommand implements ICommandFunc
         if (pattern != null && !pattern.isEmpty())
             p = Pattern.compile(pattern);
 
-        int counter = 0;
+        ArrayList<User> users = new ArrayList<>();
+        ArrayList<String> failed = new ArrayList<>();
 
         for (Comment c : comments)
         {
@@ -192,21 +199,61 @@ public class UnsuballCommand implements ICommandFunc
                 User u = UserHandler.getUserByImgurId(c.getAuthorId());
 
                 // if there was no pre-existing user with this author-id, skip it.
-                if (u == null)
+                if (u != null)
+                    users.add(u);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+                failed.add(c.getAuthorName());
+            }
+        }
+
+        HashSet<Taglist> unsubscribeFrom = new HashSet<>(taglists);
+        int counter = 0;
+
+        // remove all subscriptions in a single transaction.
+        SqlBuilder.beginTransaction();
+
+        try
+        {
+            for (User u : users)
+            {
+                // unsubscribe each user within its own savepoint, so a failure only discards that user.
+                SqlBuilder.beginTransaction();
+
+                Iterable<String> unsubscription;
+
+                try
+                {
+                    unsubscription = u.unsubscribe(unsubscribeFrom);
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                    SqlBuilder.rollbackTransaction();
+                    failed.add(u.getImgurName());
                     continue;
+                }
 
-                Iterable<String> unsubscription = u.unsubscribe(new HashSet<>(taglists));
+                SqlBuilder.commitTransaction();
 
                 // if at least one taglist was unsubscribed from, increment the counter.
                 if (unsubscription.iterator().hasNext())
                     counter++;
-
-            } catch (Exception e)
-            {
-                e.printStackTrace();
-                ci.reply("Something went wrong while trying to unsubscribe \"" + c.getAuthorName() + "\"");
             }
         }
+        catch (Exception e)
+        {
+            SqlBuilder.rollbackTransaction();
+            throw e;
+        }
+
+        SqlBuilder.commitTransaction();
+
+        // only reply once the transaction has completed.
+        for (String name : failed)
+            ci.reply("Something went wrong while trying to unsubscribe \"" + name + "\"");
 
         return counter;
     }
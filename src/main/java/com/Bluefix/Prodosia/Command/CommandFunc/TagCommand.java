@@ -29,7 +29,6 @@ import com.Bluefix.Prodosia.DataType.Comments.FeedbackRequest;
 import com.Bluefix.Prodosia.DataType.Comments.ICommentRequest;
 import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
 import com.Bluefix.Prodosia.DataType.Comments.TagRequest.TagRequest;
-import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
 import com.Bluefix.Prodosia.Imgur.Tagging.CommentExecution;
 import com.github.kskelm.baringo.model.Comment;
 import com.github.kskelm.baringo.util.BaringoApiException;
@@ -189,14 +188,13 @@ public class TagCommand implements ICommandFunc
         {
             try
             {
-                Comment pComment = ImgurManager.client().commentService().getComment(commentId);
-
                 // if the parent comment could not be posted, cancel the tag request for now.
-                if (pComment == null)
+                if (commentId <= 0)
                     return;
 
-                // parse the tag request and add it to the queue.
-                TagRequest tr = btr.parseTagRequest(pComment);
+                // parse the tag request and add it to the queue. The parent comment itself
+                // is retrieved along with the post comments once the tag request starts.
+                TagRequest tr = btr.parseTagRequest(imgurId, commentId);
 
                 TagRequestStorage.handler().set(tr);
             }
@@ -126,6 +126,16 @@ public class CommandHandler
      * @return The command result after execution.
      */
     public static void execute(CommandInformation ci, String command, String arguments)
+    {
+        execute(ci, command, splitArguments(arguments));
+    }
+
+    /**
+     * Split the arguments by whitespace, keeping the parts between quotes together.
+     * @param arguments The arguments, separated by a space
+     * @return The separate arguments.
+     */
+    public static String[] splitArguments(String arguments)
     {
         // keep parts between quotes together.
         String[] quoteSplit = arguments.trim().split("\"");
@@ -155,7 +165,7 @@ public class CommandHandler
             isQuote = !isQuote;
         }
 
-        execute(ci, command, splitItems.toArray(new String[0]));
+        return splitItems.toArray(new String[0]);
     }
 
     /**
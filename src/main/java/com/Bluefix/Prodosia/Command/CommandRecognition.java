@@ -23,6 +23,7 @@
 package com.Bluefix.Prodosia.Command;
 
 import com.Bluefix.Prodosia.DataHandler.CommandPrefixStorage;
+import com.Bluefix.Prodosia.DataHandler.ProcessedEntryLog;
 import com.Bluefix.Prodosia.DataType.Command.CommandInformation;
 import com.Bluefix.Prodosia.Logger.Logger;
 import com.Bluefix.Prodosia.Prefix.CommandPrefix;
@@ -34,18 +35,41 @@ public class CommandRecognition
 {
 
 
+    /**
+     * This method will attempt to execute the entry if it contained a command prefix
+     * that corresponds with the indicated type and its command was not executed before.
+     *
+     * The entry is checked against the `ProcessedEntryLog`, so that an entry which is
+     * seen again (for example when comments are rescanned) does not execute its command twice.
+     * @param type The type of service that is checking for a command.
+     * @param info The command information that is available.
+     * @param entryId The id of the entry within its service.
+     * @param entry The entry for execution
+     * @return true iff the entry contained a command that was executed, false otherwise.
+     */
+    public static boolean executeEntry(CommandPrefix.Type type, CommandInformation info, long entryId, String entry)
+    {
+        return executeEntry(type, info, entry, entryId, true);
+    }
+
     /**
      * This method will attempt to execute the entries if they contained a command prefix
      * that corresponds with the indicated type.
      * @param type The type of service that is checking for a command.
      * @param info The command information that is available.
      * @param entry The entry for execution
+     * @return true iff the entry contained a command that was executed, false otherwise.
      */
-    public static void executeEntry(CommandPrefix.Type type, CommandInformation info, String entry)
+    public static boolean executeEntry(CommandPrefix.Type type, CommandInformation info, String entry)
+    {
+        return executeEntry(type, info, entry, -1, false);
+    }
+
+    private static boolean executeEntry(CommandPrefix.Type type, CommandInformation info, String entry, long entryId, boolean checkLog)
     {
         // if the entry is empty, return
         if (entry == null || entry.trim().isEmpty())
-            return;
+            return false;
 
         CommandPrefix cPref;
 
@@ -58,13 +82,13 @@ public class CommandRecognition
             if (cPref == null)
             {
                 Logger.logMessage("### There was no prefix info for " + type.toString() + "!", Logger.Severity.WARNING);
-                return;
+                return false;
             }
         } catch (Exception e)
         {
             e.printStackTrace();
             Logger.logMessage("CommandRecognition::0parseComments -> " + e.getMessage(), Logger.Severity.ERROR);
-            return;
+            return false;
         }
         // attempt to execute the entry
         try
@@ -74,10 +98,15 @@ public class CommandRecognition
 
             // continue if the comment contains no command.
             if (comIndex < 0)
-                return;
+                return false;
+
+            // skip the command if it was already executed.
+            if (checkLog && !ProcessedEntryLog.handler().markProcessed(type, entryId))
+                return false;
 
             // execute the command.
             CommandHandler.execute(info, entry.substring(comIndex));
+            return true;
 
         }
         catch (Exception e)
@@ -85,5 +114,7 @@ public class CommandRecognition
             e.printStackTrace();
             Logger.logMessage("CommandRecognition::1parseComments -> " + e.getMessage(), Logger.Severity.ERROR);
         }
+
+        return false;
     }
 }
@@ -144,7 +144,7 @@ public class ArchiveHandler extends LocalStorageHandler<Archive>
         prep.setLong(1, archive.getTaglist().getId());
         prep.setString(2, archive.getDescription());
         prep.setString(3, archive.getChannelId());
-        prep.setString(4, archive.dbGetRatings());
+        prep.setInt(4, archive.dbGetRatings());
         prep.setString(5, archive.getFilters());
         SqlDatabase.execute(prep);
 
@@ -182,7 +182,7 @@ public class ArchiveHandler extends LocalStorageHandler<Archive>
                 "SELECT taglistId, description, channel, ratings, filters " +
                 "FROM Archive;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
@@ -245,7 +245,7 @@ public class ArchiveHandler extends LocalStorageHandler<Archive>
             long taglistId = rs.getLong(1);
             String description = rs.getString(2);
             String channelId = rs.getString(3);
-            String ratings = rs.getString(4);
+            int ratings = rs.getInt(4);
             String filters = rs.getString(5);
 
             archives.add(new Archive(taglistId, description, channelId, ratings, filters));
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataHandler;
+
+import com.Bluefix.Prodosia.DataType.Tracker.TrackerBookmark;
+import com.Bluefix.Prodosia.Logger.Logger;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Write-behind store for the bookmarks of the Comment Scanner.
+ *
+ * The scanner updates the bookmark of a tracker every time it reaches it. Instead of storing
+ * each of these on the scanner thread, only the newest bookmark per tracker is kept in memory
+ * and all of them are stored in a single transaction on a timer and when the application shuts down.
+ *
+ * If the application crashes, the bookmarks since the last flush are lost and those comments
+ * are scanned again.
+ */
+public class BookmarkWriter
+{
+    /**
+     * The default amount of milliseconds between two flushes.
+     */
+    public static final long DefaultFlushInterval = 60 * 1000;
+
+    //region Singleton
+
+    private static BookmarkWriter me;
+
+    public static synchronized BookmarkWriter handler()
+    {
+        if (me == null)
+        {
+            me = new BookmarkWriter(bookmarks -> CommentScannerStorage.handler().setAll(bookmarks));
+            me.start(DefaultFlushInterval);
+        }
+
+        return me;
+    }
+
+    //endregion
+
+    //region Variables and constructor
+
+    /**
+     * Function that stores a batch of bookmarks.
+     */
+    @FunctionalInterface
+    interface BatchWriter
+    {
+        void write(Collection<TrackerBookmark> bookmarks) throws Exception;
+    }
+
+    private final BatchWriter writer;
+
+    /**
+     * The bookmarks that were not yet stored, mapped by the imgur id of their tracker.
+     */
+    private final HashMap<Long, TrackerBookmark> pending;
+
+    /**
+     * Orders the flushes and removals, so that a removed bookmark is not stored again.
+     */
+    private final Object flushLock;
+
+    BookmarkWriter(BatchWriter writer)
+    {
+        this.writer = writer;
+        this.pending = new HashMap<>();
+        this.flushLock = new Object();
+    }
+
+    /**
+     * Flush the bookmarks periodically and when the application shuts down.
+     * @param interval The amount of milliseconds between two flushes.
+     */
+    private void start(long interval)
+    {
+        Timer timer = new Timer("BookmarkWriter", true);
+        timer.schedule(new TimerTask()
+        {
+            @Override
+            public void run()
+            {
+                flush();
+            }
+        }, interval, interval);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "BookmarkWriter-shutdown"));
+    }
+
+    //endregion
+
+    //region Bookmarks
+
+    /**
+     * Set the bookmark of a tracker. It will be stored with the next flush.
+     * @param tb The bookmark.
+     */
+    public void set(TrackerBookmark tb)
+    {
+        if (tb == null)
+            return;
+
+        synchronized (pending)
+        {
+            pending.put(tb.getImgurId(), tb);
+        }
+    }
+
+    /**
+     * Remove the bookmark of a tracker, both from memory and from the storage.
+     * @param tb The bookmark.
+     */
+    public void remove(TrackerBookmark tb) throws SQLException, BaringoApiException, IOException, URISyntaxException
+    {
+        if (tb == null)
+            return;
+
+        synchronized (flushLock)
+        {
+            discard(tb.getImgurId());
+            CommentScannerStorage.handler().remove(tb);
+        }
+    }
+
+    /**
+     * Forget the bookmark of a tracker that was not yet stored.
+     * @param imgurId The imgur id of the tracker.
+     */
+    void discard(long imgurId)
+    {
+        synchronized (pending)
+        {
+            pending.remove(imgurId);
+        }
+    }
+
+    /**
+     * Retrieve the bookmark for the user with the specified imgur id, or null if it did not exist.
+     * @param imgurId The user to retrieve the bookmark for.
+     * @return The newest bookmark for the specified user if it existed, null otherwise.
+     */
+    public TrackerBookmark getBookmarkByImgurId(long imgurId) throws SQLException
+    {
+        TrackerBookmark tb = getPending(imgurId);
+
+        if (tb != null)
+            return tb;
+
+        return CommentScannerStorage.getBookmarkByImgurId(imgurId);
+    }
+
+    /**
+     * Retrieve the bookmarks for the users with the specified imgur ids at once.
+     * @param imgurIds The users to retrieve the bookmarks for.
+     * @return A map from the imgur id to its newest bookmark. Users without a bookmark are not included.
+     */
+    public HashMap<Long, TrackerBookmark> getBookmarksByImgurIds(Collection<Long> imgurIds) throws SQLException
+    {
+        HashMap<Long, TrackerBookmark> output = CommentScannerStorage.getBookmarksByImgurIds(imgurIds);
+
+        synchronized (pending)
+        {
+            for (Long imgurId : imgurIds)
+            {
+                TrackerBookmark tb = pending.get(imgurId);
+
+                if (tb != null)
+                    output.put(imgurId, tb);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Retrieve the bookmark of a tracker that was not yet stored.
+     * @param imgurId The imgur id of the tracker.
+     * @return The bookmark, or null if there was no pending bookmark.
+     */
+    TrackerBookmark getPending(long imgurId)
+    {
+        synchronized (pending)
+        {
+            return pending.get(imgurId);
+        }
+    }
+
+    //endregion
+
+    //region Flushing
+
+    /**
+     * Store all pending bookmarks in a single transaction.
+     *
+     * If this fails, the bookmarks are kept for the next flush unless they were
+     * replaced in the meantime.
+     * @return true iff all pending bookmarks were stored, false otherwise.
+     */
+    public boolean flush()
+    {
+        synchronized (flushLock)
+        {
+            ArrayList<TrackerBookmark> batch;
+
+            synchronized (pending)
+            {
+                if (pending.isEmpty())
+                    return true;
+
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            try
+            {
+                writer.write(batch);
+                return true;
+            }
+            catch (Exception e)
+            {
+                synchronized (pending)
+                {
+                    for (TrackerBookmark tb : batch)
+                        pending.putIfAbsent(tb.getImgurId(), tb);
+                }
+
+                Logger.logMessage("BookmarkWriter::flush -> " + e.getMessage(), Logger.Severity.ERROR);
+                return false;
+            }
+        }
+    }
+
+    //endregion
+}
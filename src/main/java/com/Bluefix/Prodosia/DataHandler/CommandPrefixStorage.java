@@ -44,9 +44,16 @@ public class CommandPrefixStorage extends LocalStorageHandler<CommandPrefix>
         return me;
     }
 
+    /**
+     * Secondary key for the lookup of prefixes by their type.
+     */
+    private SecondaryKey<CommandPrefix.Type> typeKey;
+
     private CommandPrefixStorage()
     {
         super(true);
+
+        this.typeKey = declareKey(CommandPrefix::getType);
     }
 
     //endregion
@@ -175,7 +182,7 @@ public class CommandPrefixStorage extends LocalStorageHandler<CommandPrefix>
                 "SELECT type, regex " +
                 "FROM CommandPrefix;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
@@ -222,15 +229,7 @@ public class CommandPrefixStorage extends LocalStorageHandler<CommandPrefix>
      */
     public static CommandPrefix getPrefixForType(CommandPrefix.Type type) throws SQLException
     {
-        ArrayList<CommandPrefix> items = handler().getAll();
-
-        for (CommandPrefix i : items)
-        {
-            if (i.getType() == type)
-                return i;
-        }
-
-        return null;
+        return handler().getByKey(handler().typeKey, type);
     }
 
     //endregion
@@ -137,7 +137,7 @@ public class CommentDeletionStorage extends LocalStorageHandler<Long>
         String query =
                 "SELECT id FROM CommentDeletion;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
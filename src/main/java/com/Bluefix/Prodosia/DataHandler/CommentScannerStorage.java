@@ -30,7 +30,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 
 public class CommentScannerStorage extends LocalStorageHandler<TrackerBookmark>
 {
@@ -46,9 +48,16 @@ public class CommentScannerStorage extends LocalStorageHandler<TrackerBookmark>
         return me;
     }
 
+    /**
+     * Secondary key for the lookup of bookmarks by the imgur id of their tracker.
+     */
+    private SecondaryKey<Long> imgurIdKey;
+
     private CommentScannerStorage()
     {
         super(true);
+
+        this.imgurIdKey = declareKey(TrackerBookmark::getImgurId);
     }
 
     //endregion
@@ -99,18 +108,19 @@ public class CommentScannerStorage extends LocalStorageHandler<TrackerBookmark>
             return null;
 
         // retrieve the old tracker bookmark
-        TrackerBookmark oldBookmark = dbGetBookmark(tb.getTracker().getImgurId());
-
-        // complete the old bookmark and replace it.
-        dbRemoveBookmark(oldBookmark);
+        TrackerBookmark oldBookmark = dbGetBookmark(tb.getImgurId());
 
+        // insert the bookmark or replace the old one.
         String query =
                 "INSERT INTO CommentScanner " +
                 "(imgurId, lastCommentId, lastCommentTime) " +
-                "VALUES (?,?,?);";
+                "VALUES (?,?,?) " +
+                "ON CONFLICT(imgurId) DO UPDATE SET " +
+                "lastCommentId = excluded.lastCommentId, " +
+                "lastCommentTime = excluded.lastCommentTime;";
 
         PreparedStatement prep = SqlDatabase.getStatement(query);
-        prep.setLong(1, tb.getTracker().getImgurId());
+        prep.setLong(1, tb.getImgurId());
         prep.setLong(2, tb.getLastCommentId());
         prep.setLong(3, tb.getLastCommentTime().getTime());
 
@@ -131,7 +141,7 @@ public class CommentScannerStorage extends LocalStorageHandler<TrackerBookmark>
                 "WHERE imgurId = ?;";
 
         PreparedStatement prep = SqlDatabase.getStatement(query);
-        prep.setLong(1, tb.getTracker().getImgurId());
+        prep.setLong(1, tb.getImgurId());
 
         SqlDatabase.execute(prep);
 
@@ -172,7 +182,7 @@ public class CommentScannerStorage extends LocalStorageHandler<TrackerBookmark>
                 "SELECT imgurId, lastCommentId, lastCommentTime " +
                 "FROM CommentScanner;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
@@ -225,15 +235,17 @@ public class CommentScannerStorage extends LocalStorageHandler<TrackerBookmark>
         if (imgurId < 0)
             return null;
 
-        ArrayList<TrackerBookmark> bookmarks = handler().getAll();
-
-        for (TrackerBookmark t : bookmarks)
-        {
-            if (t.getTracker().getImgurId() == imgurId)
-                return t;
-        }
+        return handler().getByKey(handler().imgurIdKey, imgurId);
+    }
 
-        return null;
+    /**
+     * Retrieve the bookmarks for the users with the specified imgur ids at once.
+     * @param imgurIds The users to retrieve the bookmarks for.
+     * @return A map from the imgur id to its bookmark. Users without a bookmark are not included.
+     */
+    public static HashMap<Long, TrackerBookmark> getBookmarksByImgurIds(Collection<Long> imgurIds) throws SQLException
+    {
+        return handler().getAllByKey(handler().imgurIdKey, imgurIds);
     }
 
     //endregion
@@ -22,6 +22,7 @@
 
 package com.Bluefix.Prodosia.DataHandler;
 
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
 import javax.security.auth.login.LoginException;
@@ -29,23 +30,60 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A base class that allows for a Handler to have a local storage.
+ *
+ * The local storage is published as immutable snapshots. Readers can retrieve the
+ * current snapshot without any locking, while writers create a modified copy
+ * and publish it atomically.
+ *
+ * Writes are executed within a transaction of the database (see `beginWrite()`). Their
+ * changes are only published, and the listeners only notified, once the outermost transaction
+ * was committed. Changes that are rolled back are never visible to other threads. Within a
+ * transaction, the current thread can see its own changes before they are published.
  */
 public abstract class LocalStorageHandler <T>
 {
     //region Variables and constructor
 
     /**
-     * The local storage data
+     * The current snapshot of the local storage data, or null if it was not yet loaded.
+     */
+    private AtomicReference<Snapshot<T>> snapshot;
+
+    /**
+     * The secondary keys that were declared for the local storage data.
+     */
+    private ArrayList<SecondaryKey<?>> keys;
+
+    /**
+     * Lock that orders the publication of snapshots. It is only taken while holding
+     * the write lock of the database, or for work that does not access the database.
+     */
+    private final Object publishLock;
+
+    /**
+     * The amount of changes that were published. Used to detect changes that were
+     * published while the storage was being loaded. Guarded by the publish lock.
      */
-    private ArrayList<T> data;
+    private long generation;
+
+    /**
+     * The changes of the current thread that were written, but not yet committed.
+     */
+    private final ThreadLocal<List<Change>> pending;
 
     public LocalStorageHandler()
     {
-        data = null;
-        this.useLocalStorage = true;
+        this(true);
     }
 
     /**
@@ -54,19 +92,423 @@ public abstract class LocalStorageHandler <T>
      */
     public LocalStorageHandler(boolean useLocalStorage)
     {
-        data = null;
+        snapshot = new AtomicReference<>(null);
+        keys = new ArrayList<>();
+        publishLock = new Object();
+        generation = 0;
+        // a change might be published by the thread that commits the group it joined.
+        pending = ThreadLocal.withInitial(CopyOnWriteArrayList::new);
+        listeners = new CopyOnWriteArrayList<>();
         this.useLocalStorage = useLocalStorage;
     }
 
     //endregion
 
+    //region Change listeners
+
+    /**
+     * Listener that is notified of the changes to the items of a handler.
+     *
+     * The notifications are sent once the changes were committed, in the order of the changes.
+     * Since the write lock of the database is still held at that point, listeners should return quickly.
+     * @param <T> The type of item that is stored.
+     */
+    public interface ChangeListener<T>
+    {
+        /**
+         * An item was set.
+         * @param oldItem The item that was replaced, or null if no item was replaced.
+         * @param newItem The item that was set.
+         */
+        void itemSet(T oldItem, T newItem);
+
+        /**
+         * An item was removed.
+         * @param item The item that was removed.
+         */
+        void itemRemoved(T item);
+
+        /**
+         * The items were reloaded from the storage. Any item might have changed.
+         * @param items All items that are currently stored.
+         */
+        void itemsReloaded(List<T> items);
+    }
+
+    private CopyOnWriteArrayList<ChangeListener<T>> listeners;
+
+    /**
+     * Add a listener that is notified of subsequent changes.
+     * @param listener The listener to be added.
+     */
+    public void addListener(ChangeListener<T> listener)
+    {
+        if (listener != null)
+            listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener, so that it no longer receives notifications.
+     * @param listener The listener to be removed.
+     */
+    public void removeListener(ChangeListener<T> listener)
+    {
+        listeners.remove(listener);
+    }
+
+    //endregion
+
+    //region Snapshot
+
+    /**
+     * An immutable snapshot of the local storage data.
+     * @param <T> The type of item that is stored.
+     */
+    public static final class Snapshot<T>
+    {
+        private final long version;
+        private final List<T> items;
+        private final List<HashMap<Object, T>> indexes;
+
+        private Snapshot(long version, ArrayList<T> items, List<HashMap<Object, T>> indexes)
+        {
+            this.version = version;
+            this.items = Collections.unmodifiableList(items);
+            this.indexes = indexes;
+        }
+
+        /**
+         * Retrieve the version of this snapshot. Every change to the
+         * local storage results in a snapshot with a higher version.
+         * @return The version of the snapshot.
+         */
+        public long getVersion()
+        {
+            return version;
+        }
+
+        /**
+         * Retrieve the items in this snapshot in no particular order.
+         * @return An unmodifiable list of items.
+         */
+        public List<T> getItems()
+        {
+            return items;
+        }
+    }
+
+    /**
+     * Retrieve the current snapshot of the local storage, loading it if necessary.
+     *
+     * If the local storage is not used, a new snapshot will be created from the storage on every call.
+     * Within a transaction, the snapshot contains the changes of the current thread that were
+     * not yet committed.
+     * @return The current snapshot.
+     */
+    public Snapshot<T> getSnapshot() throws SQLException
+    {
+        if (!useLocalStorage)
+            return createSnapshot(0, getAllItems());
+
+        Snapshot<T> current = snapshot.get();
+
+        if (current == null)
+        {
+            // within a transaction the storage contains uncommitted changes, so it should not be published.
+            if (inWrite())
+                return createSnapshot(0, getAllItems());
+
+            current = load();
+        }
+
+        List<Change> changes = pending.get();
+
+        if (changes.isEmpty())
+            return current;
+
+        return apply(current, current.version, changes);
+    }
+
+    /**
+     * Load the snapshot from the storage and publish it.
+     *
+     * The storage is read without holding any lock. If a change was published in the meantime,
+     * the data may be outdated and is loaded again.
+     */
+    private Snapshot<T> load() throws SQLException
+    {
+        while (true)
+        {
+            long expected;
+
+            synchronized (publishLock)
+            {
+                Snapshot<T> current = snapshot.get();
+
+                if (current != null)
+                    return current;
+
+                expected = generation;
+            }
+
+            ArrayList<T> items = getAllItems();
+
+            synchronized (publishLock)
+            {
+                Snapshot<T> current = snapshot.get();
+
+                if (current != null)
+                    return current;
+
+                if (generation == expected)
+                {
+                    current = createSnapshot(generation, items);
+
+                    if (useLocalStorage)
+                        snapshot.set(current);
+
+                    return current;
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a snapshot for the items and index them by all secondary keys.
+     */
+    private Snapshot<T> createSnapshot(long version, ArrayList<T> items) throws SQLException
+    {
+        ArrayList<HashMap<Object, T>> indexes = new ArrayList<>(keys.size());
+
+        for (SecondaryKey<?> key : keys)
+        {
+            HashMap<Object, T> index = new HashMap<>();
+
+            for (T item : items)
+                key.add(index, item);
+
+            indexes.add(index);
+        }
+
+        return new Snapshot<>(version, items, indexes);
+    }
+
+    /**
+     * Create a copy of the snapshot in which the changes are applied, in order.
+     *
+     * Applying a change is idempotent: an item that was set replaces any equal item, since
+     * the snapshot might have been loaded after the change was written.
+     * @param current The snapshot to be copied.
+     * @param version The version of the new snapshot.
+     * @param changes The changes to be applied.
+     */
+    private Snapshot<T> apply(Snapshot<T> current, long version, List<Change> changes) throws SQLException
+    {
+        ArrayList<T> items = new ArrayList<>(current.items);
+        ArrayList<HashMap<Object, T>> indexes = new ArrayList<>(keys.size());
+
+        for (HashMap<Object, T> index : current.indexes)
+            indexes.add(new HashMap<>(index));
+
+        for (Change c : changes)
+        {
+            for (int j = 0; j < c.oldItems.size(); j++)
+            {
+                T oldItem = c.oldItems.get(j);
+                T newItem = c.newItems.get(j);
+
+                removeFrom(items, indexes, oldItem);
+                removeFrom(items, indexes, newItem);
+
+                if (newItem != null)
+                {
+                    items.add(newItem);
+
+                    for (int i = 0; i < keys.size(); i++)
+                        keys.get(i).add(indexes.get(i), newItem);
+                }
+            }
+        }
+
+        return new Snapshot<>(version, items, indexes);
+    }
+
+    private void removeFrom(ArrayList<T> items, ArrayList<HashMap<Object, T>> indexes, T item) throws SQLException
+    {
+        if (item == null)
+            return;
+
+        int position = items.indexOf(item);
+
+        if (position < 0)
+            return;
+
+        T stored = items.remove(position);
+
+        for (int i = 0; i < keys.size(); i++)
+            keys.get(i).remove(indexes.get(i), stored);
+    }
+
+    //endregion
+
+    //region Secondary keys
+
+    /**
+     * Function that retrieves a key from an item.
+     * @param <T> The type of the item.
+     * @param <K> The type of the key.
+     */
+    @FunctionalInterface
+    protected interface KeyFunction<T, K>
+    {
+        /**
+         * Retrieve the key for the item.
+         * @param item The item.
+         * @return The key of the item. Items with a null key are not indexed.
+         */
+        K getKey(T item) throws SQLException;
+    }
+
+    /**
+     * A secondary key on the items in the local storage. The key is kept up to date
+     * when items are set, removed or refreshed, which allows for constant-time lookups.
+     *
+     * If multiple items share the same key, the most recently stored item is returned.
+     * @param <K> The type of the key.
+     */
+    protected class SecondaryKey<K>
+    {
+        private KeyFunction<T, K> keyFunction;
+        private int position;
+
+        private SecondaryKey(KeyFunction<T, K> keyFunction, int position)
+        {
+            this.keyFunction = keyFunction;
+            this.position = position;
+        }
+
+        private void add(HashMap<Object, T> index, T item) throws SQLException
+        {
+            K key = keyFunction.getKey(item);
+
+            if (key != null)
+                index.put(key, item);
+        }
+
+        private void remove(HashMap<Object, T> index, T item) throws SQLException
+        {
+            K key = keyFunction.getKey(item);
+
+            // only remove the key if it still refers to this specific item.
+            if (key != null && index.get(key) == item)
+                index.remove(key);
+        }
+    }
+
+    /**
+     * Declare a secondary key for the items of this handler.
+     *
+     * Should be called from the constructor of the handler.
+     * @param keyFunction The function that retrieves the key from an item.
+     * @param <K> The type of the key.
+     * @return The secondary key, which can be used for lookups.
+     */
+    protected <K> SecondaryKey<K> declareKey(KeyFunction<T, K> keyFunction)
+    {
+        synchronized (publishLock)
+        {
+            SecondaryKey<K> key = new SecondaryKey<>(keyFunction, keys.size());
+            keys.add(key);
+
+            // any existing snapshot does not contain the new key yet.
+            snapshot.set(null);
+
+            return key;
+        }
+    }
+
+    /**
+     * Retrieve the item that corresponds to the key.
+     *
+     * If the local storage is not used, all items will be retrieved and searched instead.
+     * @param key The secondary key.
+     * @param value The value of the key.
+     * @param <K> The type of the key.
+     * @return The item with the specified key, or null if it did not exist.
+     */
+    protected <K> T getByKey(SecondaryKey<K> key, K value) throws SQLException
+    {
+        if (value == null)
+            return null;
+
+        if (!useLocalStorage)
+        {
+            for (T item : getAllItems())
+            {
+                if (value.equals(key.keyFunction.getKey(item)))
+                    return item;
+            }
+
+            return null;
+        }
+
+        return getSnapshot().indexes.get(key.position).get(value);
+    }
+
+    /**
+     * Retrieve the items that correspond to any of the keys.
+     *
+     * All items are retrieved from the same snapshot, or with a single pass over the
+     * storage if the local storage is not used.
+     * @param key The secondary key.
+     * @param values The values of the key.
+     * @param <K> The type of the key.
+     * @return A map from each value to its item. Values without an item are not included.
+     */
+    protected <K> HashMap<K, T> getAllByKey(SecondaryKey<K> key, Collection<K> values) throws SQLException
+    {
+        HashMap<K, T> output = new HashMap<>();
+
+        if (values.isEmpty())
+            return output;
+
+        if (!useLocalStorage)
+        {
+            HashSet<K> lookup = new HashSet<>(values);
+
+            for (T item : getAllItems())
+            {
+                K value = key.keyFunction.getKey(item);
+
+                if (value != null && lookup.contains(value))
+                    output.put(value, item);
+            }
+
+            return output;
+        }
+
+        HashMap<Object, T> index = getSnapshot().indexes.get(key.position);
+
+        for (K value : values)
+        {
+            T item = index.get(value);
+
+            if (item != null)
+                output.put(value, item);
+        }
+
+        return output;
+    }
+
+    //endregion
+
     //region use local storage
 
     /**
      * This boolean indicates whether the Handler class will use a local storage
      * for quick retrieval of items.
      */
-    protected boolean useLocalStorage;
+    protected volatile boolean useLocalStorage;
 
     /**
      * Indicate whether the Handler class should use local storage for data speedup.
@@ -74,11 +516,14 @@ public abstract class LocalStorageHandler <T>
      */
     public void setLocalStorage(boolean val)
     {
-        this.useLocalStorage = val;
+        synchronized (publishLock)
+        {
+            this.useLocalStorage = val;
 
-        // delete the local storage if it was disabled.
-        if (!this.useLocalStorage)
-            data = null;
+            // delete the local storage if it was disabled.
+            if (!this.useLocalStorage)
+                snapshot.set(null);
+        }
     }
 
     //endregion
@@ -95,24 +540,62 @@ public abstract class LocalStorageHandler <T>
         if (t == null)
             return;
 
-        // set the item and retrieve the old item.
-        T oldItem = setItem(t);
+        beginWrite();
 
-        // if the local storage is used, replace the item.
-        if (useLocalStorage)
+        try
         {
-            // init the local storage if necessary.
-            if (data == null)
-            {
-                data = getAllItems();
-            }
-            else
-            {
-                // update
-                data.remove(oldItem);
-                data.add(t);
-            }
+            // set the item and retrieve the old item.
+            T oldItem = setItem(t);
+
+            record(Collections.singletonList(oldItem), Collections.singletonList(t));
+        }
+        catch (Exception e)
+        {
+            rollbackWrite();
+            throw e;
+        }
+
+        commitWrite();
+    }
+
+
+    /**
+     * Set all items in a single transaction, replacing the existing items if applicable.
+     *
+     * The local storage is updated with a single snapshot.
+     * @param items The items to be set.
+     */
+    public void setAll(Collection<T> items) throws SQLException, BaringoApiException, IOException, URISyntaxException, LoginException
+    {
+        ArrayList<T> newItems = new ArrayList<>(items.size());
+
+        for (T t : items)
+        {
+            if (t != null)
+                newItems.add(t);
+        }
+
+        if (newItems.isEmpty())
+            return;
+
+        beginWrite();
+
+        try
+        {
+            ArrayList<T> oldItems = new ArrayList<>(newItems.size());
+
+            for (T t : newItems)
+                oldItems.add(setItem(t));
+
+            record(oldItems, newItems);
+        }
+        catch (Exception e)
+        {
+            rollbackWrite();
+            throw e;
         }
+
+        commitWrite();
     }
 
 
@@ -126,12 +609,22 @@ public abstract class LocalStorageHandler <T>
         if (t == null)
             return;
 
-        // if the local storage is in use, complete the item
-        if (useLocalStorage && data != null)
-            data.remove(t);
+        beginWrite();
+
+        try
+        {
+            // complete the item from the database.
+            removeItem(t);
+
+            record(Collections.singletonList(t), Collections.singletonList(null));
+        }
+        catch (Exception e)
+        {
+            rollbackWrite();
+            throw e;
+        }
 
-        // complete the item from the database.
-        removeItem(t);
+        commitWrite();
     }
 
 
@@ -143,8 +636,20 @@ public abstract class LocalStorageHandler <T>
      */
     public void update(T oldT, T newT) throws SQLException, BaringoApiException, IOException, URISyntaxException, LoginException
     {
-        remove(oldT);
-        set(newT);
+        beginWrite();
+
+        try
+        {
+            remove(oldT);
+            set(newT);
+        }
+        catch (Exception e)
+        {
+            rollbackWrite();
+            throw e;
+        }
+
+        commitWrite();
     }
 
 
@@ -152,26 +657,20 @@ public abstract class LocalStorageHandler <T>
 
     /**
      * Retrieve all items from the list.
-     * @return An arraylist with all items currently stored by the handler.
+     *
+     * The list is an immutable snapshot, which will not reflect any subsequent changes.
+     * @return An unmodifiable list with all items currently stored by the handler.
      */
-    public ArrayList<T> getAll() throws SQLException
+    public List<T> getAll() throws SQLException
     {
-        // if the local storage is used,
-        if (useLocalStorage)
-        {
-            if (data == null)
-                data = getAllItems();
-
-            return data;
-        }
-
-        // if the local storage wasn't used, simply return the data call.
-        return getAllItems();
+        return getSnapshot().getItems();
     }
 
 
     /**
      * Force the handler to refresh from its database contents.
+     *
+     * Within a transaction, the handler is refreshed once the transaction was committed.
      */
     public void refresh() throws SQLException
     {
@@ -179,9 +678,211 @@ public abstract class LocalStorageHandler <T>
         if (!useLocalStorage)
             return;
 
-        data = getAllItems();
+        if (inWrite())
+        {
+            afterCommit(new SqlBuilder.TransactionListener()
+            {
+                @Override
+                public void committed()
+                {
+                    try
+                    {
+                        refresh();
+                    }
+                    catch (SQLException e)
+                    {
+                        e.printStackTrace();
+                        discardSnapshot();
+                    }
+                }
+
+                @Override
+                public void rolledBack()
+                {
+                }
+            });
+
+            return;
+        }
+
+        // read the storage without holding any lock, and reload if a change was published in the meantime.
+        while (true)
+        {
+            long expected;
+
+            synchronized (publishLock)
+            {
+                expected = generation;
+            }
+
+            ArrayList<T> items = getAllItems();
+
+            synchronized (publishLock)
+            {
+                if (generation != expected)
+                    continue;
+
+                generation++;
+
+                Snapshot<T> reloaded = createSnapshot(generation, items);
+                snapshot.set(reloaded);
+
+                for (ChangeListener<T> l : listeners)
+                    l.itemsReloaded(reloaded.getItems());
+
+                return;
+            }
+        }
+    }
+
+
+    //endregion
+
+    //region Transactions
+
+    /**
+     * A change to the storage that is published once its transaction was committed.
+     *
+     * Each old item is replaced by the new item at the same position. A new item
+     * of null indicates that the old item was removed.
+     */
+    private final class Change implements SqlBuilder.TransactionListener
+    {
+        private final List<T> oldItems;
+        private final List<T> newItems;
+
+        /**
+         * The pending changes of the thread that wrote this change.
+         */
+        private final List<Change> owner;
+
+        private Change(List<T> oldItems, List<T> newItems, List<Change> owner)
+        {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+            this.owner = owner;
+        }
+
+        @Override
+        public void committed()
+        {
+            owner.remove(this);
+            publish(this);
+        }
+
+        @Override
+        public void rolledBack()
+        {
+            owner.remove(this);
+        }
     }
 
+    /**
+     * Record a change that was written to the storage, so that it is published
+     * once the transaction was committed. Requires a write.
+     */
+    private void record(List<T> oldItems, List<T> newItems)
+    {
+        List<Change> owner = pending.get();
+        Change change = new Change(oldItems, newItems, owner);
+
+        afterCommit(change);
+        owner.add(change);
+    }
+
+    /**
+     * Publish a committed change and notify the listeners.
+     */
+    private void publish(Change change)
+    {
+        synchronized (publishLock)
+        {
+            generation++;
+
+            Snapshot<T> current = snapshot.get();
+
+            // if the data was not yet loaded, it will be loaded on the next read.
+            if (useLocalStorage && current != null)
+            {
+                try
+                {
+                    snapshot.set(apply(current, generation, Collections.singletonList(change)));
+                }
+                catch (SQLException e)
+                {
+                    // the change can not be applied, so the storage is loaded again on the next read.
+                    e.printStackTrace();
+                    snapshot.set(null);
+                }
+            }
+
+            for (int i = 0; i < change.oldItems.size(); i++)
+            {
+                T oldItem = change.oldItems.get(i);
+                T newItem = change.newItems.get(i);
+
+                for (ChangeListener<T> l : listeners)
+                {
+                    if (newItem == null)
+                        l.itemRemoved(oldItem);
+                    else
+                        l.itemSet(oldItem, newItem);
+                }
+            }
+        }
+    }
+
+    private void discardSnapshot()
+    {
+        synchronized (publishLock)
+        {
+            generation++;
+            snapshot.set(null);
+        }
+    }
+
+    /**
+     * Start a write to the storage, taking the write lock of the database.
+     *
+     * Writes can be nested, for example when a handler is written to within a transaction.
+     * A write outside of a transaction may be committed along with the writes of other threads.
+     */
+    void beginWrite() throws SQLException
+    {
+        SqlBuilder.beginGroupTransaction();
+    }
+
+    /**
+     * Commit the innermost write to the storage. If this fails, the write was rolled back.
+     */
+    void commitWrite() throws SQLException
+    {
+        SqlBuilder.commitTransaction();
+    }
+
+    /**
+     * Roll back the innermost write to the storage.
+     */
+    void rollbackWrite() throws SQLException
+    {
+        SqlBuilder.rollbackTransaction();
+    }
+
+    /**
+     * Check whether the current thread is writing to the storage.
+     */
+    boolean inWrite()
+    {
+        return SqlBuilder.inTransaction();
+    }
+
+    /**
+     * Notify the listener once the outermost write of the current thread was completed. Requires a write.
+     */
+    void afterCommit(SqlBuilder.TransactionListener listener)
+    {
+        SqlBuilder.addTransactionListener(listener);
+    }
 
     //endregion
 
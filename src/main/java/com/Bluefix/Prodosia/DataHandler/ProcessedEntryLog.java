@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataHandler;
+
+import com.Bluefix.Prodosia.Logger.Logger;
+import com.Bluefix.Prodosia.Prefix.CommandPrefix;
+import com.Bluefix.Prodosia.SQLite.SqlDatabase;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Log of the entries (Imgur comments and Discord messages) whose commands were executed.
+ *
+ * Entries can be seen more than once, for example when the Comment Scanner rescans comments
+ * because its bookmark was not yet stored before a restart. Checking this log before dispatching
+ * a command ensures that it is only executed once.
+ *
+ * Only entries that contained a command are logged, and only for a limited amount of time. All
+ * logged entries are kept in memory as well, so the check itself does not access the database.
+ */
+public class ProcessedEntryLog
+{
+    //region Tweaking data
+
+    /**
+     * The amount of milliseconds an entry is retained in the log.
+     */
+    public static final long Retention = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * The minimum amount of milliseconds between two prunes of the database.
+     */
+    private static final long PruneInterval = 60 * 60 * 1000;
+
+    //endregion
+
+    //region Singleton
+
+    private static ProcessedEntryLog me;
+
+    public static synchronized ProcessedEntryLog handler()
+    {
+        if (me == null)
+            me = new ProcessedEntryLog(new DatabaseStore());
+
+        return me;
+    }
+
+    //endregion
+
+    //region Variables and constructor
+
+    /**
+     * The persistent storage of the log.
+     */
+    interface Store
+    {
+        /**
+         * Retrieve all entries that were processed at or after the specified time.
+         * @return A list of {type value, entry id, processed at} triples, ordered by the time of processing.
+         */
+        ArrayList<long[]> load(long since) throws SQLException;
+
+        void insert(CommandPrefix.Type type, long entryId, long processedAt) throws SQLException;
+
+        /**
+         * Remove all entries that were processed before the specified time.
+         */
+        void prune(long before) throws SQLException;
+    }
+
+    private final Store store;
+
+    /**
+     * The processed entries per type, mapped against the time they were processed. The
+     * entries are kept in the order in which they were processed.
+     */
+    private final EnumMap<CommandPrefix.Type, LinkedHashMap<Long, Long>> entries;
+
+    private boolean isLoaded;
+
+    private long lastPrune;
+
+    ProcessedEntryLog(Store store)
+    {
+        this.store = store;
+        this.entries = new EnumMap<>(CommandPrefix.Type.class);
+        this.isLoaded = false;
+        this.lastPrune = 0;
+
+        for (CommandPrefix.Type type : CommandPrefix.Type.values())
+            entries.put(type, new LinkedHashMap<>());
+    }
+
+    //endregion
+
+    //region Log
+
+    /**
+     * Mark the entry as processed.
+     * @param type The service the entry originates from.
+     * @param entryId The id of the entry.
+     * @return true iff the entry was not processed before, false if its command was already executed.
+     */
+    public boolean markProcessed(CommandPrefix.Type type, long entryId)
+    {
+        return markProcessed(type, entryId, System.currentTimeMillis());
+    }
+
+    synchronized boolean markProcessed(CommandPrefix.Type type, long entryId, long now)
+    {
+        load(now);
+        expire(now);
+
+        LinkedHashMap<Long, Long> processed = entries.get(type);
+
+        if (processed.containsKey(entryId))
+            return false;
+
+        processed.put(entryId, now);
+
+        // if the entry couldn't be stored, it is still known until the application is restarted.
+        try
+        {
+            store.insert(type, entryId, now);
+        }
+        catch (SQLException e)
+        {
+            Logger.logMessage("ProcessedEntryLog::markProcessed -> " + e.getMessage(), Logger.Severity.ERROR);
+        }
+
+        prune(now);
+
+        return true;
+    }
+
+    /**
+     * Load the entries that are still retained, if this wasn't done yet.
+     */
+    private void load(long now)
+    {
+        if (isLoaded)
+            return;
+
+        try
+        {
+            for (long[] row : store.load(now - Retention))
+            {
+                CommandPrefix.Type type = CommandPrefix.Type.parseType((int)row[0]);
+                entries.get(type).putIfAbsent(row[1], row[2]);
+            }
+
+            isLoaded = true;
+        }
+        catch (SQLException e)
+        {
+            Logger.logMessage("ProcessedEntryLog::load -> " + e.getMessage(), Logger.Severity.ERROR);
+        }
+    }
+
+    /**
+     * Forget the entries that are no longer retained.
+     */
+    private void expire(long now)
+    {
+        long threshold = now - Retention;
+
+        for (LinkedHashMap<Long, Long> processed : entries.values())
+        {
+            Iterator<Map.Entry<Long, Long>> it = processed.entrySet().iterator();
+
+            // the entries are ordered by the time they were processed.
+            while (it.hasNext() && it.next().getValue() < threshold)
+                it.remove();
+        }
+    }
+
+    /**
+     * Remove the entries that are no longer retained from the storage once in a while.
+     */
+    private void prune(long now)
+    {
+        if (now - lastPrune < PruneInterval)
+            return;
+
+        try
+        {
+            store.prune(now - Retention);
+            lastPrune = now;
+        }
+        catch (SQLException e)
+        {
+            Logger.logMessage("ProcessedEntryLog::prune -> " + e.getMessage(), Logger.Severity.ERROR);
+        }
+    }
+
+    //endregion
+
+    //region Database management
+
+    private static class DatabaseStore implements Store
+    {
+        @Override
+        public ArrayList<long[]> load(long since) throws SQLException
+        {
+            String query =
+                    "SELECT type, entryId, processedAt " +
+                    "FROM ProcessedEntry " +
+                    "WHERE processedAt >= ? " +
+                    "ORDER BY processedAt;";
+
+            PreparedStatement prep = SqlDatabase.getReadStatement(query);
+            prep.setLong(1, since);
+            ArrayList<ResultSet> result = SqlDatabase.query(prep);
+
+            if (result.size() != 1)
+                throw new SQLException("SqlDatabase exception: Expected result size did not match (was " + result.size() + ")");
+
+            ResultSet rs = result.get(0);
+            ArrayList<long[]> output = new ArrayList<>();
+
+            while (rs.next())
+                output.add(new long[]{ rs.getLong(1), rs.getLong(2), rs.getLong(3) });
+
+            rs.close();
+            prep.close();
+            assert(prep.isClosed());
+
+            return output;
+        }
+
+        @Override
+        public void insert(CommandPrefix.Type type, long entryId, long processedAt) throws SQLException
+        {
+            String query =
+                    "INSERT OR IGNORE INTO ProcessedEntry " +
+                    "(type, entryId, processedAt) " +
+                    "VALUES (?,?,?);";
+
+            PreparedStatement prep = SqlDatabase.getStatement(query);
+            prep.setInt(1, type.getValue());
+            prep.setLong(2, entryId);
+            prep.setLong(3, processedAt);
+
+            SqlDatabase.execute(prep);
+
+            assert(prep.isClosed());
+        }
+
+        @Override
+        public void prune(long before) throws SQLException
+        {
+            String query =
+                    "DELETE FROM ProcessedEntry " +
+                    "WHERE processedAt < ?;";
+
+            PreparedStatement prep = SqlDatabase.getStatement(query);
+            prep.setLong(1, before);
+
+            SqlDatabase.execute(prep);
+
+            assert(prep.isClosed());
+        }
+    }
+
+    //endregion
+}
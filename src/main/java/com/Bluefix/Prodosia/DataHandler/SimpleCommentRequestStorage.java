@@ -22,9 +22,9 @@
 
 package com.Bluefix.Prodosia.DataHandler;
 
+import com.Bluefix.Prodosia.DataType.Comments.PostingCursor;
 import com.Bluefix.Prodosia.DataType.Comments.SimpleCommentRequest;
 import com.Bluefix.Prodosia.Imgur.Tagging.CommentExecution;
-import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.Bluefix.Prodosia.SQLite.SqlDatabase;
 
 import java.sql.PreparedStatement;
@@ -100,6 +100,15 @@ public class SimpleCommentRequestStorage extends LocalStorageHandler<SimpleComme
         return dbGetCommentRequests();
     }
 
+    /**
+     * Store the posting cursor of the comment request. The request itself is not changed.
+     * @param scr The comment request.
+     */
+    public void setCursor(SimpleCommentRequest scr) throws SQLException
+    {
+        dbSetCursor(scr);
+    }
+
     //endregion
 
     //region Database Management
@@ -109,22 +118,33 @@ public class SimpleCommentRequestStorage extends LocalStorageHandler<SimpleComme
         if (t == null)
             return null;
 
-        // retrieve the old comment request.
-        SimpleCommentRequest oldRequest = dbGetCommentRequest(t.getId());
-
-        // remove the old request
-        dbRemoveCommentRequest(oldRequest);
-
         // if the id was already known, insert with id.
         boolean hasId = t.getId() >= 0;
 
+        // retrieve the old comment request. A request without id can not have been stored yet.
+        SimpleCommentRequest oldRequest = (hasId ? dbGetCommentRequest(t.getId()) : null);
 
-        String query =
-                "INSERT INTO CommentQueue " +
-                "(" + (hasId ? "id, " : "") + "imgurId, parentId, lines) " +
-                "VALUES (" + (hasId ? "?," : "") + "?,?,?);";
+        // insert the request, or replace the old one if the id was already known.
+        String query;
 
-        SqlBuilder builder = SqlBuilder.Builder();
+        if (hasId)
+        {
+            query = "INSERT INTO CommentQueue " +
+                    "(id, imgurId, parentId, lines) " +
+                    "VALUES (?,?,?,?) " +
+                    "ON CONFLICT(id) DO UPDATE SET " +
+                    "imgurId = excluded.imgurId, " +
+                    "parentId = excluded.parentId, " +
+                    "lines = excluded.lines, " +
+                    "posted = 0, " +
+                    "lastCommentId = -1;";
+        }
+        else
+        {
+            query = "INSERT INTO CommentQueue " +
+                    "(imgurId, parentId, lines) " +
+                    "VALUES (?,?,?);";
+        }
 
         // set the parameters.
         PreparedStatement prep = SqlDatabase.getStatement(query);
@@ -149,9 +169,33 @@ public class SimpleCommentRequestStorage extends LocalStorageHandler<SimpleComme
 
         assert(prep.isClosed());
 
+        // the stored cursor was reset, so the request has to start from its first comment.
+        t.resetCursor();
+
         return oldRequest;
     }
 
+    private static void dbSetCursor(SimpleCommentRequest t) throws SQLException
+    {
+        if (t == null || t.getId() < 0)
+            return;
+
+        PostingCursor cursor = t.getCursor();
+
+        String query =
+                "UPDATE CommentQueue " +
+                "SET posted = ?, lastCommentId = ? " +
+                "WHERE id = ?;";
+
+        PreparedStatement prep = SqlDatabase.getStatement(query);
+        prep.setInt(1, cursor.getPosted());
+        prep.setLong(2, cursor.getLastCommentId());
+        prep.setLong(3, t.getId());
+        SqlDatabase.execute(prep);
+
+        assert(prep.isClosed());
+    }
+
     private static void dbRemoveCommentRequest(SimpleCommentRequest t) throws SQLException
     {
         // if the request is null, skip
@@ -172,7 +216,7 @@ public class SimpleCommentRequestStorage extends LocalStorageHandler<SimpleComme
     private static SimpleCommentRequest dbGetCommentRequest(long id) throws SQLException
     {
         String query =
-                "SELECT id, imgurId, parentId, lines " +
+                "SELECT id, imgurId, parentId, lines, posted, lastCommentId " +
                 "FROM CommentQueue " +
                 "WHERE id = ?;";
 
@@ -201,10 +245,10 @@ public class SimpleCommentRequestStorage extends LocalStorageHandler<SimpleComme
     private static ArrayList<SimpleCommentRequest> dbGetCommentRequests() throws SQLException
     {
         String query =
-                "SELECT id, imgurId, parentId, lines " +
+                "SELECT id, imgurId, parentId, lines, posted, lastCommentId " +
                 "FROM CommentQueue;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
@@ -231,8 +275,10 @@ public class SimpleCommentRequestStorage extends LocalStorageHandler<SimpleComme
             String imgurId = rs.getString(2);
             long parentId = rs.getLong(3);
             String comments = rs.getString(4);
+            int posted = rs.getInt(5);
+            long lastCommentId = rs.getLong(6);
 
-            output.add(SimpleCommentRequest.parse(id, imgurId, parentId, comments));
+            output.add(SimpleCommentRequest.parse(id, imgurId, parentId, comments, posted, lastCommentId));
         }
 
         // close the resultset
@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataHandler;
+
+import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
+import com.Bluefix.Prodosia.DataType.Taglist.Rating;
+import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
+import com.Bluefix.Prodosia.DataType.User.Filter;
+import com.Bluefix.Prodosia.DataType.User.User;
+import com.Bluefix.Prodosia.DataType.User.UserSubscription;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An inverted index that maps every taglist to the users that are subscribed to it.
+ *
+ * This allows a tag request to be resolved by only considering the subscribers
+ * of the requested taglists, rather than the entire user base. The index is loaded
+ * lazily and kept up to date incrementally afterwards.
+ */
+class SubscriberIndex
+{
+    //region Variables and constructor
+
+    /**
+     * Function that loads all users from the storage.
+     */
+    @FunctionalInterface
+    interface Loader
+    {
+        ArrayList<User> load() throws SQLException;
+    }
+
+    private Loader loader;
+
+    /**
+     * Maps a taglist id to its subscribers, keyed by their imgur id.
+     */
+    private HashMap<Long, LinkedHashMap<Long, Subscriber>> taglists;
+
+    /**
+     * Maps the imgur id of every indexed user to the user.
+     */
+    private HashMap<Long, User> users;
+
+    private boolean loaded;
+
+    /**
+     * Incremented on every change, to detect changes that happened while the index was loading.
+     */
+    private long generation;
+
+    SubscriberIndex(Loader loader)
+    {
+        this.loader = loader;
+        this.taglists = new HashMap<>();
+        this.users = new HashMap<>();
+        this.loaded = false;
+        this.generation = 0;
+    }
+
+    //endregion
+
+    //region Subscriber
+
+    /**
+     * The subscription of a single user to a taglist.
+     */
+    private static class Subscriber
+    {
+        private final User user;
+
+        /**
+         * The imgur name of the user in lower case, to compare against mentions.
+         */
+        private final String lowerName;
+        private final int ratings;
+        private final String filters;
+        private final String[] filterWords;
+
+        private Subscriber(User user, UserSubscription us)
+        {
+            this.user = user;
+            this.lowerName = user.getImgurName().toLowerCase();
+            this.ratings = us.getDbRating();
+
+            // an empty filter never excludes the user.
+            String f = us.getFilters();
+            this.filters = (f == null || f.trim().isEmpty() ? null : f);
+            this.filterWords = Filter.tokenize(this.filters);
+        }
+
+        /**
+         * Returns true iff this subscription is part of a tag request on the taglist.
+         * @param taglist The current version of the taglist.
+         * @param rating The rating of the tag request.
+         * @param filter The compiled filter of the tag request.
+         */
+        private boolean partOf(Taglist taglist, Rating rating, Filter filter)
+        {
+            // the ratings are only checked if the taglist incorporates ratings.
+            if (    taglist.hasRatings() &&
+                    (ratings & (rating.getMask() | Rating.ALL.getMask())) == 0)
+            {
+                return false;
+            }
+
+            // exclude the user if any of the filters match.
+            if (    filters != null &&
+                    filter.matches(filters, filterWords))
+            {
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    //endregion
+
+    //region Index maintenance
+
+    /**
+     * Index the user, replacing any previous version.
+     * @param user The user to be indexed.
+     */
+    synchronized void set(User user) throws SQLException
+    {
+        generation++;
+
+        if (!loaded || user == null)
+            return;
+
+        removeUser(user.getImgurId());
+        addUser(user);
+    }
+
+    /**
+     * Remove the user from the index.
+     * @param user The user to be removed.
+     */
+    synchronized void remove(User user) throws SQLException
+    {
+        generation++;
+
+        if (!loaded || user == null)
+            return;
+
+        removeUser(user.getImgurId());
+    }
+
+    /**
+     * Remove all subscriptions to the taglist. Users without any
+     * remaining subscriptions are removed from the index.
+     * @param taglistId The id of the taglist.
+     */
+    synchronized void removeTaglist(long taglistId) throws SQLException
+    {
+        generation++;
+
+        if (!loaded)
+            return;
+
+        LinkedHashMap<Long, Subscriber> subscribers = taglists.remove(taglistId);
+
+        if (subscribers == null)
+            return;
+
+        for (Long imgurId : subscribers.keySet())
+        {
+            User user = users.get(imgurId);
+
+            HashSet<UserSubscription> remaining = new HashSet<>();
+
+            for (UserSubscription us : user.getSubscriptions())
+            {
+                if (us.getTaglist().getId() != taglistId)
+                    remaining.add(us);
+            }
+
+            removeUser(imgurId);
+
+            if (!remaining.isEmpty())
+                addUser(new User(user.getImgurName(), user.getImgurId(), remaining));
+        }
+    }
+
+    /**
+     * Clear the index, which will be reloaded on its next use.
+     */
+    synchronized void invalidate()
+    {
+        generation++;
+        loaded = false;
+        taglists.clear();
+        users.clear();
+    }
+
+    private void addUser(User user) throws SQLException
+    {
+        users.put(user.getImgurId(), user);
+
+        for (UserSubscription us : user.getSubscriptions())
+        {
+            taglists.computeIfAbsent(us.getTaglist().getId(), k -> new LinkedHashMap<>())
+                    .put(user.getImgurId(), new Subscriber(user, us));
+        }
+    }
+
+    private void removeUser(long imgurId) throws SQLException
+    {
+        User user = users.remove(imgurId);
+
+        if (user == null)
+            return;
+
+        for (UserSubscription us : user.getSubscriptions())
+        {
+            long taglistId = us.getTaglist().getId();
+            LinkedHashMap<Long, Subscriber> subscribers = taglists.get(taglistId);
+
+            if (subscribers == null)
+                continue;
+
+            subscribers.remove(imgurId);
+
+            if (subscribers.isEmpty())
+                taglists.remove(taglistId);
+        }
+    }
+
+    /**
+     * Load the index if it wasn't loaded yet.
+     *
+     * The storage is read without holding the index lock. If the index changed in
+     * the meantime, the loaded data may be outdated and is loaded again.
+     */
+    private void ensureLoaded() throws SQLException
+    {
+        while (true)
+        {
+            long startGeneration;
+
+            synchronized (this)
+            {
+                if (loaded)
+                    return;
+
+                startGeneration = generation;
+            }
+
+            ArrayList<User> all = loader.load();
+
+            synchronized (this)
+            {
+                if (loaded)
+                    return;
+
+                if (startGeneration == generation)
+                {
+                    for (User u : all)
+                        addUser(u);
+
+                    loaded = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    //endregion
+
+    //region Tag Request
+
+    /**
+     * The amount of candidates below which a tag request is resolved on the calling thread.
+     */
+    static final int ParallelThreshold = 4096;
+
+    /**
+     * Retrieve all users that should be tagged for the tag request.
+     * @param tr The tag request.
+     * @return All users that are part of the tag request.
+     */
+    ArrayList<User> getSubscribers(BaseTagRequest tr) throws SQLException
+    {
+        Resolution r = resolve(tr, null, ParallelThreshold);
+
+        ArrayList<User> output = new ArrayList<>();
+
+        for (int i = 0; i < r.candidates.length; i++)
+        {
+            if (r.accepted[i])
+                output.add(r.candidates[i].user);
+        }
+
+        return output;
+    }
+
+    /**
+     * Retrieve the imgur names of all users that should be tagged for the tag request,
+     * excluding the users that were already mentioned.
+     * @param tr The tag request.
+     * @param mentioned The lower case names of the users that were already mentioned.
+     * @return The imgur names of all users that are part of the tag request.
+     */
+    ArrayList<String> getSubscriberNames(BaseTagRequest tr, Set<String> mentioned) throws SQLException
+    {
+        return getSubscriberNames(tr, mentioned, ParallelThreshold);
+    }
+
+    /**
+     * Retrieve the imgur names of all users that should be tagged for the tag request.
+     * @param tr The tag request.
+     * @param mentioned The lower case names of the users that were already mentioned.
+     * @param threshold The amount of candidates that a single task will evaluate.
+     * @return The imgur names of all users that are part of the tag request.
+     */
+    ArrayList<String> getSubscriberNames(BaseTagRequest tr, Set<String> mentioned, int threshold) throws SQLException
+    {
+        Resolution r = resolve(tr, mentioned, threshold);
+
+        ArrayList<String> output = new ArrayList<>();
+
+        for (int i = 0; i < r.candidates.length; i++)
+        {
+            if (r.accepted[i])
+                output.add(r.candidates[i].user.getImgurName());
+        }
+
+        return output;
+    }
+
+    /**
+     * The candidates of a tag request, along with the result of evaluating them.
+     */
+    private static class Resolution
+    {
+        private final Subscriber[] candidates;
+        private final Taglist[] taglists;
+        private final boolean[] accepted;
+
+        private Resolution(Subscriber[] candidates, Taglist[] taglists)
+        {
+            this.candidates = candidates;
+            this.taglists = taglists;
+            this.accepted = new boolean[candidates.length];
+        }
+    }
+
+    /**
+     * Collect the subscribers of all requested taglists and evaluate them against the tag request.
+     *
+     * Every user is only considered once, for the first requested taglist (ordered by id) that they
+     * are subscribed to and that accepts them. Because the candidates are evaluated independently
+     * and collected in a fixed order, the result is the same regardless of the threshold.
+     * @param tr The tag request.
+     * @param mentioned The lower case names of the users to exclude, or null.
+     * @param threshold The amount of candidates that a single task will evaluate.
+     */
+    private Resolution resolve(BaseTagRequest tr, Set<String> mentioned, int threshold) throws SQLException
+    {
+        ensureLoaded();
+
+        Filter filter = tr.getCompiledFilter();
+
+        // retrieve the taglist ids before locking, since they might require a database lookup.
+        ArrayList<Taglist> requested = new ArrayList<>(tr.getTaglists());
+        long[] taglistIds = new long[requested.size()];
+
+        for (int i = 0; i < taglistIds.length; i++)
+            taglistIds[i] = requested.get(i).getId();
+
+        // order the taglists by id to keep the output stable.
+        Integer[] order = new Integer[taglistIds.length];
+
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        Arrays.sort(order, (o1, o2) -> Long.compare(taglistIds[o1], taglistIds[o2]));
+
+        ArrayList<Subscriber> candidates = new ArrayList<>();
+        ArrayList<Taglist> candidateTaglists = new ArrayList<>();
+
+        // the subscribers are immutable, so only copying them requires the lock.
+        synchronized (this)
+        {
+            for (int i : order)
+            {
+                LinkedHashMap<Long, Subscriber> subscribers = taglists.get(taglistIds[i]);
+
+                if (subscribers == null)
+                    continue;
+
+                for (Subscriber s : subscribers.values())
+                {
+                    candidates.add(s);
+                    candidateTaglists.add(requested.get(i));
+                }
+            }
+        }
+
+        Resolution r = new Resolution(
+                candidates.toArray(new Subscriber[0]),
+                candidateTaglists.toArray(new Taglist[0]));
+
+        Evaluation task = new Evaluation(r, tr.getRating(), filter, mentioned, 0, r.candidates.length, threshold);
+
+        if (r.candidates.length <= threshold)
+            task.compute();
+        else
+            ForkJoinPool.commonPool().invoke(task);
+
+        // a user that is subscribed to multiple taglists is only accepted once.
+        HashSet<User> seen = new HashSet<>();
+
+        for (int i = 0; i < r.accepted.length; i++)
+        {
+            if (r.accepted[i] && !seen.add(r.candidates[i].user))
+                r.accepted[i] = false;
+        }
+
+        return r;
+    }
+
+    /**
+     * Evaluates a range of candidates, splitting it up if it exceeds the threshold.
+     */
+    private static class Evaluation extends RecursiveAction
+    {
+        private final Resolution resolution;
+        private final Rating rating;
+        private final Filter filter;
+        private final Set<String> mentioned;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private Evaluation(Resolution resolution, Rating rating, Filter filter, Set<String> mentioned,
+                           int from, int to, int threshold)
+        {
+            this.resolution = resolution;
+            this.rating = rating;
+            this.filter = filter;
+            this.mentioned = mentioned;
+            this.from = from;
+            this.to = to;
+            this.threshold = Math.max(1, threshold);
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= threshold)
+            {
+                for (int i = from; i < to; i++)
+                {
+                    Subscriber s = resolution.candidates[i];
+
+                    resolution.accepted[i] =
+                            (mentioned == null || !mentioned.contains(s.lowerName)) &&
+                            s.partOf(resolution.taglists[i], rating, filter);
+                }
+
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+
+            invokeAll(
+                    new Evaluation(resolution, rating, filter, mentioned, from, mid, threshold),
+                    new Evaluation(resolution, rating, filter, mentioned, mid, to, threshold));
+        }
+    }
+
+    //endregion
+}
@@ -22,9 +22,11 @@
 
 package com.Bluefix.Prodosia.DataHandler;
 
+import com.Bluefix.Prodosia.DataType.Comments.PostingCursor;
 import com.Bluefix.Prodosia.DataType.Comments.TagRequest.TagRequest;
 import com.Bluefix.Prodosia.Discord.Archive.ArchiveManager;
 import com.Bluefix.Prodosia.Imgur.Tagging.CommentExecution;
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.Bluefix.Prodosia.SQLite.SqlDatabase;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
@@ -35,6 +37,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Imgur helper class that handles Tag Requests.
@@ -82,7 +87,7 @@ public class TagRequestStorage extends LocalStorageHandler<TagRequest>
 
         // if there is overlap with an already-existing tagrequest with the same imgur-id,
         // merge the two.
-        ArrayList<TagRequest> requests = super.getAll();
+        List<TagRequest> requests = super.getAll();
 
         int index = requests.indexOf(tagRequest);
 
@@ -140,6 +145,15 @@ public class TagRequestStorage extends LocalStorageHandler<TagRequest>
         return dbGetTagrequests();
     }
 
+    /**
+     * Store the posting cursor of the tag request. The tag request itself is not changed.
+     * @param tagRequest The tag request.
+     */
+    public void setCursor(TagRequest tagRequest) throws SQLException, BaringoApiException, IOException, URISyntaxException
+    {
+        dbSetCursor(tagRequest);
+    }
+
     //endregion
 
     //region Database Management
@@ -149,30 +163,130 @@ public class TagRequestStorage extends LocalStorageHandler<TagRequest>
         if (t == null)
             return null;
 
-        // retrieve the old tag request
-        TagRequest oldRequest = dbGetTagrequest(t.getImgurId(), t.getParentId());
+        // the old tag request is replaced within a single transaction.
+        TagRequest oldRequest;
+
+        SqlBuilder.beginTransaction();
+
+        try
+        {
+            // retrieve the old tag request
+            oldRequest = dbGetTagrequest(t.getImgurId(), t.getParentId());
+
+            // insert the tag request or replace the old one.
+            String query =
+                    "INSERT INTO TagQueue " +
+                    "(imgurId, parentComment, rating, filters, cleanComments) " +
+                    "VALUES (?,?,?,?,?) " +
+                    "ON CONFLICT(imgurId, parentComment) DO UPDATE SET " +
+                    "rating = excluded.rating, " +
+                    "filters = excluded.filters, " +
+                    "cleanComments = excluded.cleanComments, " +
+                    "lines = NULL, " +
+                    "posted = 0, " +
+                    "lastCommentId = -1, " +
+                    "nextEligible = 0;";
+
+            PreparedStatement prep = SqlDatabase.getStatement(query);
+            prep.setString(1, t.getImgurId());
+            prep.setLong(2, t.getParentId());
+            prep.setInt(3, t.getRating().getValue());
+            prep.setString(4, t.getFilter());
+            prep.setBoolean(5, t.isCleanComments());
+
+            SqlBuilder sb = SqlBuilder.Builder().execute(prep);
+
+            // only write the taglists that actually changed.
+            dbSetTagrequestTaglists(sb, t.getImgurId(), t.getParentId(), oldRequest, t);
+
+            if (sb.commit() == null)
+                throw new SQLException("SqlDatabase exception: The tag request could not be stored");
+
+            assert(prep.isClosed());
+        }
+        catch (Exception e)
+        {
+            SqlBuilder.rollbackTransaction();
+            throw e;
+        }
+
+        SqlBuilder.commitTransaction();
+
+        return oldRequest;
+    }
+
+    /**
+     * Add the statements that update the taglists of a tag request, based
+     * on the differences with the old tag request.
+     * @param sb The builder to which the statements are added.
+     * @param imgurId The imgur id of the tag request.
+     * @param parentId The parent comment of the tag request.
+     * @param oldRequest The tag request as it was stored in the database, or null if it did not exist.
+     * @param t The new tag request.
+     */
+    private static void dbSetTagrequestTaglists(SqlBuilder sb, String imgurId, long parentId, TagRequest oldRequest, TagRequest t) throws SQLException
+    {
+        HashSet<Long> oldIds = new HashSet<>();
+
+        if (oldRequest != null)
+            oldIds.addAll(oldRequest.getDbTaglistIds());
 
-        // complete the old tag request to replace it with the new one.
-        dbRemoveTagrequest(oldRequest);
+        HashSet<Long> newIds = new HashSet<>(t.getDbTaglistIds());
+
+        for (Long taglistId : newIds)
+        {
+            if (oldIds.remove(taglistId))
+                continue;
+
+            String query0 =
+                    "INSERT OR IGNORE INTO TagQueueTaglist " +
+                    "(imgurId, parentComment, taglistId) " +
+                    "VALUES (?,?,?);";
+
+            PreparedStatement prep0 = SqlDatabase.getStatement(query0);
+            prep0.setString(1, imgurId);
+            prep0.setLong(2, parentId);
+            prep0.setLong(3, taglistId);
+            sb.execute(prep0);
+        }
+
+        // delete the taglists that are no longer part of the tag request.
+        for (Long taglistId : oldIds)
+        {
+            String query1 =
+                    "DELETE FROM TagQueueTaglist " +
+                    "WHERE imgurId = ? AND parentComment = ? AND taglistId = ?;";
+
+            PreparedStatement prep1 = SqlDatabase.getStatement(query1);
+            prep1.setString(1, imgurId);
+            prep1.setLong(2, parentId);
+            prep1.setLong(3, taglistId);
+            sb.execute(prep1);
+        }
+    }
+
+    private static void dbSetCursor(TagRequest t) throws SQLException, BaringoApiException, IOException, URISyntaxException
+    {
+        if (t == null || t.getCursor() == null)
+            return;
+
+        PostingCursor cursor = t.getCursor();
 
         String query =
-                "INSERT INTO TagQueue " +
-                "(imgurId, parentComment, taglists, rating, filters, cleanComments) " +
-                "VALUES (?,?,?,?,?,?);";
+                "UPDATE TagQueue " +
+                "SET lines = ?, posted = ?, lastCommentId = ?, nextEligible = ? " +
+                "WHERE imgurId = ? AND parentComment = ?;";
 
         PreparedStatement prep = SqlDatabase.getStatement(query);
-        prep.setString(1, t.getImgurId());
-        prep.setLong(2, t.getParentId());
-        prep.setString(3, t.getDbTaglists());
-        prep.setInt(4, t.getRating().getValue());
-        prep.setString(5, t.getFilter());
-        prep.setBoolean(6, t.isCleanComments());
-
+        prep.setString(1, PostingCursor.joinLines(cursor.getLines()));
+        prep.setInt(2, cursor.getPosted());
+        prep.setLong(3, cursor.getLastCommentId());
+        prep.setLong(4, cursor.getNextEligible());
+        prep.setString(5, t.getImgurId());
+        prep.setLong(6, t.getParentId());
         SqlDatabase.execute(prep);
 
         assert(prep.isClosed());
-
-        return oldRequest;
     }
 
     private static void dbRemoveTagrequest(TagRequest t) throws SQLException, BaringoApiException, IOException, URISyntaxException
@@ -181,24 +295,40 @@ public class TagRequestStorage extends LocalStorageHandler<TagRequest>
         if (t == null)
             return;
 
-        String query =
+        String query0 =
                 "DELETE FROM TagQueue " +
                 "WHERE imgurId = ? AND parentComment = ?;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
-        prep.setString(1, t.getImgurId());
-        prep.setLong(2, t.getParentId());
-        SqlDatabase.execute(prep);
+        PreparedStatement prep0 = SqlDatabase.getStatement(query0);
+        prep0.setString(1, t.getImgurId());
+        prep0.setLong(2, t.getParentId());
 
-        assert(prep.isClosed());
+        String query1 =
+                "DELETE FROM TagQueueTaglist " +
+                "WHERE imgurId = ? AND parentComment = ?;";
+
+        PreparedStatement prep1 = SqlDatabase.getStatement(query1);
+        prep1.setString(1, t.getImgurId());
+        prep1.setLong(2, t.getParentId());
+
+        SqlBuilder.Builder()
+                .execute(prep0)
+                .execute(prep1)
+                .commit();
+
+        assert(prep0.isClosed());
+        assert(prep1.isClosed());
     }
 
     private static TagRequest dbGetTagrequest(String imgurId, long parentId) throws SQLException
     {
         String query =
-                "SELECT imgurId, parentComment, taglists, rating, filters, cleanComments " +
-                "FROM TagQueue " +
-                "WHERE imgurId = ? AND parentComment = ?;";
+                "SELECT Q.imgurId, Q.parentComment, QT.taglistId, Q.rating, Q.filters, Q.cleanComments, " +
+                    "Q.lines, Q.posted, Q.lastCommentId, Q.nextEligible " +
+                "FROM TagQueue as Q " +
+                "INNER JOIN TagQueueTaglist as QT " +
+                    "ON Q.imgurId = QT.imgurId AND Q.parentComment = QT.parentComment " +
+                "WHERE Q.imgurId = ? AND Q.parentComment = ?;";
 
         PreparedStatement prep = SqlDatabase.getStatement(query);
         prep.setString(1, imgurId);
@@ -224,11 +354,16 @@ public class TagRequestStorage extends LocalStorageHandler<TagRequest>
 
     private static ArrayList<TagRequest> dbGetTagrequests() throws SQLException
     {
+        // the tag requests are retrieved in the order in which they were queued.
         String query =
-                "SELECT imgurId, parentComment, taglists, rating, filters, cleanComments " +
-                "FROM TagQueue;";
-
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+                "SELECT Q.imgurId, Q.parentComment, QT.taglistId, Q.rating, Q.filters, Q.cleanComments, " +
+                    "Q.lines, Q.posted, Q.lastCommentId, Q.nextEligible " +
+                "FROM TagQueue as Q " +
+                "INNER JOIN TagQueueTaglist as QT " +
+                    "ON Q.imgurId = QT.imgurId AND Q.parentComment = QT.parentComment " +
+                "ORDER BY Q.rowid;";
+
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
@@ -249,16 +384,36 @@ public class TagRequestStorage extends LocalStorageHandler<TagRequest>
     {
         ArrayList<TagRequest> output = new ArrayList<>();
 
-        while (rs.next())
+        // the rows are ordered by tag request, with one row for every taglist.
+        boolean hasRow = rs.next();
+
+        while (hasRow)
         {
             String imgurId = rs.getString(1);
             long parentComment = rs.getLong(2);
-            String taglists = rs.getString(3);
             int rating = rs.getInt(4);
             String filters = rs.getString(5);
             boolean cleanComments = rs.getBoolean(6);
 
-            output.add(new TagRequest(imgurId, parentComment, taglists, rating, filters, cleanComments));
+            // the posting cursor only exists if the tag request was started before.
+            String lines = rs.getString(7);
+            PostingCursor cursor = null;
+
+            if (lines != null)
+                cursor = new PostingCursor(PostingCursor.parseLines(lines), rs.getInt(8), rs.getLong(9), rs.getLong(10));
+
+            ArrayList<Long> taglists = new ArrayList<>();
+
+            do
+            {
+                taglists.add(rs.getLong(3));
+                hasRow = rs.next();
+            }
+            while (     hasRow &&
+                        Objects.equals(imgurId, rs.getString(1)) &&
+                        parentComment == rs.getLong(2));
+
+            output.add(new TagRequest(imgurId, parentComment, taglists, rating, filters, cleanComments, cursor));
         }
 
         // close the resultset
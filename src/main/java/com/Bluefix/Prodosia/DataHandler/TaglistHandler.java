@@ -25,6 +25,7 @@ package com.Bluefix.Prodosia.DataHandler;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 import com.Bluefix.Prodosia.DataType.Tracker.Tracker;
 import com.Bluefix.Prodosia.GUI.GuiUpdate;
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.Bluefix.Prodosia.SQLite.SqlDatabase;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
@@ -36,6 +37,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * Handler for taglist management.
@@ -54,9 +56,18 @@ public class TaglistHandler extends LocalStorageHandler<Taglist>
         return me;
     }
 
+    /**
+     * Secondary keys for the lookup of taglists. Abbreviations are not case-sensitive.
+     */
+    private SecondaryKey<Long> idKey;
+    private SecondaryKey<String> abbreviationKey;
+
     private TaglistHandler()
     {
         super(true);
+
+        this.idKey = declareKey(Taglist::getId);
+        this.abbreviationKey = declareKey(t -> t.getAbbreviation() == null ? null : t.getAbbreviation().toUpperCase());
     }
 
     //endregion
@@ -77,10 +88,22 @@ public class TaglistHandler extends LocalStorageHandler<Taglist>
         if (taglist.getId() < 0)
             throw new IllegalArgumentException("This method can only be applied to a taglist that was stored beforehand.");
 
-        dbClearTaglist(taglist);
+        beginWrite();
+
+        try
+        {
+            dbClearTaglist(taglist);
+
+            // finally, remove the taglist in the conventional way.
+            super.remove(taglist);
+        }
+        catch (Exception e)
+        {
+            rollbackWrite();
+            throw e;
+        }
 
-        // finally, remove the taglist in the conventional way.
-        super.remove(taglist);
+        commitWrite();
     }
 
 
@@ -201,14 +224,25 @@ public class TaglistHandler extends LocalStorageHandler<Taglist>
      */
     private static void dbClearTaglist(Taglist t) throws SQLException, LoginException, IOException, BaringoApiException, URISyntaxException
     {
-        dbClearUserDependencies(t);
-        dbClearTrackerPermissions(t);
-        dbClearArchiveDependencies(t);
-
-        // ensure that the handlers are refreshed.
-        UserHandler.handler().refresh();
-        //TrackerHandler.handler().refresh();
-        ArchiveHandler.handler().refresh();
+        SqlBuilder.beginTransaction();
+
+        try
+        {
+            dbClearUserDependencies(t);
+            dbClearTrackerPermissions(t);
+            dbClearArchiveDependencies(t);
+
+            // ensure that the handlers are refreshed once the transaction was committed.
+            UserHandler.handler().clearTaglist(t);
+            ArchiveHandler.handler().refresh();
+        }
+        catch (Exception e)
+        {
+            SqlBuilder.rollbackTransaction();
+            throw e;
+        }
+
+        SqlBuilder.commitTransaction();
     }
 
     /**
@@ -276,14 +310,17 @@ public class TaglistHandler extends LocalStorageHandler<Taglist>
     private static void dbClearTrackerPermissions(Taglist t) throws SQLException, URISyntaxException, IOException, LoginException, BaringoApiException
     {
         // retrieve all trackers
-        ArrayList<Tracker> trackers = new ArrayList<>(TrackerHandler.handler().getAll());
+        List<Tracker> trackers = TrackerHandler.handler().getAll();
+        ArrayList<Tracker> changed = new ArrayList<>();
 
         for (Tracker tracker : trackers)
         {
             // if the taglist had to be removed from the specified tracker, update it in the system.
             if (tracker.removeTaglistDependency(t))
-                TrackerHandler.handler().set(tracker);
+                changed.add(tracker);
         }
+
+        TrackerHandler.handler().setAll(changed);
     }
 
     /**
@@ -313,7 +350,7 @@ public class TaglistHandler extends LocalStorageHandler<Taglist>
                 "SELECT id, abbreviation, description, hasRatings " +
                 "FROM Taglist;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
@@ -390,15 +427,7 @@ public class TaglistHandler extends LocalStorageHandler<Taglist>
      */
     public static Taglist getTaglistById(long taglistId) throws SQLException
     {
-        ArrayList<Taglist> taglists = handler().getAll();
-
-        for (Taglist tl : taglists)
-        {
-            if (taglistId == tl.getId())
-                return tl;
-        }
-
-        return null;
+        return handler().getByKey(handler().idKey, taglistId);
     }
 
     /**
@@ -412,7 +441,10 @@ public class TaglistHandler extends LocalStorageHandler<Taglist>
         if (abbreviation == null || abbreviation.isEmpty())
             return null;
 
-        return dbGetTaglist(abbreviation);
+        if (!handler().useLocalStorage)
+            return dbGetTaglist(abbreviation);
+
+        return handler().getByKey(handler().abbreviationKey, abbreviation.toUpperCase());
     }
 
 
@@ -37,6 +37,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 
 /**
  * Handler for Tracker management.
@@ -62,9 +64,18 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
         return me;
     }
 
+    /**
+     * Secondary keys for the lookup of trackers.
+     */
+    private SecondaryKey<Long> imgurIdKey;
+    private SecondaryKey<String> discordIdKey;
+
     private TrackerHandler()
     {
         super(true);
+
+        this.imgurIdKey = declareKey(Tracker::getImgurId);
+        this.discordIdKey = declareKey(Tracker::getDiscordId);
     }
 
     //endregion
@@ -79,6 +90,13 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
         GuiUpdate.updateTrackers();
     }
 
+    @Override
+    public void setAll(Collection<Tracker> items) throws SQLException, BaringoApiException, IOException, URISyntaxException, LoginException
+    {
+        super.setAll(items);
+        GuiUpdate.updateTrackers();
+    }
+
     @Override
     public void remove(Tracker t) throws URISyntaxException, SQLException, IOException, BaringoApiException
     {
@@ -114,79 +132,148 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
         if (t == null)
             return null;
 
-        // retrieve the old tracker
-        Tracker oldTracker = dbGetTracker(t.getImgurId(), t.getDiscordId());
-
-        // delete the old tracker to replace it.
-        dbRemoveTracker(oldTracker);
+        // the old tracker is replaced within a single transaction.
+        Tracker oldTracker;
 
-        // first insert the tracker
-        String query0;
+        SqlBuilder.beginTransaction();
 
-        // if there was an old tracker, its id should be used.
-        if (oldTracker != null)
+        try
         {
-            query0 =    "INSERT INTO Tracker " +
-                        "(id, imgurId, imgurName, discordId, discordName, discordTag) " +
-                        "VALUES (?,?,?,?,?,?);";
+            // retrieve the old tracker
+            oldTracker = dbGetTracker(t.getImgurId(), t.getDiscordId());
+
+            // if there was an old tracker, its id should be used.
+            String query0;
+
+            if (oldTracker != null)
+            {
+                query0 =    "INSERT INTO Tracker " +
+                            "(id, imgurId, imgurName, discordId, discordName, discordTag) " +
+                            "VALUES (?,?,?,?,?,?) " +
+                            "ON CONFLICT(id) DO UPDATE SET " +
+                            "imgurId = excluded.imgurId, " +
+                            "imgurName = excluded.imgurName, " +
+                            "discordId = excluded.discordId, " +
+                            "discordName = excluded.discordName, " +
+                            "discordTag = excluded.discordTag;";
+            }
+            else
+            {
+                query0 =    "INSERT INTO Tracker " +
+                            "(imgurId, imgurName, discordId, discordName, discordTag) " +
+                            "VALUES (?,?,?,?,?);";
+            }
+
+            PreparedStatement prep0 = SqlDatabase.getStatement(query0);
+            int argCounter = 1;
+
+            if (oldTracker != null)
+                prep0.setLong(argCounter++, oldTracker.getId());
+
+            prep0.setLong(argCounter++, t.getImgurId());
+            prep0.setString(argCounter++, t.getImgurName());
+            prep0.setString(argCounter++, t.getDiscordId());
+            prep0.setString(argCounter++, t.getDiscordName());
+            prep0.setString(argCounter++, t.getDiscordTag());
+
+            SqlBuilder sb = SqlBuilder.Builder();
+
+            // retrieve the rowid of the tracker
+            long trackerIndex;
+
+            // if there was no old tracker, retrieve the index of the new tracker.
+            if (oldTracker == null)
+            {
+                trackerIndex = SqlDatabase.getAffectedRow(prep0);
+            }
+            else
+            {
+                // the tracker and its permissions can be updated at once.
+                trackerIndex = oldTracker.getId();
+                sb.execute(prep0);
+            }
+
+            // insert or update its permissions.
+            String query1 =
+                    "INSERT INTO Permission " +
+                    "(trackerId, isAdmin) " +
+                    "VALUES (?,?) " +
+                    "ON CONFLICT(trackerId) DO UPDATE SET " +
+                    "isAdmin = excluded.isAdmin;";
+
+            PreparedStatement prep1 = SqlDatabase.getStatement(query1);
+            prep1.setLong(1, trackerIndex);
+            prep1.setInt(2, t.getPermissions().dbGetType());
+            sb.execute(prep1);
+
+            // only write the permission taglists that actually changed.
+            dbSetPermissionTaglists(sb, trackerIndex, oldTracker, t);
+
+            if (sb.commit() == null)
+                throw new SQLException("SqlDatabase exception: The tracker could not be stored");
+
+            assert(prep0.isClosed());
+            assert(prep1.isClosed());
+
+            // update the tracker id accordingly.
+            t.setId(trackerIndex);
         }
-        else
+        catch (Exception e)
         {
-            query0 =    "INSERT INTO Tracker " +
-                        "(imgurId, imgurName, discordId, discordName, discordTag) " +
-                        "VALUES (?,?,?,?,?);";
+            SqlBuilder.rollbackTransaction();
+            throw e;
         }
 
+        SqlBuilder.commitTransaction();
 
+        return oldTracker;
+    }
 
-        PreparedStatement prep0 = SqlDatabase.getStatement(query0);
-        int argCounter = 1;
+    /**
+     * Add the statements that update the permission taglists of a tracker, based
+     * on the differences with its old permissions.
+     * @param sb The builder to which the statements are added.
+     * @param trackerIndex The tracker id.
+     * @param oldTracker The tracker as it was stored in the database, or null if it did not exist.
+     * @param t The new tracker.
+     */
+    private static void dbSetPermissionTaglists(SqlBuilder sb, long trackerIndex, Tracker oldTracker, Tracker t) throws SQLException
+    {
+        HashSet<Long> oldIds = new HashSet<>();
 
         if (oldTracker != null)
-            prep0.setLong(argCounter++, oldTracker.getId());
-
-        prep0.setLong(argCounter++, t.getImgurId());
-        prep0.setString(argCounter++, t.getImgurName());
-        prep0.setString(argCounter++, t.getDiscordId());
-        prep0.setString(argCounter++, t.getDiscordName());
-        prep0.setString(argCounter++, t.getDiscordTag());
+            oldIds.addAll(oldTracker.getPermissions().dbGetTaglistIds());
 
-        // retrieve the rowid of the freshly inserted tracker
-        long trackerIndex;
+        HashSet<Long> newIds = new HashSet<>(t.getPermissions().dbGetTaglistIds());
 
-        // if there was no old tracker, retrieve the index of the new tracker.
-        if (oldTracker == null)
+        for (Long taglistId : newIds)
         {
-            trackerIndex = SqlDatabase.getAffectedRow(prep0);
+            if (oldIds.remove(taglistId))
+                continue;
+
+            String query0 =
+                    "INSERT OR IGNORE INTO PermissionTaglist " +
+                    "(trackerId, taglistId) " +
+                    "VALUES (?,?);";
+
+            PreparedStatement prep0 = SqlDatabase.getStatement(query0);
+            prep0.setLong(1, trackerIndex);
+            prep0.setLong(2, taglistId);
+            sb.execute(prep0);
         }
-        else
+
+        // delete the taglists that are no longer part of the permissions.
+        for (Long taglistId : oldIds)
         {
-            SqlDatabase.execute(prep0);
-            trackerIndex = oldTracker.getId();
+            String query1 =
+                    "DELETE FROM PermissionTaglist " +
+                    "WHERE trackerId = ? AND taglistId = ?;";
+
+            PreparedStatement prep1 = SqlDatabase.getStatement(query1);
+            prep1.setLong(1, trackerIndex);
+            prep1.setLong(2, taglistId);
+            sb.execute(prep1);
         }
-
-        assert(prep0.isClosed());
-
-
-        // update the tracker id accordingly.
-        t.setId(trackerIndex);
-
-        // next, insert its permissions.
-        String query2 =
-                "INSERT INTO Permission " +
-                "(trackerId, isAdmin, taglists) " +
-                "VALUES (?,?,?);";
-
-        PreparedStatement prep2 = SqlDatabase.getStatement(query2);
-        prep2.setLong(1, trackerIndex);
-        prep2.setInt(2, t.getPermissions().dbGetType());
-        prep2.setString(3, t.getPermissions().dbGetTaglists());
-
-        SqlDatabase.execute(prep2);
-
-        assert(prep2.isClosed());
-
-        return oldTracker;
     }
 
     private static void dbRemoveTracker(Tracker t) throws SQLException
@@ -240,13 +327,21 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
         PreparedStatement prep2 = SqlDatabase.getStatement(query2);
         prep2.setLong(1, trackerId);
 
+        String query3 =
+                "DELETE FROM PermissionTaglist " +
+                "WHERE trackerId = ?;";
+        PreparedStatement prep3 = SqlDatabase.getStatement(query3);
+        prep3.setLong(1, trackerId);
+
         SqlBuilder.Builder()
                 .execute(prep1)
                 .execute(prep2)
+                .execute(prep3)
                 .commit();
 
         assert(prep1.isClosed());
         assert(prep2.isClosed());
+        assert(prep3.isClosed());
     }
 
 
@@ -261,10 +356,12 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
                     "T.discordName, " +
                     "T.discordTag, " +
                     "P.isAdmin, " +
-                    "P.taglists " +
+                    "PT.taglistId " +
                 "FROM Tracker as T " +
                 "INNER JOIN Permission as P ON T.id = P.trackerId " +
-                "WHERE T.imgurId = ? AND T.discordId = ?;";
+                "LEFT JOIN PermissionTaglist as PT ON T.id = PT.trackerId " +
+                "WHERE T.imgurId = ? AND T.discordId = ? " +
+                "ORDER BY T.id;";
 
         PreparedStatement prep = SqlDatabase.getStatement(query);
         prep.setLong(1, imgurId);
@@ -299,11 +396,13 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
                     "T.discordName, " +
                     "T.discordTag, " +
                     "P.isAdmin, " +
-                    "P.taglists " +
+                    "PT.taglistId " +
                 "FROM Tracker as T " +
-                "INNER JOIN Permission as P ON T.id = P.trackerId;";
+                "INNER JOIN Permission as P ON T.id = P.trackerId " +
+                "LEFT JOIN PermissionTaglist as PT ON T.id = PT.trackerId " +
+                "ORDER BY T.id;";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
@@ -324,7 +423,10 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
     {
         ArrayList<Tracker> trackers = new ArrayList<>();
 
-        while (rs.next())
+        // the rows are ordered by tracker, with one row for every permission taglist.
+        boolean hasRow = rs.next();
+
+        while (hasRow)
         {
             long id = rs.getLong(1);
             long imgurId = rs.getLong(2);
@@ -333,7 +435,19 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
             String discordName = rs.getString(5);
             String discordTag = rs.getString(6);
             int permType = rs.getInt(7);
-            String permTaglists = rs.getString(8);
+
+            ArrayList<Long> permTaglists = new ArrayList<>();
+
+            do
+            {
+                long taglistId = rs.getLong(8);
+
+                if (!rs.wasNull())
+                    permTaglists.add(taglistId);
+
+                hasRow = rs.next();
+            }
+            while (hasRow && rs.getLong(1) == id);
 
             // initiate the permissions and create the tagger
             TrackerPermissions perm = new TrackerPermissions(permType, permTaglists);
@@ -364,15 +478,7 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
         if (imgurId < 0)
             return null;
 
-        ArrayList<Tracker> trackers = handler().getAll();
-
-        for (Tracker t : trackers)
-        {
-            if (t.getImgurId() == imgurId)
-                return t;
-        }
-
-        return null;
+        return handler().getByKey(handler().imgurIdKey, imgurId);
     }
 
 
@@ -391,17 +497,7 @@ public class TrackerHandler extends LocalStorageHandler<Tracker>
 
         String trimId = discordId.trim();
 
-        ArrayList<Tracker> trackers = handler().getAll();
-
-        for (Tracker t : trackers)
-        {
-            String tDid = t.getDiscordId();
-
-            if (tDid.equals(trimId))
-                return t;
-        }
-
-        return null;
+        return handler().getByKey(handler().discordIdKey, trimId);
     }
 
 
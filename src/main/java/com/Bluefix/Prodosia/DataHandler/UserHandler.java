@@ -23,11 +23,13 @@
 package com.Bluefix.Prodosia.DataHandler;
 
 
+import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 import com.Bluefix.Prodosia.DataType.User.User;
 import com.Bluefix.Prodosia.DataType.User.UserSubscription;
 import com.Bluefix.Prodosia.GUI.GuiUpdate;
 import com.Bluefix.Prodosia.SQLite.SqlBuilder;
+import com.Bluefix.Prodosia.SQLite.SqlCursor;
 import com.Bluefix.Prodosia.SQLite.SqlDatabase;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
@@ -40,6 +42,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 
 /**
@@ -69,6 +74,120 @@ public class UserHandler extends LocalStorageHandler<User>
     {
         super(false);
         this.isGuiUpdate = true;
+        this.subscribers = new SubscriberIndex(() -> dbGetUsers(false));
+
+        // the subscriber index is only updated once a change was committed.
+        addListener(new ChangeListener<User>()
+        {
+            @Override
+            public void itemSet(User oldItem, User newItem)
+            {
+                try
+                {
+                    subscribers.set(newItem);
+                }
+                catch (SQLException e)
+                {
+                    e.printStackTrace();
+                    subscribers.invalidate();
+                }
+            }
+
+            @Override
+            public void itemRemoved(User item)
+            {
+                try
+                {
+                    subscribers.remove(item);
+                }
+                catch (SQLException e)
+                {
+                    e.printStackTrace();
+                    subscribers.invalidate();
+                }
+            }
+
+            @Override
+            public void itemsReloaded(List<User> items)
+            {
+                subscribers.invalidate();
+            }
+        });
+    }
+
+    //endregion
+
+    //region Subscriber index
+
+    /**
+     * Index that maps every taglist to its subscribers.
+     */
+    private SubscriberIndex subscribers;
+
+    /**
+     * Retrieve all users that should be tagged for the tag request.
+     *
+     * Only the subscribers of the taglists in the tag request are considered.
+     * @param tr The tag request.
+     * @return All users that are part of the tag request.
+     */
+    public static ArrayList<User> getUsersForTagRequest(BaseTagRequest tr) throws SQLException
+    {
+        return handler().subscribers.getSubscribers(tr);
+    }
+
+    /**
+     * Retrieve the imgur names of all users that should be tagged for the tag request.
+     *
+     * Large tag requests are resolved in parallel, the order of the names is the
+     * same regardless.
+     * @param tr The tag request.
+     * @param mentioned The lower case names of the users that were already mentioned.
+     * @return The imgur names of all users that are part of the tag request and were not mentioned yet.
+     */
+    public static ArrayList<String> getUsernamesForTagRequest(BaseTagRequest tr, Set<String> mentioned) throws SQLException
+    {
+        return handler().subscribers.getSubscriberNames(tr, mentioned);
+    }
+
+    /**
+     * Remove all subscriptions to the taglist from the subscriber index, once their
+     * removal from the database was committed. Requires a transaction.
+     * @param t The taglist that was removed.
+     */
+    void clearTaglist(Taglist t)
+    {
+        afterCommit(new SqlBuilder.TransactionListener()
+        {
+            @Override
+            public void committed()
+            {
+                try
+                {
+                    subscribers.removeTaglist(t.getId());
+                }
+                catch (SQLException e)
+                {
+                    e.printStackTrace();
+                    subscribers.invalidate();
+                }
+            }
+
+            @Override
+            public void rolledBack()
+            {
+            }
+        });
+    }
+
+    /**
+     * Force the handler to refresh from its database contents.
+     */
+    @Override
+    public void refresh() throws SQLException
+    {
+        subscribers.invalidate();
+        super.refresh();
     }
 
     //endregion
@@ -139,7 +258,7 @@ public class UserHandler extends LocalStorageHandler<User>
     @Override
     ArrayList<User> getAllItems() throws SQLException
     {
-        return dbGetUsers();
+        return dbGetUsers(true);
     }
 
     //endregion
@@ -152,45 +271,118 @@ public class UserHandler extends LocalStorageHandler<User>
         if (u == null)
             return null;
 
-        User oldUser = dbGetUser(u.getImgurId());
+        // the old user is replaced within a single transaction.
+        User oldUser;
+
+        SqlBuilder.beginTransaction();
 
-        // if there was an old user, replace it with the new one.
-        dbRemoveUser(oldUser);
+        try
+        {
+            oldUser = dbGetUser(u.getImgurId());
 
-        // first insert the user with its data and retrieve its user id
-        String query0 =
-                "INSERT INTO User " +
-                "(name, imgurId) " +
-                "VALUES (?,?);";
+            // insert or update the user, which keeps its user id stable.
+            String query0 =
+                    "INSERT INTO User " +
+                    "(name, imgurId) " +
+                    "VALUES (?,?) " +
+                    "ON CONFLICT(imgurId) DO UPDATE SET " +
+                    "name = excluded.name;";
 
-        PreparedStatement prep0 = SqlDatabase.getStatement(query0);
-        prep0.setString(1, u.getImgurName());
-        prep0.setLong(2, u.getImgurId());
+            PreparedStatement prep0 = SqlDatabase.getStatement(query0);
+            prep0.setString(1, u.getImgurName());
+            prep0.setLong(2, u.getImgurId());
 
-        long userIndex = SqlDatabase.getAffectedRow(prep0);
+            SqlDatabase.execute(prep0);
 
-        assert(prep0.isClosed());
+            assert(prep0.isClosed());
+
+            long userIndex = getUserId(u);
+
+            if (userIndex < 0)
+                throw new SQLException("SqlDatabase exception: The user could not be stored");
+
+            // only write the user-subscriptions that actually changed.
+            dbSetUserSubscriptions(userIndex, oldUser, u);
+        }
+        catch (Exception e)
+        {
+            SqlBuilder.rollbackTransaction();
+            throw e;
+        }
 
-        // now that we know the user-id, we can start inserting the user-subscriptions.
+        SqlBuilder.commitTransaction();
+
+        return oldUser;
+    }
+
+    /**
+     * Update the user-subscriptions of a user, based on the differences with its old subscriptions.
+     * @param userIndex The user id.
+     * @param oldUser The user as it was stored in the database, or null if it did not exist.
+     * @param u The new user.
+     */
+    private static void dbSetUserSubscriptions(long userIndex, User oldUser, User u) throws SQLException
+    {
+        // map the old subscriptions by their taglist id.
+        HashMap<Long, UserSubscription> oldSubscriptions = new HashMap<>();
+
+        if (oldUser != null)
+        {
+            for (UserSubscription us : oldUser.getSubscriptions())
+                oldSubscriptions.put(us.getTaglist().getId(), us);
+        }
+
+        SqlBuilder sb = SqlBuilder.Builder();
+        boolean hasChanges = false;
+
+        // insert or update all new and changed subscriptions.
         for (UserSubscription us : u.getSubscriptions())
         {
-            String query2 =
+            long taglistId = us.getTaglist().getId();
+            UserSubscription oldSubscription = oldSubscriptions.remove(taglistId);
+
+            if (    oldSubscription != null &&
+                    oldSubscription.getDbRating() == us.getDbRating() &&
+                    Objects.equals(oldSubscription.getFilters(), us.getFilters()))
+            {
+                continue;
+            }
+
+            String query0 =
                     "INSERT INTO UserSubscription " +
                     "(userId, taglistId, ratings, filters) " +
-                    "VALUES (?,?,?,?);";
+                    "VALUES (?,?,?,?) " +
+                    "ON CONFLICT(userId, taglistId) DO UPDATE SET " +
+                    "ratings = excluded.ratings, " +
+                    "filters = excluded.filters;";
+
+            PreparedStatement prep0 = SqlDatabase.getStatement(query0);
+            prep0.setLong(1, userIndex);
+            prep0.setLong(2, taglistId);
+            prep0.setInt(3, us.getDbRating());
+            prep0.setString(4, us.getFilters());
+
+            sb.execute(prep0);
+            hasChanges = true;
+        }
 
-            PreparedStatement prep2 = SqlDatabase.getStatement(query2);
-            prep2.setLong(1, userIndex);
-            prep2.setLong(2, us.getTaglist().getId());
-            prep2.setString(3, us.getDbRating());
-            prep2.setString(4, us.getFilters());
+        // delete the subscriptions that no longer exist.
+        for (Long taglistId : oldSubscriptions.keySet())
+        {
+            String query1 =
+                    "DELETE FROM UserSubscription " +
+                    "WHERE userId = ? AND taglistId = ?;";
 
-            SqlDatabase.execute(prep2);
+            PreparedStatement prep1 = SqlDatabase.getStatement(query1);
+            prep1.setLong(1, userIndex);
+            prep1.setLong(2, taglistId);
 
-            assert(prep2.isClosed());
+            sb.execute(prep1);
+            hasChanges = true;
         }
 
-        return oldUser;
+        if (hasChanges && sb.commit() == null)
+            throw new SQLException("SqlDatabase exception: The user-subscriptions could not be stored");
     }
 
     private static void dbRemoveUser(User u) throws SQLException
@@ -242,23 +434,8 @@ public class UserHandler extends LocalStorageHandler<User>
 
         PreparedStatement prep = SqlDatabase.getStatement(query);
         prep.setLong(1, imgurId);
-        ArrayList<ResultSet> result = SqlDatabase.query(prep);
-
-        if (result.size() != 1)
-            throw new SQLException("SqlDatabase exception: Expected result size did not match (was " + result.size() + ")");
 
-        ResultSet rs = result.get(0);
-
-        // parse the users and return
-        ArrayList<User> parsedUsers = parseUsers(rs);
-
-        prep.close();
-        assert(prep.isClosed());
-
-        if (parsedUsers.isEmpty())
-            return null;
-
-        return parsedUsers.get(0);
+        return dbGetFirstUser(prep);
     }
 
 
@@ -279,35 +456,60 @@ public class UserHandler extends LocalStorageHandler<User>
                         "US.filters " +
                         "FROM User as U " +
                         "INNER JOIN UserSubscription as US ON U.id = US.userId " +
-                        "WHERE U.name = ?;";
+                        "WHERE U.name = ? " +
+                        "ORDER BY U.id;";
 
         PreparedStatement prep = SqlDatabase.getStatement(query);
         prep.setString(1, imgurName);
-        ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
-        if (result.size() != 1)
-            throw new SQLException("SqlDatabase exception: Expected result size did not match (was " + result.size() + ")");
-
-        ResultSet rs = result.get(0);
-
-        // parse the users and return
-        ArrayList<User> parsedUsers = parseUsers(rs);
-
-        prep.close();
-        assert(prep.isClosed());
+        return dbGetFirstUser(prep);
+    }
 
-        if (parsedUsers.isEmpty())
-            return null;
+    /**
+     * Retrieve the first user from the query.
+     * @param prep The query, ordered by user id.
+     * @return The first user, or null if the query had no results.
+     */
+    private static User dbGetFirstUser(PreparedStatement prep) throws SQLException
+    {
+        try (SqlCursor<User> cursor = dbOpenCursor(prep))
+        {
+            if (!cursor.hasNext())
+                return null;
 
-        return parsedUsers.get(0);
+            return cursor.next();
+        }
     }
 
 
+    /**
+     * Retrieve all users from the database.
+     * @param useReader True iff a reader connection may be used. The writer connection
+     *                  waits for any pending transaction, which ensures that no
+     *                  uncommitted changes are missed.
+     * @return All users.
+     */
+    private static ArrayList<User> dbGetUsers(boolean useReader) throws SQLException
+    {
+        ArrayList<User> users = new ArrayList<>();
+
+        try (SqlCursor<User> cursor = dbOpenUsers(useReader, "U.id"))
+        {
+            while (cursor.hasNext())
+                users.add(cursor.next());
+        }
 
+        return users;
+    }
 
-    private static ArrayList<User> dbGetUsers() throws SQLException
+    /**
+     * Open a cursor over all users with their respective usersubscription data.
+     * @param useReader True iff a reader connection may be used.
+     * @param order The columns by which the users are ordered. The last column should be the user id.
+     * @return A cursor over all users.
+     */
+    private static SqlCursor<User> dbOpenUsers(boolean useReader, String order) throws SQLException
     {
-        // select all users with their respective usersubscription data.
         String query =
                 "SELECT U.id, " +
                         "U.name, " +
@@ -316,111 +518,62 @@ public class UserHandler extends LocalStorageHandler<User>
                         "US.ratings, " +
                         "US.filters " +
                 "FROM User as U " +
-                "INNER JOIN UserSubscription as US ON U.id = US.userId;";
+                "INNER JOIN UserSubscription as US ON U.id = US.userId " +
+                "ORDER BY " + order + ";";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = (useReader ?
+                SqlDatabase.getReadStatement(query) :
+                SqlDatabase.getStatement(query));
+
+        return dbOpenCursor(prep);
+    }
+
+    /**
+     * Execute the query and open a cursor over its users.
+     * @param prep The query, in which the rows of each user are consecutive.
+     * @return A cursor over the users.
+     */
+    private static SqlCursor<User> dbOpenCursor(PreparedStatement prep) throws SQLException
+    {
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
 
         if (result.size() != 1)
             throw new SQLException("SqlDatabase exception: Expected result size did not match (was " + result.size() + ")");
 
-        ResultSet rs = result.get(0);
-
-        // parse the users and return
-        ArrayList<User> parsedUsers = parseUsers(rs);
-
-        prep.close();
-        assert(prep.isClosed());
-
-        return parsedUsers;
+        return new UserCursor(result.get(0));
     }
 
-    private static ArrayList<User> parseUsers(ResultSet rs) throws SQLException
+    /**
+     * Cursor that parses a user from its consecutive usersubscription rows.
+     */
+    private static class UserCursor extends SqlCursor<User>
     {
-        HashMap<Long, HashSet<UserSubscription>> subMap = new HashMap<>();
-        HashMap<Long, DbUserData> userMap = new HashMap<>();
+        private UserCursor(ResultSet rs) throws SQLException
+        {
+            super(rs);
+        }
 
-        // parse all available users and their respective subscriptions.
-        while (rs.next())
+        @Override
+        protected User parse(ResultSet rs) throws SQLException
         {
             long userId = rs.getLong(1);
+            String imgurName = rs.getString(2);
+            long imgurId = rs.getLong(3);
 
-            // if this is the first time reading the user, parse the DbUserData
-            if (!userMap.containsKey(userId))
-            {
-                String imgurName = rs.getString(2);
-                long imgurId = rs.getLong(3);
-
-                userMap.put(userId, new DbUserData(imgurName, imgurId));
-            }
-
-            // retrieve the Arraylist for the usersubscription if it existed.
-            HashSet<UserSubscription> arrSub = subMap.get(userId);
+            HashSet<UserSubscription> subscriptions = new HashSet<>();
 
-            // if it did not exist, create one and add it to the map.
-            if (arrSub == null)
+            // add the subscription data of all consecutive rows of the user.
+            do
             {
-                arrSub = new HashSet<>();
-                subMap.put(userId, arrSub);
-            }
+                long taglistId = rs.getLong(4);
+                int ratings = rs.getInt(5);
+                String filters = rs.getString(6);
 
-            // add the subscription data to the arraylist.
-            long taglistId = rs.getLong(4);
-            String ratings = rs.getString(5);
-            String filters = rs.getString(6);
-
-            arrSub.add(new UserSubscription(taglistId, ratings, filters));
-        }
-
-        // close the resultset
-        rs.close();
-
-
-        // parse the user list
-        ArrayList<User> finalList = new ArrayList<>();
-
-        for (Long key : userMap.keySet())
-        {
-            // get the user data and subscription data and join them.
-            DbUserData ud = userMap.get(key);
-            HashSet<UserSubscription> aus = subMap.get(key);
-
-            if (ud == null || aus == null)
-            {
-                // Perhaps show a warning to the user. Non-critical, but not supposed to happen and might indicate
-                // database corruption.
-                continue;
+                subscriptions.add(new UserSubscription(taglistId, ratings, filters));
             }
+            while (nextRow() && rs.getLong(1) == userId);
 
-            finalList.add(new User(ud.imgurName, ud.imgurId, aus));
-        }
-
-        return finalList;
-    }
-
-
-    /**
-     * Small struct to temporarily store user data while we are reading out the database.
-     */
-    private static class DbUserData
-    {
-        private String imgurName;
-        private long imgurId;
-
-        public DbUserData(String imgurName, long imgurId)
-        {
-            this.imgurName = imgurName;
-            this.imgurId = imgurId;
-        }
-
-        public String getImgurName()
-        {
-            return imgurName;
-        }
-
-        public long getImgurId()
-        {
-            return imgurId;
+            return new User(imgurName, imgurId, subscriptions);
         }
     }
 
@@ -455,7 +608,10 @@ public class UserHandler extends LocalStorageHandler<User>
 
         // if the user was not found, return -1
         if (!rs.next())
+        {
+            rs.close();
             return -1;
+        }
 
         long value = rs.getLong(1);
 
@@ -470,6 +626,40 @@ public class UserHandler extends LocalStorageHandler<User>
     //endregion
 
 
+    //region Streaming
+
+    /**
+     * Perform the action for every user, ordered by their user id.
+     *
+     * The users are read from the database one at a time, rather than
+     * loading all users in memory at once.
+     * @param action The action to perform for every user.
+     */
+    public static void forEachUser(SqlCursor.Action<? super User> action) throws Exception
+    {
+        try (SqlCursor<User> cursor = dbOpenUsers(true, "U.id"))
+        {
+            cursor.forEachRemaining(action);
+        }
+    }
+
+    /**
+     * Perform the action for every user, ordered alphabetically by their Imgur name.
+     *
+     * The users are read from the database one at a time, rather than
+     * loading all users in memory at once.
+     * @param action The action to perform for every user.
+     */
+    public static void forEachUserAlphabetically(SqlCursor.Action<? super User> action) throws Exception
+    {
+        try (SqlCursor<User> cursor = dbOpenUsers(true, "U.name, U.id"))
+        {
+            cursor.forEachRemaining(action);
+        }
+    }
+
+    //endregion
+
     //region Helper
 
     /**
@@ -485,7 +675,7 @@ public class UserHandler extends LocalStorageHandler<User>
             return dbGetUser(imgurId);
         }
 
-        ArrayList<User> users = handler().getAll();
+        List<User> users = handler().getAll();
 
         for (User u : users)
         {
@@ -509,7 +699,7 @@ public class UserHandler extends LocalStorageHandler<User>
             return dbGetUser(name);
         }
 
-        ArrayList<User> users = handler().getAll();
+        List<User> users = handler().getAll();
 
         for (User u : users)
         {
@@ -548,7 +738,7 @@ public class UserHandler extends LocalStorageHandler<User>
                         "FROM UserSubscription " +
                         "WHERE taglistId != ?);";
 
-        PreparedStatement prep = SqlDatabase.getStatement(query);
+        PreparedStatement prep = SqlDatabase.getReadStatement(query);
         prep.setLong(1, t.getId());
         prep.setLong(2, t.getId());
         ArrayList<ResultSet> result = SqlDatabase.query(prep);
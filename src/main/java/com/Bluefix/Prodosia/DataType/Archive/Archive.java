@@ -26,6 +26,7 @@ import com.Bluefix.Prodosia.DataHandler.TaglistHandler;
 import com.Bluefix.Prodosia.DataType.Comments.TagRequest.TagRequest;
 import com.Bluefix.Prodosia.DataType.Taglist.Rating;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
+import com.Bluefix.Prodosia.DataType.User.Filter;
 
 import java.sql.SQLException;
 import java.util.HashSet;
@@ -36,9 +37,18 @@ public class Archive
     private Taglist taglist;
     private String description;
     private String channelId;
-    private HashSet<Rating> ratings;
+
+    /**
+     * The bitmask of the ratings that are part of this archive.
+     */
+    private int ratings;
     private String filters;
 
+    /**
+     * The filters split into lower case words.
+     */
+    private String[] filterWords;
+
     //region Constructor
 
     /**
@@ -54,25 +64,41 @@ public class Archive
         this.taglist = taglist;
         this.description = description;
         this.channelId = channelId;
-        this.ratings = ratings;
+        this.ratings = Rating.toMask(ratings);
         this.filters = filters;
+        this.filterWords = Filter.tokenize(filters);
     }
 
     /**
-     * Load an Archi
+     * Load an Archive from the database.
      * @param taglistId
      * @param description
      * @param channelId
-     * @param ratings
+     * @param ratings The bitmask of the ratings.
      * @param filters
      */
-    public Archive(long taglistId, String description, String channelId, String ratings, String filters) throws SQLException
+    public Archive(long taglistId, String description, String channelId, int ratings, String filters) throws SQLException
     {
         this.taglist = TaglistHandler.getTaglistById(taglistId);
         this.description = description;
         this.channelId = channelId;
-        dbParseRatings(ratings);
+        this.ratings = ratings;
         this.filters = filters;
+        this.filterWords = Filter.tokenize(filters);
+    }
+
+    /**
+     * Load an Archive from an export.
+     * @param taglistId
+     * @param description
+     * @param channelId
+     * @param ratings The rating values, split by separators.
+     * @param filters
+     */
+    public Archive(long taglistId, String description, String channelId, String ratings, String filters) throws SQLException
+    {
+        this(taglistId, description, channelId, 0, filters);
+        exportParseRatings(ratings);
     }
 
     //endregion
@@ -110,7 +136,7 @@ public class Archive
 
     public HashSet<Rating> getRatings()
     {
-        return ratings;
+        return new HashSet<>(Rating.parseMask(ratings));
     }
 
     //endregion
@@ -118,14 +144,24 @@ public class Archive
 
     //region Database parsing
 
-    public String dbGetRatings()
+    /**
+     * Retrieve the ratings as they are stored in the database.
+     * @return The bitmask of the ratings.
+     */
+    public int dbGetRatings()
     {
-        if (ratings == null || ratings.isEmpty())
-            return "";
+        return ratings;
+    }
 
+    /**
+     * Retrieve the ratings as they are stored in an export.
+     * @return The rating values, split by separators.
+     */
+    public String exportGetRatings()
+    {
         StringBuilder sb = new StringBuilder();
 
-        for (Rating r : ratings)
+        for (Rating r : Rating.parseMask(ratings))
         {
             sb.append(r.getValue() + ";");
         }
@@ -133,21 +169,16 @@ public class Archive
         return sb.toString();
     }
 
-    private void dbParseRatings(String ratings)
+    private void exportParseRatings(String ratings)
     {
         String[] split = ratings.split(";");
 
-        if (split.length == 0)
-            return;
-
-        this.ratings = new HashSet<>();
-
         for (String s : split)
         {
             if (s == null || s.trim().isEmpty())
                 continue;
 
-            this.ratings.add(Rating.parseValue(Integer.parseInt(s)));
+            this.ratings |= Rating.parseValue(Integer.parseInt(s)).getMask();
         }
     }
 
@@ -169,13 +200,12 @@ public class Archive
 
         // next, check to see if the rating of the tagrequest is included with this archive.
         if (    this.taglist.hasRatings() &&
-                !this.ratings.contains(tagRequest.getRating()))
+                (this.ratings & tagRequest.getRating().getMask()) == 0)
                 return false;
 
         // if the archive has filters that the tag request contains, return false
-        if (    this.filters != null &&
-                !this.filters.trim().isEmpty() &&
-                this.filters.matches(tagRequest.getFilter()))
+        if (    filterWords.length > 0 &&
+                tagRequest.getCompiledFilter().matches(this.filters, filterWords))
             return false;
 
         // since all items have passed, this archive is part of the tag request.
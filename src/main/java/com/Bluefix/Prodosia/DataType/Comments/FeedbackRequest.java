@@ -60,6 +60,15 @@ public abstract class FeedbackRequest extends Thread implements ICommentRequest
         return output;
     }
 
+    /**
+     * Feedback requests are not stored, so their progress isn't kept either.
+     * @param commentId The id of the posted comment, -1 if posting it failed.
+     */
+    @Override
+    public void advanceCursor(long commentId)
+    {
+    }
+
     /**
      *
      * @param commentId
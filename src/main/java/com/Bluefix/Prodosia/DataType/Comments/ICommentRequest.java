@@ -53,6 +53,13 @@ public interface ICommentRequest
      */
     LinkedList<String> getComments();
 
+    /**
+     * Indicate that the next comment from `getComments` was posted. Requests that are
+     * stored keep track of their progress, so that posting can resume after a restart.
+     * @param commentId The id of the posted comment, -1 if posting it failed.
+     */
+    void advanceCursor(long commentId);
+
 
     /**
      * Indicate whether the entry deep-equals the other request.
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataType.Comments;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps track of how far the comments of a comment request were posted.
+ *
+ * The cursor is stored along with the request, so that `CommentExecution` can resume
+ * posting after a restart without retrieving the post comments again.
+ */
+public class PostingCursor
+{
+    /**
+     * The separator between the lines when they are stored in the database.
+     */
+    private static final String Separator = " ; ";
+
+    private List<String> lines;
+    private int posted;
+    private long lastCommentId;
+    private long nextEligible;
+
+    /**
+     * Create a new cursor for lines that still have to be posted.
+     * @param lines The lines that should be posted.
+     */
+    public PostingCursor(List<String> lines)
+    {
+        this(lines, 0, -1, 0);
+    }
+
+    /**
+     * Create a cursor, loaded in from the database.
+     * @param lines The lines that should be posted.
+     * @param posted The amount of lines that were already posted.
+     * @param lastCommentId The id of the last comment that was posted, -1 if unknown.
+     * @param nextEligible The moment in epoch-milliseconds at which the request may continue.
+     */
+    public PostingCursor(List<String> lines, int posted, long lastCommentId, long nextEligible)
+    {
+        this.lines = (lines == null ?
+                Collections.emptyList() :
+                Collections.unmodifiableList(new ArrayList<>(lines)));
+        this.posted = Math.max(0, Math.min(posted, this.lines.size()));
+        this.lastCommentId = lastCommentId;
+        this.nextEligible = nextEligible;
+    }
+
+    //region Getters and setters
+
+    public List<String> getLines()
+    {
+        return lines;
+    }
+
+    public int getPosted()
+    {
+        return posted;
+    }
+
+    public long getLastCommentId()
+    {
+        return lastCommentId;
+    }
+
+    public long getNextEligible()
+    {
+        return nextEligible;
+    }
+
+    public void setNextEligible(long nextEligible)
+    {
+        this.nextEligible = nextEligible;
+    }
+
+    //endregion
+
+    //region Cursor
+
+    /**
+     * Retrieve the lines that were not posted yet.
+     * @return A new list with the remaining lines.
+     */
+    public LinkedList<String> getRemaining()
+    {
+        return new LinkedList<>(lines.subList(posted, lines.size()));
+    }
+
+    /**
+     * Indicate whether all lines were posted.
+     */
+    public boolean isExhausted()
+    {
+        return posted >= lines.size();
+    }
+
+    /**
+     * Indicate that the next line was posted.
+     * @param commentId The id of the posted comment, -1 if posting it failed.
+     */
+    public void advance(long commentId)
+    {
+        if (isExhausted())
+            return;
+
+        posted++;
+
+        if (commentId >= 0)
+            lastCommentId = commentId;
+    }
+
+    //endregion
+
+    //region Database helper
+
+    /**
+     * Give a compact single-line string of the lines for storage in the database.
+     * Use `PostingCursor.parseLines` to revert this.
+     * @param lines The lines to be stored.
+     * @return The lines in a single string.
+     */
+    public static String joinLines(List<String> lines)
+    {
+        if (lines == null || lines.isEmpty())
+            return "";
+
+        StringBuilder output = new StringBuilder();
+
+        for (String s : lines)
+        {
+            output.append(s.replace(";", ";;") + Separator);
+        }
+
+        // complete the last separator
+        output.setLength(output.length() - Separator.length());
+
+        return output.toString();
+    }
+
+    /**
+     * Parse the lines that were stored with `PostingCursor.joinLines`.
+     * @param data The stored lines.
+     * @return The separate lines.
+     */
+    public static LinkedList<String> parseLines(String data)
+    {
+        LinkedList<String> items = new LinkedList<>();
+
+        if (data == null)
+            return items;
+
+        for (String s : data.split(Separator))
+        {
+            items.add(s.replace(";;", ";"));
+        }
+
+        return items;
+    }
+
+    //endregion
+}
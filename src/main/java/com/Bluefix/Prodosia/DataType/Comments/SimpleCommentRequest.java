@@ -41,6 +41,11 @@ public class SimpleCommentRequest implements ICommentRequest
     private long parentId;
     private LinkedList<String> comments;
 
+    /**
+     * The progress of posting the comments, created when it is first needed.
+     */
+    private PostingCursor cursor;
+
     /**
      * Create a simple comment request providing both the parent id and imgur Id
      * @param imgurId The imgur id of the post
@@ -189,9 +194,57 @@ public class SimpleCommentRequest implements ICommentRequest
     @Override
     public LinkedList<String> getComments()
     {
+        // skip the comments that were posted before a restart.
+        if (this.cursor != null)
+            return this.cursor.getRemaining();
+
         return comments;
     }
 
+    /**
+     * Retrieve the posting cursor of this request.
+     * @return The posting cursor.
+     */
+    public PostingCursor getCursor()
+    {
+        if (this.cursor == null)
+            this.cursor = new PostingCursor(this.comments);
+
+        return this.cursor;
+    }
+
+    /**
+     * Discard the posting cursor, so the request will be posted from its first comment again.
+     * Called when the stored cursor of the request is reset.
+     */
+    public void resetCursor()
+    {
+        this.cursor = null;
+    }
+
+    /**
+     * Indicate that the next comment of this request was posted.
+     *
+     * @param commentId The id of the posted comment, -1 if posting it failed.
+     */
+    @Override
+    public void advanceCursor(long commentId)
+    {
+        getCursor().advance(commentId);
+
+        // a request that wasn't stored can't be resumed anyways.
+        if (this.id < 0)
+            return;
+
+        try
+        {
+            SimpleCommentRequestStorage.handler().setCursor(this);
+        } catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Indicate whether the entry deep-equals the other request.
      *
@@ -251,17 +304,25 @@ public class SimpleCommentRequest implements ICommentRequest
 
     public static SimpleCommentRequest parse(long id, String imgurId, long parentId, String data)
     {
-        // split the data lines.
-        String[] split = data.split(" ; ");
-
-        LinkedList<String> items = new LinkedList<>();
+        return new SimpleCommentRequest(id, imgurId, parentId, PostingCursor.parseLines(data));
+    }
 
-        for (String s : split)
-        {
-            items.add(s.replace(";;", ";"));
-        }
+    /**
+     * Parse a comment request from the database, along with its posting cursor.
+     * @param id The id of the request.
+     * @param imgurId The imgur id of the post.
+     * @param parentId The parent id of the comment to reply to.
+     * @param data The lines, as stored by `dbParseComments`.
+     * @param posted The amount of lines that were already posted.
+     * @param lastCommentId The id of the last comment that was posted.
+     * @return The parsed comment request.
+     */
+    public static SimpleCommentRequest parse(long id, String imgurId, long parentId, String data, int posted, long lastCommentId)
+    {
+        SimpleCommentRequest scr = parse(id, imgurId, parentId, data);
+        scr.cursor = new PostingCursor(scr.comments, posted, lastCommentId, 0);
 
-        return new SimpleCommentRequest(id, imgurId, parentId, items);
+        return scr;
     }
 
     private String dbString;
@@ -273,26 +334,8 @@ public class SimpleCommentRequest implements ICommentRequest
      */
     public String dbParseComments()
     {
-        // if there were no comments, return empty.
-        if (this.comments == null || this.comments.isEmpty())
-            return "";
-
         if (dbString == null)
-        {
-
-            StringBuilder output = new StringBuilder();
-
-            for (String s : this.comments)
-            {
-                output.append(s.replace(";", ";;") + " ; ");
-            }
-
-            // complete the last separator
-            if (this.comments.size() > 0)
-                output.setLength(output.length() - 3);
-
-            dbString = output.toString();
-        }
+            dbString = PostingCursor.joinLines(this.comments);
 
         return dbString;
     }
@@ -25,9 +25,12 @@ package com.Bluefix.Prodosia.DataType.Comments.TagRequest;
 import com.Bluefix.Prodosia.DataHandler.TaglistHandler;
 import com.Bluefix.Prodosia.DataType.Taglist.Rating;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
+import com.Bluefix.Prodosia.DataType.User.Filter;
 import com.github.kskelm.baringo.model.Comment;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Objects;
 
@@ -43,12 +46,18 @@ public class BaseTagRequest
     private String filter;
     private boolean cleanComments;
 
+    /**
+     * The compiled filter, which is created the first time it is requested.
+     */
+    private volatile Filter compiledFilter;
+
     protected BaseTagRequest(BaseTagRequest btr)
     {
         this.taglists = btr.taglists;
         this.rating = btr.rating;
         this.filter = btr.filter;
         this.cleanComments = btr.cleanComments;
+        this.compiledFilter = btr.compiledFilter;
     }
 
 
@@ -64,14 +73,13 @@ public class BaseTagRequest
     }
 
 
-    public BaseTagRequest(String taglists, int rating, String filter, boolean cleanComments) throws SQLException
+    public BaseTagRequest(Collection<Long> taglistIds, int rating, String filter, boolean cleanComments) throws SQLException
     {
         this.taglists = new HashSet<>();
-        String[] tlArr = taglists.split(";");
 
-        for (String t : tlArr)
+        for (Long id : taglistIds)
         {
-            this.taglists.add(TaglistHandler.getTaglistById(Long.parseLong(t)));
+            this.taglists.add(TaglistHandler.getTaglistById(id));
         }
 
         if (this.taglists == null || this.taglists.isEmpty())
@@ -88,14 +96,14 @@ public class BaseTagRequest
         return taglists;
     }
 
-    public String getDbTaglists() throws SQLException
+    public ArrayList<Long> getDbTaglistIds() throws SQLException
     {
-        StringBuilder sb = new StringBuilder();
+        ArrayList<Long> ids = new ArrayList<>();
 
         for (Taglist t : taglists)
-            sb.append(t.getId() + ";");
+            ids.add(t.getId());
 
-        return sb.toString();
+        return ids;
     }
 
     public Rating getRating()
@@ -108,6 +116,23 @@ public class BaseTagRequest
         return filter;
     }
 
+    /**
+     * Retrieve the filter of this tag request in compiled form.
+     * @return The compiled filter.
+     */
+    public Filter getCompiledFilter()
+    {
+        Filter f = compiledFilter;
+
+        if (f == null)
+        {
+            f = Filter.compile(filter);
+            compiledFilter = f;
+        }
+
+        return f;
+    }
+
     public boolean isCleanComments()
     {
         return cleanComments;
@@ -143,6 +168,18 @@ public class BaseTagRequest
         return new TagRequest(null, parentComment, this);
     }
 
+    /**
+     * Parse a full Tag Request from the Base Tag Request, where the parent comment
+     * is only known by its id. The parent comment will be retrieved when it is needed.
+     * @param imgurId The imgur id of the post.
+     * @param parentId The id of the parent comment.
+     * @return
+     */
+    public TagRequest parseTagRequest(String imgurId, long parentId)
+    {
+        return new TagRequest(imgurId, parentId, this);
+    }
+
     /**
      * Parse a full Tag Request from the Base Tag Request.
      *
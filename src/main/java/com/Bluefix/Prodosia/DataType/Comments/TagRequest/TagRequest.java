@@ -26,12 +26,16 @@ import com.Bluefix.Prodosia.DataHandler.CommentDeletionStorage;
 import com.Bluefix.Prodosia.DataHandler.SimpleCommentRequestStorage;
 import com.Bluefix.Prodosia.DataHandler.TagRequestStorage;
 import com.Bluefix.Prodosia.DataType.Comments.ICommentRequest;
+import com.Bluefix.Prodosia.DataType.Comments.PostingCursor;
 import com.Bluefix.Prodosia.DataType.Comments.SimpleCommentRequest;
 import com.Bluefix.Prodosia.DataType.Taglist.Rating;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 import com.Bluefix.Prodosia.Exception.BaringoExceptionHelper;
 import com.Bluefix.Prodosia.Imgur.CommentHelper;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.PostCommentCache;
+import com.Bluefix.Prodosia.Imgur.Tagging.CommentExecution;
+import com.Bluefix.Prodosia.Imgur.Tagging.CommentTreeAnalysis;
 import com.Bluefix.Prodosia.Imgur.Tagging.TagRequestComments;
 import com.Bluefix.Prodosia.Logger.Logger;
 import com.github.kskelm.baringo.model.Comment;
@@ -41,6 +45,7 @@ import javax.security.auth.login.LoginException;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -99,13 +104,42 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
      * Create a new TagRequest object, loaded in from the database.
      * @param imgurId
      * @param parentId
-     * @param taglists
+     * @param taglistIds
      * @param rating
      * @param filters
      */
-    public TagRequest(String imgurId, long parentId, String taglists, int rating, String filters, boolean cleanComments) throws SQLException
+    public TagRequest(String imgurId, long parentId, Collection<Long> taglistIds, int rating, String filters, boolean cleanComments) throws SQLException
     {
-        super(taglists, rating, filters, cleanComments);
+        super(taglistIds, rating, filters, cleanComments);
+
+        if (imgurId != null)
+            this.imgurId = imgurId.trim();
+
+        this.parentId = parentId;
+
+        checkCreationConditions();
+        defaultValues();
+    }
+
+    /**
+     * Create a new TagRequest object along with its posting cursor, loaded in from the database.
+     * @param imgurId
+     * @param parentId
+     * @param taglistIds
+     * @param rating
+     * @param filters
+     * @param cursor The posting cursor, or null if the tag request wasn't started yet.
+     */
+    public TagRequest(String imgurId, long parentId, Collection<Long> taglistIds, int rating, String filters, boolean cleanComments, PostingCursor cursor) throws SQLException
+    {
+        this(imgurId, parentId, taglistIds, rating, filters, cleanComments);
+
+        this.cursor = cursor;
+    }
+
+    protected TagRequest(String imgurId, long parentId, BaseTagRequest btr)
+    {
+        super(btr);
 
         if (imgurId != null)
             this.imgurId = imgurId.trim();
@@ -191,7 +225,13 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
 
         if (this.parentComment == null)
         {
-            this.parentComment = ImgurManager.client().commentService().getComment(this.parentId);
+            // the parent is usually part of the post comments, which are needed anyways.
+            // When resuming from the posting cursor they aren't, so only the parent is retrieved.
+            if (this.imgurId != null && !this.imgurId.isEmpty() && !isResuming())
+                this.parentComment = PostCommentCache.handler().findComment(this.imgurId, this.parentId);
+
+            if (this.parentComment == null)
+                this.parentComment = ImgurManager.client().commentService().getComment(this.parentId);
         }
 
         return this.parentComment;
@@ -222,8 +262,18 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
 
     private List<Comment> lastKnownComments;
 
+    /**
+     * The analysis of `lastKnownComments`, which is reused until the comments are retrieved again.
+     */
+    private CommentTreeAnalysis lastKnownAnalysis;
+
     private int delay;
 
+    /**
+     * The progress of posting the comments that were last parsed, null if no comments were parsed yet.
+     */
+    private PostingCursor cursor;
+
     /**
      * Retrieve all comments that should be executed by this tag request.
      *
@@ -240,6 +290,10 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
                 isStarted = true;
                 delay = 0;
 
+                // continue where we left off before a restart.
+                if (cursor != null)
+                    return resume();
+
                 getParent();
                 Logger.logMessage("Starting tag on \"" + this.getImgurId() + "\"", Logger.Severity.INFORMATIONAL);
             }
@@ -270,8 +324,8 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
             if (delay == PostDelay)
             {
                 // retrieve the post comments
-                lastKnownComments = ImgurManager.client().galleryService().getItemComments(this.getImgurId(), Comment.Sort.Best);
-                LinkedList<String> trComments = TagRequestComments.parseCommentsForTagRequest(this, lastKnownComments);
+                retrieveComments();
+                LinkedList<String> trComments = TagRequestComments.parseCommentsForTagRequest(this, lastKnownAnalysis);
 
                 // if there were no more comments to be posted, the tag request is done.
                 if (trComments == null || trComments.isEmpty())
@@ -295,7 +349,7 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
             delay = PostDelay;
 
             // retrieve the post comments
-            lastKnownComments = ImgurManager.client().galleryService().getItemComments(this.getImgurId(), Comment.Sort.Best);
+            retrieveComments();
 
             // ensure that the parent comment is in the last-known comments.
             if (!CommentHelper.containsComment(lastKnownComments, getParentId()))
@@ -304,11 +358,18 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
                 return new LinkedList<>();
             }
 
-            LinkedList<String> trComments = TagRequestComments.parseCommentsForTagRequest(this, lastKnownComments);
+            LinkedList<String> trComments = TagRequestComments.parseCommentsForTagRequest(this, lastKnownAnalysis);
 
             // if there were no more comments to be posted, the tag request is done.
             if (trComments == null || trComments.isEmpty())
+            {
                 postIsComplete = true;
+            }
+            else
+            {
+                cursor = new PostingCursor(trComments);
+                storeCursor();
+            }
 
 
             return trComments;
@@ -334,6 +395,88 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
 
 
 
+    /**
+     * Resume the tag request from its posting cursor.
+     * @return The comments that were not posted yet.
+     */
+    private LinkedList<String> resume()
+    {
+        Logger.logMessage("Resuming tag on \"" + this.imgurId + "\"", Logger.Severity.INFORMATIONAL);
+
+        // the remaining comments are followed by the regular delay.
+        delay = PostDelay;
+
+        if (!cursor.isExhausted())
+            return cursor.getRemaining();
+
+        // if all comments were posted, continue the delay countdown.
+        long remaining = cursor.getNextEligible() - System.currentTimeMillis();
+        delay = (int)Math.max(0, Math.min(PostDelay,
+                Math.ceil(remaining / (double)CommentExecution.DefaultQueueDelay)));
+
+        return new LinkedList<>();
+    }
+
+    /**
+     * Indicate whether the tag request is posting comments from a posting cursor
+     * that was restored after a restart.
+     */
+    private boolean isResuming()
+    {
+        return cursor != null && !cursor.isExhausted() && lastKnownComments == null;
+    }
+
+    /**
+     * Retrieve the posting cursor of the tag request.
+     * @return The posting cursor, or null if no comments were parsed yet.
+     */
+    public PostingCursor getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * Indicate that the next comment of this request was posted.
+     *
+     * Once all comments were posted, the moment at which the post
+     * will be checked again is stored along with the cursor.
+     * @param commentId The id of the posted comment, -1 if posting it failed.
+     */
+    @Override
+    public void advanceCursor(long commentId)
+    {
+        if (cursor == null)
+            return;
+
+        cursor.advance(commentId);
+
+        if (cursor.isExhausted())
+            cursor.setNextEligible(System.currentTimeMillis() + PostDelay * (long)CommentExecution.DefaultQueueDelay);
+
+        storeCursor();
+    }
+
+    private void storeCursor()
+    {
+        try
+        {
+            TagRequestStorage.handler().setCursor(this);
+        } catch (Exception e)
+        {
+            // the cursor only speeds up resumption, so failing to store it isn't critical.
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Retrieve the comments of the post and analyze them in a single pass.
+     */
+    private void retrieveComments() throws BaringoApiException, IOException, URISyntaxException
+    {
+        lastKnownComments = PostCommentCache.handler().getComments(this.getImgurId());
+        lastKnownAnalysis = CommentTreeAnalysis.analyze(lastKnownComments);
+    }
+
     /**
      * Indicate whether the entry deep-equals the other request.
      *
@@ -398,7 +541,7 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
                 isCompleted = true;
 
                 // retrieve the amount of users that were posted.
-                int amount = TagRequestComments.findNumberOfMyMentions(lastKnownComments);
+                int amount = lastKnownAnalysis.getMyMentionCount();
 
                 // retrieve the actual tag comments and delete them if applicable.
                 if (this.isCleanComments())
@@ -471,10 +614,14 @@ public class TagRequest extends BaseTagRequest implements ICommentRequest
      */
     private void initiateCleanComments()
     {
+        // without any known comments, there is nothing to clean up.
+        if (lastKnownAnalysis == null)
+            return;
+
         // if the comment cleanup fails in any way, it should not affect application behavior.
         try
         {
-            List<Comment> tagComments = TagRequestComments.findMyTagComments(lastKnownComments);
+            List<Comment> tagComments = lastKnownAnalysis.getMyTagComments();
 
             for (Comment c : tagComments)
             {
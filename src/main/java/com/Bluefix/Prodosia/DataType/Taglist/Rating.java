@@ -22,6 +22,9 @@
 
 package com.Bluefix.Prodosia.DataType.Taglist;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 /**
  * The rating modifier for a post.
  */
@@ -68,5 +71,53 @@ package com.Bluefix.Prodosia.DataType.Taglist;
                 throw new IllegalArgumentException("This rating value was not recognized");
         }
     }
-}
 
+    //region Bitmask
+
+    /**
+     * Retrieve the bit that represents this rating in a bitmask.
+     * @return The bitmask of this rating.
+     */
+    public int getMask()
+    {
+        return 1 << value;
+    }
+
+    /**
+     * Encode a set of ratings as a bitmask.
+     * @param ratings The ratings, or null for no ratings.
+     * @return The bitmask that contains all ratings.
+     */
+    public static int toMask(Collection<Rating> ratings)
+    {
+        int mask = 0;
+
+        if (ratings == null)
+            return mask;
+
+        for (Rating r : ratings)
+            mask |= r.getMask();
+
+        return mask;
+    }
+
+    /**
+     * Decode a set of ratings from a bitmask. Unknown bits are ignored.
+     * @param mask The bitmask.
+     * @return The ratings that were contained in the bitmask.
+     */
+    public static EnumSet<Rating> parseMask(int mask)
+    {
+        EnumSet<Rating> ratings = EnumSet.noneOf(Rating.class);
+
+        for (Rating r : values())
+        {
+            if ((mask & r.getMask()) != 0)
+                ratings.add(r);
+        }
+
+        return ratings;
+    }
+
+    //endregion
+}
@@ -64,6 +64,17 @@ public class TrackerBookmark
         return lastCommentTime;
     }
 
+    /**
+     * Retrieve the imgur id of the tracker this bookmark belongs to.
+     *
+     * Unlike `getTracker()`, this is also available once the tracker was removed.
+     * @return The imgur id of the tracker.
+     */
+    public long getImgurId()
+    {
+        return imgurId;
+    }
+
     public Tracker getTracker() throws SQLException
     {
         return TrackerHandler.getTrackerByImgurId(this.imgurId);
@@ -26,6 +26,8 @@ import com.Bluefix.Prodosia.DataHandler.TaglistHandler;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Objects;
 
@@ -88,9 +90,9 @@ public class TrackerPermissions
     /**
      * Read a taglist from the database, instantiating it.
      * @param type The type of tracker
-     * @param taglists The taglists, split by separators.
+     * @param taglistIds The ids of the taglists.
      */
-    public TrackerPermissions(int type, String taglists) throws SQLException
+    public TrackerPermissions(int type, Collection<Long> taglistIds) throws SQLException
     {
         switch (type)
         {
@@ -105,16 +107,15 @@ public class TrackerPermissions
                 throw new IllegalArgumentException("The type was not recognized");
         }
 
-        String[] split = taglists.split(";");
         this.taglists = new HashSet<>();
 
-        for (String s : split)
+        for (Long id : taglistIds)
         {
-            // skip empty taglists.
-            if (s == null || s.isEmpty())
-                continue;
+            Taglist t = TaglistHandler.getTaglistById(id);
 
-            this.taglists.add(TaglistHandler.getTaglistById(Long.parseLong(s)));
+            // skip taglists that no longer exist.
+            if (t != null)
+                this.taglists.add(t);
         }
     }
 
@@ -138,16 +139,14 @@ public class TrackerPermissions
         return this.type.getValue();
     }
 
-    public String dbGetTaglists() throws SQLException
+    public ArrayList<Long> dbGetTaglistIds() throws SQLException
     {
-        StringBuilder sb = new StringBuilder();
+        ArrayList<Long> ids = new ArrayList<>();
 
         for (Taglist t : taglists)
-        {
-            sb.append(t.getId() + ";");
-        }
+            ids.add(t.getId());
 
-        return sb.toString();
+        return ids;
     }
 
 
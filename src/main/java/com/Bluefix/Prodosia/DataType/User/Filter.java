@@ -22,14 +22,37 @@
 
 package com.Bluefix.Prodosia.DataType.User;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Helper class for user filters.
+ *
+ * A filter of a tag request is compiled once, after which it can be matched against
+ * the pre-tokenized filter words of every subscription. A subscription is filtered
+ * if any of its words equals one of the filters of the tag request, ignoring case.
  */
 public class Filter
 {
+    private static final String PatternPrefix = "(^|\\s+)(?i)(";
+    private static final String PatternSuffix = ")($|\\s+).*";
+
+    /**
+     * Characters that indicate that a filter is not a plain word.
+     */
+    private static final String RegexCharacters = "\\.[]{}()<>*+-=!?^$|";
+
+    /**
+     * A filter that does not exclude anything.
+     */
+    public static final Filter None = new Filter(Collections.emptySet(), null);
 
+    //region Pattern
 
     public static String getPatternForFilters(Iterator<String> filters)
     {
@@ -62,4 +85,126 @@ public class Filter
         return sb.toString();
     }
 
+    //endregion
+
+    //region Compiled filter
+
+    /**
+     * The filter words in lower case.
+     */
+    private final Set<String> tokens;
+
+    /**
+     * The regular expression that is used if the pattern did not consist of plain words.
+     */
+    private final Pattern regex;
+
+    private Filter(Set<String> tokens, Pattern regex)
+    {
+        this.tokens = tokens;
+        this.regex = regex;
+    }
+
+    /**
+     * Compile the pattern of a tag request, as created by `getPatternForFilters`.
+     *
+     * If the pattern consists of plain words, it is compiled into a set of words.
+     * Otherwise the pattern is compiled as a regular expression.
+     * @param pattern The filter pattern.
+     * @return The compiled filter.
+     */
+    public static Filter compile(String pattern)
+    {
+        if (pattern == null || pattern.isEmpty())
+            return None;
+
+        if (pattern.startsWith(PatternPrefix) && pattern.endsWith(PatternSuffix))
+        {
+            String inner = pattern.substring(PatternPrefix.length(), pattern.length() - PatternSuffix.length());
+            HashSet<String> tokens = new HashSet<>();
+            boolean plain = !inner.isEmpty();
+
+            for (String t : inner.split("\\|", -1))
+            {
+                if (!isPlainWord(t))
+                {
+                    plain = false;
+                    break;
+                }
+
+                tokens.add(t.toLowerCase(Locale.ROOT));
+            }
+
+            if (plain)
+                return new Filter(tokens, null);
+        }
+
+        try
+        {
+            return new Filter(Collections.emptySet(), Pattern.compile(pattern));
+        }
+        catch (PatternSyntaxException e)
+        {
+            // a faulty pattern never matches, similar to the absence of a filter.
+            return None;
+        }
+    }
+
+    private static boolean isPlainWord(String s)
+    {
+        if (s.isEmpty())
+            return false;
+
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+
+            if (Character.isWhitespace(c) || RegexCharacters.indexOf(c) >= 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Split the filters of a subscription into separate lower case words.
+     * @param filters The filters, separated by whitespace.
+     * @return The filter words.
+     */
+    public static String[] tokenize(String filters)
+    {
+        if (filters == null)
+            return new String[0];
+
+        String trimmed = filters.trim();
+
+        if (trimmed.isEmpty())
+            return new String[0];
+
+        return trimmed.toLowerCase(Locale.ROOT).split("\\s+");
+    }
+
+    /**
+     * Returns true iff the subscription filters match with this filter, in which
+     * case the subscription should be excluded.
+     * @param filters The filters of the subscription.
+     * @param words The filter words of the subscription, as created by `tokenize`.
+     * @return True iff the filters match.
+     */
+    public boolean matches(String filters, String[] words)
+    {
+        // the pattern may match at any word of the subscription, not only the first.
+        if (regex != null)
+            return filters != null && regex.matcher(filters).find();
+
+        for (String w : words)
+        {
+            if (tokens.contains(w))
+                return true;
+        }
+
+        return false;
+    }
+
+    //endregion
 }
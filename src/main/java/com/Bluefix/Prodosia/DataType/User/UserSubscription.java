@@ -28,15 +28,26 @@ import com.Bluefix.Prodosia.DataType.Taglist.Rating;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 
 public class UserSubscription
 {
     private Taglist taglist;
-    private HashSet<Rating> ratings;
+
+    /**
+     * The bitmask of the ratings for which this user wishes to receive content.
+     */
+    private int ratings;
     private String filters;
 
+    /**
+     * The filters split into lower case words.
+     */
+    private String[] filterWords;
+
     /**
      * Create a new UserSubscription object.
      * @param taglist The taglist for which this subscription applies.
@@ -49,35 +60,48 @@ public class UserSubscription
             throw new IllegalArgumentException("Taglist can't be null");
 
         this.taglist = taglist;
-        this.ratings = ratings;
+        this.ratings = Rating.toMask(ratings);
         this.filters = filters;
+        this.filterWords = Filter.tokenize(filters);
     }
 
     /**
      * Parse a new UserSubscription object from the database.
      * @param taglistId The taglist id
-     * @param ratings The parsed rating values
+     * @param ratings The bitmask of the rating values
      * @param filters The filters
      */
-    public UserSubscription(long taglistId, String ratings, String filters) throws SQLException
+    public UserSubscription(long taglistId, int ratings, String filters) throws SQLException
     {
         this.taglist = TaglistHandler.getTaglistById(taglistId);
 
         if (this.taglist == null)
             throw new IllegalArgumentException("The taglist-id was not recognized.");
 
-        // parse the ratings and add them to the hashset.
+        this.ratings = ratings;
+        this.filters = filters;
+        this.filterWords = Filter.tokenize(filters);
+    }
+
+    /**
+     * Parse a new UserSubscription object from an export.
+     * @param taglistId The taglist id
+     * @param ratings The rating values, split by separators.
+     * @param filters The filters
+     */
+    public UserSubscription(long taglistId, String ratings, String filters) throws SQLException
+    {
+        this(taglistId, 0, filters);
+
+        // parse the ratings and add them to the bitmask.
         String[] split = ratings.split(";");
-        this.ratings = new HashSet<>();
         for (String s : split)
         {
             if (s == null || s.isEmpty())
                 continue;
 
-            this.ratings.add(Rating.parseValue(Integer.parseInt(s)));
+            this.ratings |= Rating.parseValue(Integer.parseInt(s)).getMask();
         }
-
-        this.filters = filters;
     }
 
 
@@ -99,14 +123,24 @@ public class UserSubscription
         this.taglist = taglist;
     }
 
-    public String getDbRating()
+    /**
+     * Retrieve the ratings as they are stored in the database.
+     * @return The bitmask of the ratings.
+     */
+    public int getDbRating()
     {
-        if (this.ratings == null)
-            return "";
+        return ratings;
+    }
 
+    /**
+     * Retrieve the ratings as they are stored in an export.
+     * @return The rating values, split by separators.
+     */
+    public String getExportRating()
+    {
         StringBuilder s = new StringBuilder();
 
-        for (Rating r : ratings)
+        for (Rating r : getRatings())
         {
             s.append(r.getValue() + ";");
         }
@@ -119,6 +153,15 @@ public class UserSubscription
         return filters;
     }
 
+    /**
+     * Retrieve the ratings for which this user wishes to receive content.
+     * @return An unmodifiable set with the ratings.
+     */
+    public Set<Rating> getRatings()
+    {
+        return Collections.unmodifiableSet(Rating.parseMask(this.ratings));
+    }
+
     /**
      * Return whether the specified user has the selected rating.
      * @param r the rating to check for.
@@ -130,7 +173,7 @@ public class UserSubscription
         if (!this.taglist.hasRatings())
             return true;
 
-        return this.ratings.contains(r);
+        return (this.ratings & r.getMask()) != 0;
     }
 
 
@@ -151,18 +194,15 @@ public class UserSubscription
         // this check is only used if the taglist incorporates ratings at all.
         if (this.taglist.hasRatings())
         {
-            if (    this.ratings == null ||
-                        (!this.ratings.contains(tr.getRating()) &&
-                        !this.ratings.contains(Rating.ALL)))
+            if ((this.ratings & (tr.getRating().getMask() | Rating.ALL.getMask())) == 0)
             {
                 return false;
             }
         }
 
         // finally check to see if any filters apply
-        if (    this.filters != null &&
-                !this.filters.trim().isEmpty() &&
-                this.filters.matches(tr.getFilter()))
+        if (    filterWords.length > 0 &&
+                tr.getCompiledFilter().matches(this.filters, filterWords))
         {
             return false;
         }
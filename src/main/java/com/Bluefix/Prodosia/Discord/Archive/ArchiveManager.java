@@ -201,7 +201,7 @@ public class ArchiveManager
      */
     private void update() throws SQLException
     {
-        ArrayList<Archive> archives = ArchiveHandler.handler().getAll();
+        List<Archive> archives = ArchiveHandler.handler().getAll();
 
         // if there are any archives in the map that were deleted, complete them
         HashSet<Archive> removal = new HashSet<>();
@@ -225,7 +225,7 @@ public class DiscordManager
 
             CommandInformation ci = new DiscordCommandInformation(t, event);
 
-            CommandRecognition.executeEntry(CommandPrefix.Type.DISCORD, ci, event.getContentRaw());
+            CommandRecognition.executeEntry(CommandPrefix.Type.DISCORD, ci, event.getIdLong(), event.getContentRaw());
         }
     }
 
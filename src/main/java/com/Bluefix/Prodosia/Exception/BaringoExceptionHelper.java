@@ -56,4 +56,14 @@ public class BaringoExceptionHelper
 
         return ex.getMessage().matches(pattern);
     }
+
+    /**
+     * Returns true iff the exception indicates that the rate limit was exceeded.
+     * @param ex The exception to check.
+     * @return True iff the exception indicates Too Many Requests (429). False otherwise.
+     */
+    public static boolean isRateLimited(BaringoApiException ex)
+    {
+        return ex.getHttpCode() == 429;
+    }
 }
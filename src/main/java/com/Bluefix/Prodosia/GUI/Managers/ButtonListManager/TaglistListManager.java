@@ -59,7 +59,7 @@ public class TaglistListManager extends ButtonListManager
     protected Iterable<String> listButtonItems() throws Exception
     {
         // retrieve the taglists and sort them.
-        ArrayList<Taglist> data = TaglistHandler.handler().getAll();
+        ArrayList<Taglist> data = new ArrayList<>(TaglistHandler.handler().getAll());
         data.sort(new TaglistComparator());
 
         // init the output and taglist map
@@ -61,7 +61,7 @@ public class TrackerListManager extends GuiListManager<Button>
     protected Button[] listItems() throws Exception
     {
         // retrieve the tracker data and sort is alphabetically. 
-        ArrayList<Tracker> data = TrackerHandler.handler().getAll();
+        ArrayList<Tracker> data = new ArrayList<>(TrackerHandler.handler().getAll());
         Collections.sort(data, new TrackerComparator());
 
 
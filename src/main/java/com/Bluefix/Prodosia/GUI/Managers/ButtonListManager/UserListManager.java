@@ -31,7 +31,7 @@ import com.Bluefix.Prodosia.GUI.User.EditUserWindow;
 import javafx.scene.control.Button;
 import javafx.scene.layout.VBox;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A GUI Manager that will keep track of a list of users.
@@ -64,7 +64,7 @@ public class UserListManager extends LimitedGuiListManager<Button>
     @Override
     protected Button[] listItems() throws Exception
     {
-        ArrayList<User> data = UserHandler.handler().getAll();
+        List<User> data = UserHandler.handler().getAll();
         Button[] buttons = new Button[data.size()];
 
         for (int i = 0; i < data.size(); i++)
@@ -49,7 +49,7 @@ public class TaglistClManager extends GuiCheckboxListManager
     @Override
     protected String[] listOptions() throws Exception
     {
-        ArrayList<Taglist> taglists = TaglistHandler.handler().getAll();
+        ArrayList<Taglist> taglists = new ArrayList<>(TaglistHandler.handler().getAll());
 
         if (taglists == null || taglists.size() <= 0)
             return null;
@@ -26,13 +26,14 @@ import com.Bluefix.Prodosia.DataHandler.CommentDeletionStorage;
 import com.Bluefix.Prodosia.Exception.BaringoExceptionHelper;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ApiDistribution;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.RateLimitObserver;
 import com.Bluefix.Prodosia.Module.ImgurIntervalRunner;
 import com.github.kskelm.baringo.model.Comment;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Module class for deleting the items provided in `CommentDeletionStorage`
@@ -116,6 +117,10 @@ public class CommentDeletionExecution extends ImgurIntervalRunner
                     }
                     catch (BaringoApiException ex)
                     {
+                        // if Imgur is rate limiting us, stop until the back-off has passed.
+                        if (RateLimitObserver.handler().notifyException(ex))
+                            break;
+
                         if (BaringoExceptionHelper.isNotFound(ex) ||
                                 BaringoExceptionHelper.isBadRequest(ex))
                             deletionDeletion.add(value);
@@ -135,7 +140,7 @@ public class CommentDeletionExecution extends ImgurIntervalRunner
             }
 
             // retrieve as many items from the Deletion Storage as our cycle permits.
-            ArrayList<Long> deletions = CommentDeletionStorage.handler().getAll();
+            List<Long> deletions = CommentDeletionStorage.handler().getAll();
 
             Iterator<Long> dIt = deletions.iterator();
 
@@ -149,6 +154,10 @@ public class CommentDeletionExecution extends ImgurIntervalRunner
                     ImgurManager.client().commentService().deleteComment(value);
                 } catch (BaringoApiException ex)
                 {
+                    // if Imgur is rate limiting us, retry the deletion once the back-off has passed.
+                    if (RateLimitObserver.handler().notifyException(ex))
+                        break;
+
                     if (    !BaringoExceptionHelper.isNotFound(ex) &&
                             !BaringoExceptionHelper.isBadRequest(ex))
                         ex.printStackTrace();
@@ -23,7 +23,8 @@
 package com.Bluefix.Prodosia.Imgur.CommentScanner;
 
 import com.Bluefix.Prodosia.Command.CommandRecognition;
-import com.Bluefix.Prodosia.DataHandler.CommentScannerStorage;
+import com.Bluefix.Prodosia.DataHandler.BookmarkWriter;
+import com.Bluefix.Prodosia.DataHandler.LocalStorageHandler;
 import com.Bluefix.Prodosia.DataHandler.TrackerHandler;
 import com.Bluefix.Prodosia.DataType.Command.CommandInformation;
 import com.Bluefix.Prodosia.DataType.Command.ImgurCommandInformation;
@@ -32,6 +33,7 @@ import com.Bluefix.Prodosia.DataType.Tracker.TrackerBookmark;
 import com.Bluefix.Prodosia.Exception.BaringoExceptionHelper;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ApiDistribution;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.RateLimitObserver;
 import com.Bluefix.Prodosia.Module.ImgurIntervalRunner;
 import com.Bluefix.Prodosia.Prefix.CommandPrefix;
 import com.github.kskelm.baringo.model.Account;
@@ -40,11 +42,16 @@ import com.github.kskelm.baringo.util.BaringoApiException;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * The Comment Scanner module takes the Trackers found in `TrackerHandler` and scans through the
  * comments until it finds the last known comment.
+ *
+ * Trackers that comment often are polled every cycle, whereas idle trackers are polled
+ * rarely (see `TrackerActivity`).
  */
 public class CommentScannerExecution extends ImgurIntervalRunner
 {
@@ -56,6 +63,11 @@ public class CommentScannerExecution extends ImgurIntervalRunner
      */
     public static int MaximumGetRequestsPerCycle = 20;
 
+    /**
+     * The maximum amount of tracker pages that are retrieved at the same time.
+     */
+    public static int FetchThreads = 4;
+
     //endregion
 
     //region Singleton and Constructor
@@ -81,6 +93,17 @@ public class CommentScannerExecution extends ImgurIntervalRunner
 
         trackerMap = new HashMap<>();
         requestCounter = 0;
+        trackers = new HashMap<>();
+        changedTrackers = new HashSet<>();
+        changes = new ConcurrentLinkedQueue<>();
+        isListening = false;
+        isLoaded = false;
+        pageFetcher = new PageFetcher(
+                (imgurName, page) -> ImgurManager.client().accountService().listComments(
+                        imgurName,
+                        Comment.Sort.Newest,
+                        page),
+                FetchThreads);
     }
 
     //endregion
@@ -145,37 +168,32 @@ public class CommentScannerExecution extends ImgurIntervalRunner
      */
     private HashMap<Long, QueueItem> trackerMap;
 
+    /**
+     * Retrieves the pages of the trackers in parallel.
+     */
+    private PageFetcher pageFetcher;
+
 
     /**
      * Add a tracker to the queue.
-     * Attempt to retrieve its bookmark from storage. If the bookmark couldn't be retrieved, create a
-     * new bookmark, costing 1 GET request.
+     * If its bookmark wasn't stored, create a new bookmark, costing 1 GET request.
      * @param tracker The tracker to be added.
-     * @return true iff 1 GET request was used to add this item. false otherwise.
+     * @param tb The stored bookmark of the tracker, or null if it wasn't stored.
      */
-    private boolean addItem(Tracker tracker) throws Exception
+    private void addItem(Tracker tracker, TrackerBookmark tb) throws Exception
     {
-        boolean usedGet = false;
-
-        // if there was an old tracker that is the same, complete it first.
-        trackerMap.remove(tracker.getImgurId());
-
-        TrackerBookmark tb = CommentScannerStorage.getBookmarkByImgurId(tracker.getImgurId());
-
         if (tb == null)
         {
             // since the tracker-bookmark wasn't known, parse it for the user.
             tb = getBookmarkForUser(tracker);
-            usedGet = true;
+            requestCounter++;
 
             // store the bookmark
-            CommentScannerStorage.handler().set(tb);
+            BookmarkWriter.handler().set(tb);
         }
 
         // add a default queue item
         trackerMap.put(tracker.getImgurId(), new QueueItem(tb));
-
-        return usedGet;
     }
 
 
@@ -185,79 +203,210 @@ public class CommentScannerExecution extends ImgurIntervalRunner
      */
     private void removeItem(Long imgurId) throws Exception
     {
-        trackerMap.remove(imgurId);
+        QueueItem q = trackerMap.remove(imgurId);
 
         // also complete it from the bookmark storage.
-        TrackerBookmark tb = CommentScannerStorage.getBookmarkByImgurId(imgurId);
-        CommentScannerStorage.handler().remove(tb);
-    }
-
-
-    private void updateQueueItem(long imgurId, QueueItem item)
-    {
-        trackerMap.remove(imgurId);
-        trackerMap.put(imgurId, item);
+        TrackerBookmark tb = (q == null ? BookmarkWriter.handler().getBookmarkByImgurId(imgurId) : q.getBookmark());
+        BookmarkWriter.handler().remove(tb);
     }
 
 
-
-
     /**
      * Refresh the queue by removing trackers that were deleted and
      * adding trackers that were added.
      *
-     * It is *highly* recommended to make the TrackerHandler retain its
-     * local storage because of how often it is accessed.
-     * @return The amount of GET requests that were executed
+     * Only the trackers that changed since the previous refresh are reconciled,
+     * as reported by the `TrackerHandler`.
      * @throws Exception
      */
     private synchronized void refreshQueue() throws Exception
     {
-        // retrieve all current trackers.
-        ArrayList<Tracker> trackers = new ArrayList<>(TrackerHandler.handler().getAll());
+        // the first refresh loads the trackers and starts listening to their changes.
+        listen();
+
+        // apply all changes to the trackers since the last refresh.
+        Runnable change;
+
+        while ((change = changes.poll()) != null)
+            change.run();
+
+        if (changedTrackers.isEmpty())
+            return;
 
-        // if any trackers in our queue were removed, complete them from the queue as well.
-        for (Long imgId : trackerMap.keySet())
+        // take the difference between the stored trackers and the queue.
+        ArrayList<Long> added = new ArrayList<>();
+        Iterator<Long> it = changedTrackers.iterator();
+
+        while (it.hasNext())
         {
-            Iterator<Tracker> tIt = trackers.iterator();
-            boolean occurenceFound = false;
+            Long imgurId = it.next();
 
-            while (tIt.hasNext() && !occurenceFound)
-            {
-                if (tIt.next().getImgurId() == imgId)
-                    occurenceFound = true;
-            }
+            boolean isStored = trackers.containsKey(imgurId);
+            boolean isQueued = trackerMap.containsKey(imgurId);
 
-            // if no occurence of the imgur id was found in the tracker-list, complete it from the queue.
-            if (!occurenceFound)
+            if (isStored && !isQueued)
             {
-                removeItem(imgId);
+                added.add(imgurId);
+                continue;
             }
+
+            // if the tracker was removed, complete it from the queue as well.
+            if (isQueued && !isStored)
+                removeItem(imgurId);
+
+            it.remove();
         }
 
-        // if any trackers weren't part of the queue, add them.
-        for (Tracker t : trackers)
+        if (added.isEmpty())
+            return;
+
+        // retrieve the bookmarks of all added trackers at once.
+        HashMap<Long, TrackerBookmark> bookmarks = BookmarkWriter.handler().getBookmarksByImgurIds(added);
+
+        for (Long imgurId : added)
         {
-            // if the tracker has no imgur id, skip it.
-            if (    t.getImgurName() == null ||
-                    t.getImgurName().trim().isEmpty() ||
-                    t.getImgurId() < 0)
+            TrackerBookmark tb = bookmarks.get(imgurId);
+
+            // trackers without bookmark wait for the next cycle if no requests remain.
+            if (tb == null && requestCounter >= MaximumGetRequestsPerCycle)
                 continue;
 
-            Set<Long> iSet = trackerMap.keySet();
+            addItem(trackers.get(imgurId), tb);
+            changedTrackers.remove(imgurId);
+        }
+    }
+
+    //endregion
+
+    //region Tracker changes
+
+    /**
+     * The trackers that can be scanned, mapped by their imgur id.
+     */
+    private HashMap<Long, Tracker> trackers;
+
+    /**
+     * The imgur ids of the trackers that changed and were not yet reconciled with the queue.
+     */
+    private HashSet<Long> changedTrackers;
+
+    /**
+     * The changes to the trackers that were not yet applied. The `TrackerHandler` notifies
+     * us from other threads, so the changes are applied by the scanner thread.
+     */
+    private ConcurrentLinkedQueue<Runnable> changes;
+
+    private boolean isListening;
+
+    /**
+     * Indicates whether the current trackers were loaded.
+     */
+    private boolean isLoaded;
+
+    /**
+     * Start listening to the changes of the trackers and load the current trackers.
+     */
+    private void listen() throws SQLException
+    {
+        if (isLoaded)
+            return;
+
+        if (!isListening)
+            addListener();
 
-            if (!iSet.contains(t.getImgurId()))
+        // any change that was made in the meantime is applied again afterwards, which has no effect.
+        trackersReloaded(TrackerHandler.handler().getAll());
+
+        isLoaded = true;
+    }
+
+    private void addListener()
+    {
+        TrackerHandler.handler().addListener(new LocalStorageHandler.ChangeListener<Tracker>()
+        {
+            @Override
+            public void itemSet(Tracker oldItem, Tracker newItem)
             {
-                // add the item to the queue.
-                if (addItem(t))
-                    requestCounter++;
+                changes.add(() -> trackerSet(oldItem, newItem));
+            }
 
-                if (requestCounter >= MaximumGetRequestsPerCycle)
-                    return;
+            @Override
+            public void itemRemoved(Tracker item)
+            {
+                changes.add(() -> trackerRemoved(item));
             }
+
+            @Override
+            public void itemsReloaded(List<Tracker> items)
+            {
+                changes.add(() -> trackersReloaded(items));
+            }
+        });
+
+        isListening = true;
+    }
+
+    /**
+     * Indicate whether the comments of the tracker can be scanned.
+     * @param t The tracker.
+     * @return true iff the tracker has an imgur account, false otherwise.
+     */
+    private static boolean isScannable(Tracker t)
+    {
+        return  t.getImgurName() != null &&
+                !t.getImgurName().trim().isEmpty() &&
+                t.getImgurId() >= 0;
+    }
+
+    /**
+     * A tracker was stored.
+     * @param oldItem The tracker that it replaced, or null.
+     * @param newItem The tracker that was stored.
+     */
+    private void trackerSet(Tracker oldItem, Tracker newItem)
+    {
+        if (oldItem != null)
+            trackerRemoved(oldItem);
+
+        if (isScannable(newItem))
+        {
+            trackers.put(newItem.getImgurId(), newItem);
+            changedTrackers.add(newItem.getImgurId());
         }
     }
 
+    /**
+     * A tracker was removed from the storage.
+     * @param item The tracker.
+     */
+    private void trackerRemoved(Tracker item)
+    {
+        if (trackers.remove(item.getImgurId()) != null)
+            changedTrackers.add(item.getImgurId());
+    }
+
+    /**
+     * The trackers were reloaded from the storage.
+     * @param items All trackers that are currently stored.
+     */
+    private void trackersReloaded(List<Tracker> items)
+    {
+        trackers.clear();
+
+        for (Tracker t : items)
+        {
+            if (isScannable(t))
+                trackers.put(t.getImgurId(), t);
+        }
+
+        // any tracker might have changed.
+        changedTrackers.addAll(trackerMap.keySet());
+        changedTrackers.addAll(trackers.keySet());
+    }
+
+    //endregion
+
+    //region Queue processing
 
     /**
      * Loop through the queue items.
@@ -269,12 +418,11 @@ public class CommentScannerExecution extends ImgurIntervalRunner
         if (trackerMap.isEmpty())
             return;
 
-        processQueue();
-
         // while the queue isn't done yet and there are still open requests, keep going.
         while (!queueIsDone() && requestCounter < MaximumGetRequestsPerCycle)
         {
-            processQueue();
+            if (!processQueue())
+                return;
         }
 
         // open the queue again.
@@ -289,27 +437,39 @@ public class CommentScannerExecution extends ImgurIntervalRunner
     }
 
     /**
-     * Process any entries in the queue
-     * @return The amount of requests that were used.
+     * Process any entries in the queue.
+     *
+     * The remaining requests of this cycle are handed out to the open queue items, one page each,
+     * starting with the most active trackers. These pages are retrieved in parallel, after which
+     * they are processed in queue order.
+     * @return true iff any pages were retrieved, false otherwise.
      */
-    private void processQueue() throws Exception
+    private boolean processQueue() throws Exception
     {
         // return if no requests were allowed
         if (requestCounter >= MaximumGetRequestsPerCycle)
-            return;
+            return false;
 
-        // loop through all the queue items and process them if they were still open.
-        for (QueueItem q : trackerMap.values())
+        // if Imgur is rate limiting us, wait for the next cycle.
+        if (RateLimitObserver.handler().millisUntilAllowed() > 0)
+            return false;
+
+        ArrayList<QueueItem> items = new ArrayList<>();
+        ArrayList<PageFetcher.Page> pages = new ArrayList<>();
+
+        // hand out the requests to all queue items that were still open, most active first.
+        ArrayList<QueueItem> queue = new ArrayList<>(trackerMap.values());
+        queue.sort(Comparator.comparingDouble(QueueItem::getPriority).reversed());
+
+        for (QueueItem q : queue)
         {
+            if (requestCounter >= MaximumGetRequestsPerCycle)
+                break;
+
             // if this queue-item had already reached its comment, skip it.
             if (q.isReached())
                 continue;
 
-            // retrieve the latest page and increment it.
-            int curPage = q.getPage();
-            q.incrementPage();
-
-            // retrieve the current page and parse its comments.
             Tracker t = q.getBookmark().getTracker();
 
             // if the tracker was invalidated for some reason, skip this phase.
@@ -317,85 +477,112 @@ public class CommentScannerExecution extends ImgurIntervalRunner
                 continue;
 
             requestCounter++;
-            List<Comment> trackerComments = null;
+            items.add(q);
+            pages.add(new PageFetcher.Page(t, q.getPage()));
+        }
 
-            try
-            {
-                trackerComments = ImgurManager.client().accountService().listComments(
-                        t.getImgurName(),
-                        Comment.Sort.Newest,
-                        curPage);
-            }
-            catch (BaringoApiException ex)
+        if (pages.isEmpty())
+            return false;
+
+        pageFetcher.fetch(pages);
+
+        for (int i = 0; i < pages.size(); i++)
+        {
+            processPage(items.get(i), pages.get(i));
+        }
+
+        return true;
+    }
+
+    /**
+     * Process a single retrieved page of a queue item.
+     * @param q The queue item.
+     * @param page The page that was retrieved for the queue item.
+     */
+    private void processPage(QueueItem q, PageFetcher.Page page) throws Exception
+    {
+        Tracker t = page.getTracker();
+        List<Comment> trackerComments = page.getComments();
+        Exception ex = page.getException();
+
+        if (ex != null)
+        {
+            // if Imgur is rate limiting us, retry this page once the back-off has passed.
+            if (RateLimitObserver.handler().notifyException(ex))
+                return;
+
+            // if the request returns a 404, update the tracker data.
+            if (ex instanceof BaringoApiException && BaringoExceptionHelper.isNotFound((BaringoApiException)ex))
             {
-                // if the request returns a 404, update the tracker data.
-                if (BaringoExceptionHelper.isNotFound(ex))
+                try
                 {
-                    try
-                    {
-                        Account acc = ImgurManager.client().accountService().getAccount(t.getImgurId());
-
-                        Tracker newTracker = new Tracker(
-                                t.getId(),
-                                acc.getUserName(),
-                                t.getImgurId(),
-                                t.getDiscordName(),
-                                t.getDiscordTag(),
-                                t.getDiscordId(),
-                                t.getPermissions());
-
-                        TrackerHandler.handler().update(t, newTracker);
-                        System.out.println("Updated Tracker \"" + t.getImgurName() + "\" -> \"" + newTracker.getImgurName() + "\"");
-                        t = newTracker;
-                    }
-                    catch (Exception e)
-                    {
-                        // ignore this.
-                    }
+                    Account acc = ImgurManager.client().accountService().getAccount(t.getImgurId());
+
+                    Tracker newTracker = new Tracker(
+                            t.getId(),
+                            acc.getUserName(),
+                            t.getImgurId(),
+                            t.getDiscordName(),
+                            t.getDiscordTag(),
+                            t.getDiscordId(),
+                            t.getPermissions());
+
+                    TrackerHandler.handler().update(t, newTracker);
+                    System.out.println("Updated Tracker \"" + t.getImgurName() + "\" -> \"" + newTracker.getImgurName() + "\"");
+                    t = newTracker;
+                }
+                catch (Exception e)
+                {
+                    // ignore this.
                 }
-            }
-            catch (Exception ex)
-            {
-                // a single failure should not impede functionality.
             }
 
-            if (trackerComments == null || trackerComments.isEmpty())
-            {
-                q.setReached();
-                continue;
-            }
+            // a single failure should not impede functionality.
+        }
 
-            // set the new bookmark for the queue-item.
-            Comment newestComment = trackerComments.get(0);
-            if (newestComment != null)
-                q.setNewBookmark(new TrackerBookmark(newestComment.getId(), newestComment.getCreatedAt(), t));
+        q.incrementPage();
 
-            // if any of the comments corresponded to the timestamp or id, set the queue-item as reached.
-            Iterator<Comment> cIt = trackerComments.iterator();
+        if (trackerComments == null || trackerComments.isEmpty())
+        {
+            q.setReached();
+            q.finishPoll();
+            return;
+        }
 
-            // Only let the application parse new comments.
-            LinkedList<Comment> newComments = new LinkedList<>();
+        // set the new bookmark for the queue-item.
+        Comment newestComment = trackerComments.get(0);
+        if (newestComment != null)
+            q.setNewBookmark(new TrackerBookmark(newestComment.getId(), newestComment.getCreatedAt(), t));
 
-            while (cIt.hasNext() && !q.isReached())
-            {
-                Comment c = cIt.next();
+        // if any of the comments corresponded to the timestamp or id, set the queue-item as reached.
+        Iterator<Comment> cIt = trackerComments.iterator();
 
-                if (!q.isBookmark(c))
-                    newComments.addFirst(c);
-            }
+        // Only let the application parse new comments.
+        LinkedList<Comment> newComments = new LinkedList<>();
 
-            // Let another class parse these comments.
-            for (Comment c : newComments)
-            {
-                CommandInformation ci = new ImgurCommandInformation(t, c);
+        while (cIt.hasNext() && !q.isReached())
+        {
+            Comment c = cIt.next();
 
-                CommandRecognition.executeEntry(CommandPrefix.Type.IMGUR, ci, c.getComment());
-            }
+            if (!q.isBookmark(c))
+                newComments.addFirst(c);
+        }
 
-            // if we have reached the maximum amount of allowed requests, return.
-            if (requestCounter >= MaximumGetRequestsPerCycle)
-                return;
+        // Let another class parse these comments.
+        int commands = 0;
+
+        for (Comment c : newComments)
+        {
+            CommandInformation ci = new ImgurCommandInformation(t, c);
+
+            if (CommandRecognition.executeEntry(CommandPrefix.Type.IMGUR, ci, c.getId(), c.getComment()))
+                commands++;
         }
+
+        q.addActivity(newComments.size(), commands);
+
+        if (q.isReached())
+            q.finishPoll();
     }
 
 
@@ -414,13 +601,19 @@ public class CommentScannerExecution extends ImgurIntervalRunner
 
 
     /**
-     * Open up all queue items again.
+     * Open up the queue items that are due for a poll again.
+     *
+     * Active trackers are due every cycle, whereas idle trackers are only opened
+     * once in a while (see `TrackerActivity`).
      */
     private void openQueue()
     {
+        long now = System.currentTimeMillis();
+
         for (QueueItem q : trackerMap.values())
         {
-            q.open();
+            if (q.isDue(now))
+                q.open();
         }
     }
 
@@ -449,11 +642,23 @@ public class CommentScannerExecution extends ImgurIntervalRunner
 
         private TrackerBookmark newBookmark;
 
+        /**
+         * The activity of the tracker, which decides how often it is polled.
+         */
+        private TrackerActivity activity;
+
+        /**
+         * The amount of new comments and commands found during the current poll.
+         */
+        private int comments;
+        private int commands;
+
         public QueueItem(TrackerBookmark bookmark)
         {
             this.bookmark = bookmark;
             this.reached = true;
             this.page = 0;
+            this.activity = new TrackerActivity();
         }
 
         public TrackerBookmark getBookmark()
@@ -508,8 +713,8 @@ public class CommentScannerExecution extends ImgurIntervalRunner
 
             newBookmark = null;
 
-            //update the bookmark for the user.
-            CommentScannerStorage.handler().set(bookmark);
+            // update the bookmark for the user, which is stored with the next flush.
+            BookmarkWriter.handler().set(bookmark);
 
         }
 
@@ -527,6 +732,39 @@ public class CommentScannerExecution extends ImgurIntervalRunner
         {
             this.reached = false;
             this.page = 0;
+            this.comments = 0;
+            this.commands = 0;
+        }
+
+        public boolean isDue(long now)
+        {
+            return activity.isDue(now);
+        }
+
+        public double getPriority()
+        {
+            return activity.getPriority();
+        }
+
+        /**
+         * Add the new comments and commands that were found on a page.
+         */
+        public void addActivity(int comments, int commands)
+        {
+            this.comments += comments;
+            this.commands += commands;
+        }
+
+        /**
+         * Indicate that the current poll has finished, which updates the activity of the tracker.
+         */
+        public void finishPoll()
+        {
+            activity.record(
+                    System.currentTimeMillis(),
+                    comments,
+                    commands,
+                    bookmark == null ? null : bookmark.getLastCommentTime());
         }
     }
 
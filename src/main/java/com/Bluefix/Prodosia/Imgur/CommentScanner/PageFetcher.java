@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.CommentScanner;
+
+import com.Bluefix.Prodosia.DataType.Tracker.Tracker;
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the comment pages of trackers on a bounded amount of threads.
+ *
+ * The Comment Scanner hands out the GET requests of a cycle as a batch of pages. The pages
+ * are retrieved in parallel, after which the scanner processes the results on its own thread
+ * in the order in which they were requested.
+ */
+class PageFetcher
+{
+    //region Variables and constructor
+
+    /**
+     * The amount of seconds an idle fetch thread is kept alive.
+     */
+    private static final long KeepAlive = 60;
+
+    /**
+     * Function that retrieves a single page with the newest comments of a user.
+     */
+    @FunctionalInterface
+    interface Fetcher
+    {
+        List<Comment> fetch(String imgurName, int page) throws BaringoApiException, IOException, URISyntaxException;
+    }
+
+    private final Fetcher fetcher;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create a new page fetcher.
+     * @param fetcher The function that retrieves a single page.
+     * @param threads The maximum amount of pages that are retrieved at the same time.
+     */
+    PageFetcher(Fetcher fetcher, int threads)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one fetch thread is required.");
+
+        this.fetcher = fetcher;
+
+        // the threads are only kept around while the scanner is busy.
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                KeepAlive, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r ->
+                {
+                    Thread t = new Thread(r, "CommentScanner-fetch");
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    //endregion
+
+    //region Fetching
+
+    /**
+     * Retrieve all the specified pages and wait until they are done.
+     *
+     * A failure for one page does not affect the others; it is stored in the page instead.
+     * @param pages The pages to retrieve.
+     */
+    void fetch(List<Page> pages)
+    {
+        ArrayList<Future<?>> futures = new ArrayList<>(pages.size());
+
+        for (Page p : pages)
+            futures.add(executor.submit(() -> p.retrieve(fetcher)));
+
+        for (int i = 0; i < futures.size(); i++)
+        {
+            try
+            {
+                futures.get(i).get();
+            }
+            catch (InterruptedException ex)
+            {
+                // give up on the pages that are still being retrieved.
+                for (int j = i; j < futures.size(); j++)
+                {
+                    futures.get(j).cancel(true);
+                    pages.get(j).interrupted();
+                }
+
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException ex)
+            {
+                // Page.retrieve catches its own exceptions.
+            }
+        }
+    }
+
+    //endregion
+
+    //region Page struct
+
+    /**
+     * A single page of comments for a tracker, together with the result of its retrieval.
+     */
+    static class Page
+    {
+        private final Tracker tracker;
+        private final int page;
+
+        private volatile List<Comment> comments;
+        private volatile Exception exception;
+
+        Page(Tracker tracker, int page)
+        {
+            this.tracker = tracker;
+            this.page = page;
+        }
+
+        private void retrieve(Fetcher fetcher)
+        {
+            try
+            {
+                comments = fetcher.fetch(tracker.getImgurName(), page);
+            }
+            catch (Exception ex)
+            {
+                exception = ex;
+            }
+        }
+
+        private void interrupted()
+        {
+            if (comments == null && exception == null)
+                exception = new InterruptedIOException("Interrupted while retrieving the comments.");
+        }
+
+        public Tracker getTracker()
+        {
+            return tracker;
+        }
+
+        public int getPage()
+        {
+            return page;
+        }
+
+        /**
+         * Retrieve the comments on this page.
+         * @return The comments, or null if they could not be retrieved.
+         */
+        public List<Comment> getComments()
+        {
+            return comments;
+        }
+
+        /**
+         * Retrieve the exception that occurred while retrieving this page.
+         * @return The exception, or null if the page was retrieved.
+         */
+        public Exception getException()
+        {
+            return exception;
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.CommentScanner;
+
+import java.util.Date;
+
+/**
+ * Keeps track of how active a tracker is on Imgur, so the Comment Scanner can poll
+ * active trackers often and idle trackers rarely.
+ *
+ * The activity is derived from the bookmark deltas of each poll: the amount of new comments
+ * that were found since the previous poll, how many of those were commands and how long ago
+ * the newest comment of the tracker was placed.
+ */
+class TrackerActivity
+{
+    //region Tweaking data
+
+    /**
+     * The minimum amount of milliseconds between two polls. Active trackers are polled every cycle.
+     */
+    static final long MinimumInterval = 0;
+
+    /**
+     * The maximum amount of milliseconds between two polls. Idle trackers are still polled once an hour.
+     */
+    static final long MaximumInterval = 60 * 60 * 1000;
+
+    /**
+     * The portion of the time since the newest comment that is waited before polling again.
+     */
+    static final double IdleFactor = 0.25;
+
+    /**
+     * The weight of the latest poll in the comment and command rates.
+     */
+    static final double Smoothing = 0.3;
+
+    /**
+     * How much more a command weighs than a regular comment.
+     */
+    static final double CommandWeight = 4.0;
+
+    private static final double HourMillis = 60 * 60 * 1000;
+
+    /**
+     * The minimum amount of time a poll is considered to span, to keep the rates within bounds.
+     */
+    private static final long MinimumSpan = 60 * 1000;
+
+    //endregion
+
+    //region Variables and constructor
+
+    /**
+     * The exponentially smoothed amount of comments per hour.
+     */
+    private double commentRate;
+
+    /**
+     * The exponentially smoothed amount of commands per hour.
+     */
+    private double commandRate;
+
+    /**
+     * The time of the last poll, or -1 if the tracker was never polled.
+     */
+    private long lastPoll;
+
+    /**
+     * The time at which the tracker should be polled again.
+     */
+    private long nextPoll;
+
+    TrackerActivity()
+    {
+        this.commentRate = 0;
+        this.commandRate = 0;
+        this.lastPoll = -1;
+        this.nextPoll = 0;
+    }
+
+    //endregion
+
+    //region Activity
+
+    /**
+     * Record a finished poll of the tracker.
+     * @param now The current time in milliseconds.
+     * @param comments The amount of new comments that were found since the previous poll.
+     * @param commands The amount of those comments that contained a command.
+     * @param newestComment The time of the newest comment of the tracker, or null if it is unknown.
+     */
+    void record(long now, int comments, int commands, Date newestComment)
+    {
+        // the first poll only finds the comments since the stored bookmark, which says little about the rate.
+        if (lastPoll >= 0)
+        {
+            double hours = Math.max(now - lastPoll, MinimumSpan) / HourMillis;
+
+            commentRate += Smoothing * (comments / hours - commentRate);
+            commandRate += Smoothing * (commands / hours - commandRate);
+        }
+
+        lastPoll = now;
+        nextPoll = now + interval(now, newestComment);
+    }
+
+    /**
+     * Indicate whether the tracker should be polled.
+     * @param now The current time in milliseconds.
+     * @return true iff the tracker is due for a poll, false otherwise.
+     */
+    boolean isDue(long now)
+    {
+        return now >= nextPoll;
+    }
+
+    /**
+     * Retrieve the priority of the tracker. Trackers with a higher priority are polled first.
+     * @return The weighted amount of comments and commands per hour.
+     */
+    double getPriority()
+    {
+        return commentRate + CommandWeight * commandRate;
+    }
+
+    /**
+     * Calculate the amount of milliseconds until the next poll.
+     *
+     * The longer the tracker has been quiet, the longer we wait. This is shortened further
+     * by the rate at which the tracker comments and places commands.
+     */
+    private long interval(long now, Date newestComment)
+    {
+        if (    newestComment == null ||
+                newestComment.getTime() == Long.MAX_VALUE)
+            return MaximumInterval;
+
+        double idle = Math.max(now - newestComment.getTime(), 0);
+        double interval = idle * IdleFactor / (1.0 + getPriority());
+
+        return Math.max(MinimumInterval, Math.min(MaximumInterval, (long)interval));
+    }
+
+    //endregion
+}
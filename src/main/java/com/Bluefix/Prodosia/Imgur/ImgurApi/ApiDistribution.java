@@ -39,7 +39,13 @@ package com.Bluefix.Prodosia.Imgur.ImgurApi;
  *  (0/1): subscriptions
  *    If the name of a user was not known, it will request the account base.
  *  (0/1): tag command
- *    If a parent-comment is created, the actual Comment must be retrieved by its ID.
+ *    If a parent-comment is created, it is retrieved along with the post comments.
+ *
+ *  The comments of a post are cached for a short while by `PostCommentCache`, so modules
+ *  that inspect the same post shortly after each other share a single GET request.
+ *
+ *  The module budgets below are the baseline. `RateLimitObserver` scales them with the
+ *  remaining credits that Imgur reports, and all modules back off on a 429 response.
  *
  *
  * Guaranteed cap usage:
@@ -78,4 +84,16 @@ public class ApiDistribution
      */
     public static final int SanitationModule = 50;
 
+
+    /**
+     * The combined hourly budget of the modules above.
+     */
+    public static final int HourlyBudget = CommentModule + DeletionModule + SanitationModule;
+
+
+    /**
+     * Comment posting uses 6 * 60 = 360 POST requests per hour at most.
+     */
+    public static final int PostModule = 360;
+
 }
@@ -29,6 +29,7 @@ import com.Bluefix.Prodosia.Exception.ExceptionHelper;
 import com.Bluefix.Prodosia.Module.ModuleManager;
 import com.Bluefix.Prodosia.Storage.KeyStorage;
 import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.Quota;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
 import java.io.IOException;
@@ -88,6 +89,17 @@ public class ImgurManager
         return client;
     }
 
+    /**
+     * Retrieve the quota of the current client without initializing it.
+     * @return The quota of the client, or null if no client exists yet.
+     */
+    static Quota currentQuota()
+    {
+        BaringoClient c = client;
+
+        return c == null ? null : c.getQuota();
+    }
+
     /**
      * Explicitly set the client.
      * @param client
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.ImgurApi;
+
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Short-lived cache for the comment trees of posts.
+ *
+ * Several modules retrieve the comments of the same post within a short time span. Every
+ * retrieval costs a GET request from the hourly budget (see `ApiDistribution`), so the
+ * comments are cached for a short while. Concurrent requests for the same post are
+ * coalesced into a single request.
+ *
+ * The entry of a post is invalidated whenever the bot posts a comment on it.
+ */
+public class PostCommentCache
+{
+    /**
+     * The default amount of milliseconds that the comments of a post are cached.
+     */
+    public static final long DefaultTimeToLive = 30 * 1000;
+
+    //region Singleton
+
+    private static PostCommentCache me;
+
+    public static PostCommentCache handler()
+    {
+        if (me == null)
+        {
+            me = new PostCommentCache(
+                    imgurId -> ImgurManager.client().galleryService().getItemComments(imgurId, Comment.Sort.Best),
+                    DefaultTimeToLive);
+        }
+
+        return me;
+    }
+
+    //endregion
+
+    //region Variables and constructor
+
+    /**
+     * Function that retrieves the comments of a post.
+     */
+    @FunctionalInterface
+    interface Fetcher
+    {
+        List<Comment> fetch(String imgurId) throws BaringoApiException, IOException, URISyntaxException;
+    }
+
+    /**
+     * The comments of a single post, which might still be in the process of being retrieved.
+     */
+    private static class Entry
+    {
+        private final CompletableFuture<List<Comment>> comments = new CompletableFuture<>();
+        private volatile long retrievedAt;
+    }
+
+    private final Fetcher fetcher;
+    private final long timeToLive;
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    PostCommentCache(Fetcher fetcher, long timeToLive)
+    {
+        this.fetcher = fetcher;
+        this.timeToLive = timeToLive;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    //endregion
+
+    //region Cache
+
+    /**
+     * Retrieve the comments of the specified post.
+     *
+     * If the comments were retrieved recently they are returned from the cache. If they
+     * are currently being retrieved by another thread, this method waits for that request.
+     * @param imgurId The imgur id of the post.
+     * @return The top-level comments of the post. This list should not be modified.
+     */
+    public List<Comment> getComments(String imgurId) throws BaringoApiException, IOException, URISyntaxException
+    {
+        while (true)
+        {
+            Entry e = entries.get(imgurId);
+
+            if (e != null)
+            {
+                // wait for the request that is in flight.
+                if (!e.comments.isDone())
+                    return await(e);
+
+                if (System.currentTimeMillis() - e.retrievedAt < timeToLive)
+                    return e.comments.getNow(null);
+
+                entries.remove(imgurId, e);
+                continue;
+            }
+
+            Entry created = new Entry();
+
+            // another thread might have started a request in the meantime.
+            if (entries.putIfAbsent(imgurId, created) != null)
+                continue;
+
+            try
+            {
+                List<Comment> comments = fetcher.fetch(imgurId);
+                comments = (comments == null ? Collections.emptyList() : Collections.unmodifiableList(comments));
+
+                created.retrievedAt = System.currentTimeMillis();
+                created.comments.complete(comments);
+
+                return comments;
+            }
+            catch (BaringoApiException | IOException | URISyntaxException | RuntimeException ex)
+            {
+                // failures are not cached.
+                entries.remove(imgurId, created);
+                created.comments.completeExceptionally(ex);
+
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Find a comment on the specified post.
+     * @param imgurId The imgur id of the post.
+     * @param commentId The id of the comment.
+     * @return The comment, or null if the post did not contain it.
+     */
+    public Comment findComment(String imgurId, long commentId) throws BaringoApiException, IOException, URISyntaxException
+    {
+        ArrayDeque<Comment> stack = new ArrayDeque<>(getComments(imgurId));
+
+        while (!stack.isEmpty())
+        {
+            Comment c = stack.pop();
+
+            if (c.getId() == commentId)
+                return c;
+
+            if (c.getChildren() != null)
+            {
+                for (Comment child : c.getChildren())
+                    stack.push(child);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove the cached comments of the post, for example because a comment was posted on it.
+     *
+     * A request that is currently in flight still completes for the threads that are waiting
+     * on it, but its result is not cached.
+     * @param imgurId The imgur id of the post.
+     */
+    public void invalidate(String imgurId)
+    {
+        if (imgurId != null)
+            entries.remove(imgurId);
+    }
+
+    /**
+     * Remove all cached comments.
+     */
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    private static List<Comment> await(Entry e) throws BaringoApiException, IOException, URISyntaxException
+    {
+        try
+        {
+            return e.comments.get();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the post comments.");
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof BaringoApiException)
+                throw (BaringoApiException)cause;
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof URISyntaxException)
+                throw (URISyntaxException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+
+            throw new IOException(cause);
+        }
+    }
+
+    //endregion
+}
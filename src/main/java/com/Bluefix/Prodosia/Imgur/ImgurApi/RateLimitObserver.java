@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.ImgurApi;
+
+import com.Bluefix.Prodosia.Exception.BaringoExceptionHelper;
+import com.github.kskelm.baringo.Quota;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+import java.util.Date;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of the rate limits that Imgur reports.
+ *
+ * The Baringo client reads the remaining credits from the headers of every response
+ * into its `Quota` object. This observer interprets those values, so that the modules
+ * can use more of the hourly budget when credits are plentiful and less of it
+ * when they are running out.
+ *
+ * Whenever Imgur responds with 429 (Too Many Requests), all modules back off. The
+ * back-off doubles with every consecutive 429 and is reset once requests succeed again.
+ */
+public class RateLimitObserver
+{
+    /**
+     * The back-off after the first 429 response.
+     */
+    public static final long MinimumBackoff = 60 * 1000;
+
+    /**
+     * The longest back-off after consecutive 429 responses.
+     */
+    public static final long MaximumBackoff = 60 * 60 * 1000;
+
+    /**
+     * The lowest factor that the budgets are scaled with.
+     */
+    public static final double MinimumFactor = 0.25;
+
+    /**
+     * The highest factor that the GET budgets are scaled with.
+     */
+    public static final double MaximumFactor = 2.0;
+
+    private static final long Hour = 60 * 60 * 1000;
+
+    /**
+     * Reset values above this are epoch-seconds, below it they are the seconds until the reset.
+     */
+    private static final long EpochThreshold = 1000000000L;
+
+    //region Singleton
+
+    private static RateLimitObserver me;
+
+    public static synchronized RateLimitObserver handler()
+    {
+        if (me == null)
+            me = new RateLimitObserver(ImgurManager::currentQuota, System::currentTimeMillis);
+
+        return me;
+    }
+
+    //endregion
+
+    //region Variables and constructor
+
+    /**
+     * The source of the quota, may return null if no client exists yet.
+     */
+    private final Supplier<Quota> source;
+
+    private final LongSupplier clock;
+
+    private int userAllocated;
+    private int userAvailable;
+    private long userReset;
+
+    private int applicationAllocated;
+    private int applicationAvailable;
+
+    private int postAllocated;
+    private int postAvailable;
+    private long postReset;
+
+    /**
+     * The current back-off in milliseconds, 0 if no 429 was received since the last success.
+     */
+    private long backoff;
+
+    /**
+     * The moment until which no requests should be made.
+     */
+    private long backoffUntil;
+
+    /**
+     * Create a new rate limit observer.
+     * @param source The source of the Imgur quota.
+     * @param clock The source of the current time in milliseconds.
+     */
+    RateLimitObserver(Supplier<Quota> source, LongSupplier clock)
+    {
+        this.source = source;
+        this.clock = clock;
+
+        this.userReset = -1;
+        this.postReset = -1;
+        this.backoff = 0;
+        this.backoffUntil = 0;
+    }
+
+    //endregion
+
+    //region Observation
+
+    /**
+     * Read the latest quota that was reported by Imgur.
+     */
+    public void observe()
+    {
+        Quota q = source.get();
+
+        if (q != null)
+            update(q);
+    }
+
+    /**
+     * Update the observer with the specified quota.
+     * @param q The quota as reported by Imgur.
+     */
+    public synchronized void update(Quota q)
+    {
+        long now = clock.getAsLong();
+
+        userAllocated = q.getUserCreditsAllocated();
+        userAvailable = q.getUserCreditsAvailable();
+        userReset = resetMoment(q.getUserCreditResetDate(), now);
+
+        applicationAllocated = q.getApplicationCreditsAllocated();
+        applicationAvailable = q.getApplicationCreditsAvailable();
+
+        postAllocated = q.getPostCreditsAllocated();
+        postAvailable = q.getPostCreditsAvailable();
+        postReset = resetMoment(q.getPostCreditResetDate(), now);
+
+        // if the credits have run out, don't make any requests until the reset.
+        if ((userAllocated > 0 && userAvailable <= 0) ||
+                (applicationAllocated > 0 && applicationAvailable <= 0))
+        {
+            long until = userReset > now ? userReset : now + MinimumBackoff;
+            backoffUntil = Math.max(backoffUntil, until);
+        }
+        else if (now >= backoffUntil)
+        {
+            // requests are allowed again, so the next 429 starts a new back-off.
+            backoff = 0;
+        }
+    }
+
+    /**
+     * Baringo stores the raw header value of a reset as the milliseconds of its date.
+     * The user reset is reported in epoch-seconds, the post reset as the seconds until the reset.
+     * @param raw The reset as stored by Baringo.
+     * @param now The current time in milliseconds.
+     * @return The moment of the reset in epoch-milliseconds, or -1 if it is unknown.
+     */
+    private static long resetMoment(Date raw, long now)
+    {
+        if (raw == null || raw.getTime() <= 0)
+            return -1;
+
+        long value = raw.getTime();
+
+        if (value > EpochThreshold)
+            return value * 1000;
+
+        return now + value * 1000;
+    }
+
+    //endregion
+
+    //region Back-off
+
+    /**
+     * Indicate that Imgur responded with 429 (Too Many Requests).
+     */
+    public synchronized void onRateLimited()
+    {
+        backoff = (backoff <= 0 ? MinimumBackoff : Math.min(backoff * 2, MaximumBackoff));
+        backoffUntil = Math.max(backoffUntil, clock.getAsLong() + backoff);
+    }
+
+    /**
+     * Check whether the exception indicates that Imgur is rate limiting us and
+     * back off if this is the case.
+     * @param ex The exception that occurred while calling the Imgur API.
+     * @return True iff the exception indicated a 429 response.
+     */
+    public boolean notifyException(Exception ex)
+    {
+        if (!(ex instanceof BaringoApiException) ||
+                !BaringoExceptionHelper.isRateLimited((BaringoApiException)ex))
+            return false;
+
+        onRateLimited();
+        return true;
+    }
+
+    /**
+     * Retrieve the amount of milliseconds until requests are allowed again.
+     * @return 0 if requests are allowed right now.
+     */
+    public synchronized long millisUntilAllowed()
+    {
+        return Math.max(0, backoffUntil - clock.getAsLong());
+    }
+
+    //endregion
+
+    //region Factors
+
+    /**
+     * Retrieve the factor with which the hourly GET budgets of the modules should be scaled.
+     *
+     * The remaining user credits are spread out until their reset. The remaining application
+     * credits are spread out over a full day, since Imgur doesn't report when they reset.
+     * @return A factor between `MinimumFactor` and `MaximumFactor`, 1 if nothing is known yet.
+     */
+    public synchronized double getRequestFactor()
+    {
+        double factor = MaximumFactor;
+        boolean known = false;
+
+        if (userAllocated > 0)
+        {
+            long untilReset = userReset > 0 ? Math.max(userReset - clock.getAsLong(), MinimumBackoff) : Hour;
+            double perHour = userAvailable * (Hour / (double)untilReset);
+
+            factor = Math.min(factor, perHour / ApiDistribution.HourlyBudget);
+            known = true;
+        }
+
+        if (applicationAllocated > 0)
+        {
+            factor = Math.min(factor, applicationAvailable / (ApiDistribution.HourlyBudget * 24.0));
+            known = true;
+        }
+
+        if (!known)
+            return 1.0;
+
+        return clamp(factor, MaximumFactor);
+    }
+
+    /**
+     * Retrieve the factor with which the comment posting rate should be scaled.
+     *
+     * Imgur limits the amount of comments per minute regardless of the remaining
+     * post credits, so this factor never exceeds 1.
+     * @return A factor between `MinimumFactor` and 1, 1 if nothing is known yet.
+     */
+    public synchronized double getPostFactor()
+    {
+        if (postAllocated <= 0)
+            return 1.0;
+
+        long untilReset = postReset > 0 ? Math.max(postReset - clock.getAsLong(), MinimumBackoff) : Hour;
+        double planned = ApiDistribution.PostModule * (untilReset / (double)Hour);
+
+        return clamp(postAvailable / planned, 1.0);
+    }
+
+    private static double clamp(double factor, double maximum)
+    {
+        return Math.max(MinimumFactor, Math.min(maximum, factor));
+    }
+
+    //endregion
+}
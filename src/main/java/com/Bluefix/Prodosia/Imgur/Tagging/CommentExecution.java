@@ -22,6 +22,7 @@
 
 package com.Bluefix.Prodosia.Imgur.Tagging;
 
+import com.Bluefix.Prodosia.DataHandler.LocalStorageHandler;
 import com.Bluefix.Prodosia.DataHandler.SimpleCommentRequestStorage;
 import com.Bluefix.Prodosia.DataHandler.TagRequestStorage;
 import com.Bluefix.Prodosia.DataType.Comments.FeedbackRequest;
@@ -29,6 +30,8 @@ import com.Bluefix.Prodosia.DataType.Comments.ICommentRequest;
 import com.Bluefix.Prodosia.DataType.Comments.SimpleCommentRequest;
 import com.Bluefix.Prodosia.DataType.Comments.TagRequest.TagRequest;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.PostCommentCache;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.RateLimitObserver;
 import com.github.kskelm.baringo.model.Comment;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
@@ -36,15 +39,20 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This class continually scans for Comment requests
  *
  * API costs:
- * 6 POST calls per minute for posting comments.
+ * 6 POST calls per minute for posting comments, spread out by a token bucket. The rate is
+ * lowered when Imgur reports that the post credits are running out (see `RateLimitObserver`).
  * 1 GET call per unique TagRequest added.
  * 1 GET call every time the comments for a TagRequest are checked (should hopefully only occur once).
  *
+ * The requests keep track of the comments that were posted, so that posting resumes
+ * after a restart without parsing the post comments again.
+ *
  * Although the ImgurIntervalRunner could have been used for this class, it is
  * not expected to cause a serious strain on the Imgur API due to the low amount of
  * GET requests and the fact that only 60*6 = 360 (out of 1250) POST requests
@@ -63,13 +71,15 @@ public class CommentExecution extends Thread
     private static final int SimultaneousTagRequest = TagRequest.PostDelay * 6;
 
     /**
-     * The default delay in milliseconds how long it takes for the
-     * comment posts to reset.
+     * The delay in milliseconds between updates of the queue.
+     *
+     * Tag requests count their post delay in queue updates, so this
+     * shouldn't be changed without changing `TagRequest.PostDelay`.
      */
-    private static final int DefaultCommentDelay = 60000;
+    public static final int DefaultQueueDelay = 30000;
 
     /**
-     * The shorter delay in case no comments were posted.
+     * The shorter delay in case the queue was empty.
      */
     private static final int DefaultShortDelay = 10000;
 
@@ -79,6 +89,16 @@ public class CommentExecution extends Thread
      */
     private static final int CommentsPerMinute = 6;
 
+    /**
+     * The amount of comments that can be posted in quick succession.
+     */
+    private static final int CommentBurst = CommentsPerMinute;
+
+    /**
+     * The amount of milliseconds after which another comment can be posted.
+     */
+    private static final long CommentInterval = 60000 / CommentsPerMinute;
+
     //region Singleton and Constructor
 
     private static CommentExecution me;
@@ -96,7 +116,15 @@ public class CommentExecution extends Thread
      */
     private CommentExecution()
     {
-        this.actions = new HashMap<>();
+        this.actions = new LinkedHashMap<>();
+        this.scheduler = new CommentScheduler<>();
+        this.bucket = new TokenBucket(CommentBurst, CommentInterval);
+
+        this.activeTags = new HashMap<>();
+        this.pendingTags = new LinkedHashMap<>();
+        this.changes = new ConcurrentLinkedQueue<>();
+        this.isListening = false;
+        this.isLoaded = false;
 
         this.feedbackRequests = new LinkedList<>();
     }
@@ -127,8 +155,14 @@ public class CommentExecution extends Thread
         if (fr == null)
             return;
 
-        // add the feedback request to the queue.
-        handler().feedbackRequests.addLast(fr);
+        LinkedList<FeedbackRequest> queue = handler().feedbackRequests;
+
+        // add the feedback request to the queue and wake up the thread.
+        synchronized (queue)
+        {
+            queue.addLast(fr);
+            queue.notifyAll();
+        }
     }
 
     //endregion
@@ -142,7 +176,17 @@ public class CommentExecution extends Thread
      * Queue for action items.
      * This maps Command Requests to the actual comments it is requesting.
      */
-    private HashMap<ICommentRequest, LinkedList<String>> actions;
+    private LinkedHashMap<ICommentRequest, LinkedList<String>> actions;
+
+    /**
+     * Round-robin scheduler over the items that still have comments to post.
+     */
+    private CommentScheduler<ICommentRequest> scheduler;
+
+    /**
+     * Limits the rate at which comments are posted.
+     */
+    private TokenBucket bucket;
 
     /**
      * Remove an item from the queue.
@@ -151,6 +195,34 @@ public class CommentExecution extends Thread
     private void removeItem(ICommentRequest item)
     {
         actions.remove(item);
+        scheduler.remove(item);
+    }
+
+    /**
+     * Set the comments that the item still has to post.
+     * @param item The item.
+     * @param comments The comments of the item.
+     */
+    private void putItem(ICommentRequest item, LinkedList<String> comments)
+    {
+        actions.put(item, comments);
+
+        // only items with comments take part in the scheduling.
+        if (comments == null || comments.isEmpty())
+            scheduler.remove(item);
+        else
+            scheduler.add(item, priorityOf(item));
+    }
+
+    private static CommentScheduler.Priority priorityOf(ICommentRequest item)
+    {
+        if (item instanceof FeedbackRequest)
+            return CommentScheduler.Priority.FEEDBACK;
+
+        if (item instanceof TagRequest)
+            return CommentScheduler.Priority.TAG;
+
+        return CommentScheduler.Priority.SIMPLE;
     }
 
     /**
@@ -167,7 +239,7 @@ public class CommentExecution extends Thread
         LinkedList<String> comments = new LinkedList<>(item.getComments());
 
         // add the item to the list.
-        actions.put(item, comments);
+        putItem(item, comments);
     }
 
     /**
@@ -184,116 +256,154 @@ public class CommentExecution extends Thread
 
     //region Thread logic
 
-    /**
-     * This counter keeps track of how many comments can still be posted during this cycle.
-     */
-    private int commentCounter;
-
     /**
      * Continually execute the tag request logic. This thread remains running perpetually until
      * application termination.
+     *
+     * The queue is updated at a fixed interval, while the comments themselves are posted
+     * as soon as the token bucket allows for it.
      */
     @Override
     public void run()
     {
+        long nextUpdate = 0;
+
         // Thread runs continually until application shutdown.
         while (true)
         {
-            // default delay between comment posting is 1 full minute.
-            int delay = DefaultCommentDelay;
-
-            // reset the comment counter.
-            this.commentCounter = CommentsPerMinute;
+            long delay;
 
             try
             {
-                // first execute the feedback requests, since they are a priority.
+                // first schedule the feedback requests, since they are a priority.
                 feedbackRequests();
 
-                updateQueue();
+                // if Imgur is rate limiting us, don't make any requests until the back-off has passed.
+                long backoff = RateLimitObserver.handler().millisUntilAllowed();
 
-                // if the queue is empty and no feedback requests were handled,
-                // don't post the comments and use a shorter delay.
-                if (isEmptyQueue() && commentCounter == CommentsPerMinute)
+                if (backoff > 0)
                 {
-                    delay = DefaultShortDelay;
+                    waitFor(backoff);
+                    continue;
                 }
-                else
+
+                if (System.currentTimeMillis() >= nextUpdate)
                 {
-                    postComments();
+                    updateQueue();
+
+                    // if the queue is empty, check again sooner.
+                    nextUpdate = System.currentTimeMillis() + (isEmptyQueue() ? DefaultShortDelay : DefaultQueueDelay);
                 }
 
-                // update the queue again so that requests that were completed can immediately be
-                // dismissed.
-                updateQueue();
+                postComments();
+                updateRate();
+
+                // wait until either the next comment can be posted or the queue should be updated.
+                delay = nextUpdate - System.currentTimeMillis();
+
+                if (!scheduler.isEmpty())
+                    delay = Math.min(delay, bucket.millisUntilAvailable());
 
             } catch (SQLException e)
             {
                 e.printStackTrace();
-            } finally
+                delay = DefaultShortDelay;
+            }
+
+            waitFor(delay);
+        }
+    }
+
+    /**
+     * Adjust the posting rate to the post credits that Imgur reports. The rate
+     * is never higher than the amount of comments that Imgur allows per minute.
+     */
+    private void updateRate()
+    {
+        RateLimitObserver limits = RateLimitObserver.handler();
+        limits.observe();
+
+        bucket.setRefillInterval((long)Math.ceil(CommentInterval / limits.getPostFactor()));
+    }
+
+    /**
+     * Wait for the specified amount of milliseconds, or until a feedback request is added.
+     * @param delay The amount of milliseconds to wait.
+     */
+    private void waitFor(long delay)
+    {
+        synchronized (feedbackRequests)
+        {
+            if (delay <= 0 || !feedbackRequests.isEmpty())
+                return;
+
+            try
             {
-                try
-                {
-                    Thread.sleep(delay);
-                } catch (InterruptedException e)
-                {
-                    // if this fails, it is most likely an application shutdown upon which we are done anyways.
-                }
+                feedbackRequests.wait(delay);
+            } catch (InterruptedException e)
+            {
+                // if this fails, it is most likely an application shutdown upon which we are done anyways.
             }
         }
     }
 
 
     /**
-     * Execute the feedback requests if they were available. These requests always get priority over
+     * Schedule the feedback requests that were added. These requests always get priority over
      * any other type of comment posting.
-     * @return The amount of comments that were posted by this method.
-     * @throws BaringoApiException
-     * @throws IOException
-     * @throws URISyntaxException
      */
     private void feedbackRequests()
     {
-        while (commentCounter > 0 && !feedbackRequests.isEmpty())
+        synchronized (feedbackRequests)
         {
-            FeedbackRequest fr = feedbackRequests.removeFirst();
-
-
-            // even if one individual feedback request fails, the others should still pass.
-            try
+            while (!feedbackRequests.isEmpty())
             {
+                FeedbackRequest fr = feedbackRequests.removeFirst();
+
                 LinkedList<String> comments = fr.getComments();
 
                 if (comments.size() != 1)
-                    throw new IllegalArgumentException("FeedbackRequest is only supposed to have one comment.");
-
-                long commentId = postComment(fr, comments.get(0));
-                commentCounter--;
+                {
+                    new IllegalArgumentException("FeedbackRequest is only supposed to have one comment.").printStackTrace();
+                    continue;
+                }
 
-                fr.setCommentId(commentId);
-                fr.start();
-            }
-            catch (Exception e)
-            {
-                // ignore individual exceptions
-                e.printStackTrace();
+                putItem(fr, comments);
             }
         }
     }
 
+    /**
+     * Post the comment of a feedback request and start its callback.
+     * @param fr The feedback request.
+     */
+    private void postFeedbackRequest(FeedbackRequest fr, String comment) throws BaringoApiException, IOException, URISyntaxException
+    {
+        long commentId = postComment(fr, comment);
+
+        fr.setCommentId(commentId);
+        fr.start();
+    }
+
 
     /**
-     * Update all the queues that hold Comment Requests. 
-     * @throws Exception
+     * Update all the queues that hold Comment Requests.
+     * @throws SQLException
      */
     private void updateQueue() throws SQLException
     {
+        // the first update loads the storages and starts listening to their changes.
+        listen();
+
+        // apply all changes to the storages since the last update.
+        Runnable change;
+
+        while ((change = changes.poll()) != null)
+            change.run();
+
         // clean any items that were completely posted.
         cleanupEmptyItems();
 
-        // update any simple comment requests that were available to us.
-        updateSimpleCommentRequests();
-
         // if there was still room left in the queue, update it with tag requests.
         updateTagRequests();
     }
@@ -302,7 +412,6 @@ public class CommentExecution extends Thread
      * Remove all entries from the queue that were empty (i.e. completely handled)
      *
      * Does not remove Tag Requests (who are handled separately).
-     * @throws Exception
      */
     private void cleanupEmptyItems()
     {
@@ -312,215 +421,396 @@ public class CommentExecution extends Thread
         for (Map.Entry<ICommentRequest, LinkedList<String>> entry : actions.entrySet())
         {
             if ((entry.getValue() == null || entry.getValue().isEmpty()) &&
-                    !(entry instanceof TagRequest))
+                    !(entry.getKey() instanceof TagRequest))
                 deletionList.add(entry.getKey());
         }
 
         // complete the item
         for (ICommentRequest icr : deletionList)
         {
-            // force a cast to object to ensure that no custom equals is called in the deletion.
-            Object icrObj = icr;
-            this.actions.remove(icrObj);
+            removeItem(icr);
 
             // handle deletion by the ICommentRequest object.
             icr.complete();
         }
     }
 
-
     /**
-     * Retrieves items from the `SimpleCommentRequestStorage` and adds them to our queue.
-     * @throws Exception
+     * Update the tag requests in the action queue. Tag requests that posted all their
+     * comments are completed or retrieve their next comments. Afterwards, the pending
+     * tag requests are added if the maximum amount of simultaneous active requests
+     * hasn't been exceeded yet.
      */
-    private void updateSimpleCommentRequests() throws SQLException
+    private void updateTagRequests()
     {
-        // we ignore the size of the queue since simple tag requests always take priority.
-        ArrayList<SimpleCommentRequest> scr = new ArrayList<>(SimpleCommentRequestStorage.handler().getAll());
+        // update all TagRequest entries that were empty and remove those that were completed.
+        List<RequestKey> removal = new ArrayList<>();
 
+        for (Map.Entry<RequestKey, TagRequest> entry : activeTags.entrySet())
+        {
+            TagRequest tr = entry.getValue();
+            LinkedList<String> comments = actions.get(tr);
 
+            // if the entry still contained comments to be posted, skip it.
+            if (comments != null && !comments.isEmpty())
+                continue;
 
-        // filter out all items that were already in the queue.
-        for (ICommentRequest cr : actions.keySet())
-        {
-            scr.remove(cr);
+            // first, ensure we call completion.
+            tr.complete();
+
+            // if this entry was complete, add it to the queue for removal.
+            if (tr.isCompleted())
+            {
+                removal.add(entry.getKey());
+                continue;
+            }
+
+            // find the comments for the tag-request
+            putItem(tr, new LinkedList<>(tr.getComments()));
         }
 
-        // add all remaining items to the queue.
-        for (SimpleCommentRequest mScr : scr)
+        for (RequestKey key : removal)
+            deactivateTag(key);
+
+        // if there is still room in the queue, add the tag requests that were queued first.
+        Iterator<Map.Entry<RequestKey, TagRequest>> pending = pendingTags.entrySet().iterator();
+
+        while (actions.size() < SimultaneousTagRequest && pending.hasNext())
         {
-            addItem(mScr);
+            Map.Entry<RequestKey, TagRequest> entry = pending.next();
+            pending.remove();
+
+            activateTag(entry.getKey(), entry.getValue());
         }
     }
 
+    //endregion
+
+    //region Storage changes
+
     /**
-     * Update the tag request queue we maintain. Retrieves items from `TagRequestStorage`
-     * and adds them to the action list if the maximum amount of simultaneous
-     * active requests hasn't been exceeded yet.
-     *
-     * If a tag request was updated, refresh its comment list.
-     * @throws Exception
+     * Identifies a tag request by its post and parent comment.
      */
-    private void updateTagRequests() throws SQLException
+    private static final class RequestKey
     {
-        // update all TagRequest entries that were empty and remove those that were completed.
-        List<ICommentRequest> removal = new LinkedList<>();
+        private final String imgurId;
+        private final long parentId;
 
-        for (Map.Entry<ICommentRequest, LinkedList<String>> tr : actions.entrySet())
+        private RequestKey(TagRequest tr)
         {
-            // skip the entry if it wasn't a tag request.
-            if (!(tr.getKey() instanceof TagRequest))
-                continue;
-
-            // if the entry still contained comments to be posted, skip it.
-            if (tr.getValue() != null && !tr.getValue().isEmpty())
-                continue;
-
-            // first, ensure we call completion.
-            tr.getKey().complete();
+            String id;
 
-            // if this entry was complete, add it to the queue for removal.
-            if (((TagRequest)tr.getKey()).isCompleted())
+            try
             {
-                removal.add(tr.getKey());
-                continue;
+                id = tr.getImgurId();
+            }
+            catch (Exception e)
+            {
+                // the imgur id is only unknown if the parent comment couldn't be retrieved.
+                id = null;
             }
 
-            // find the comments for the tag-request
-            LinkedList<String> comments = new LinkedList<>(tr.getKey().getComments());
+            this.imgurId = id;
+            this.parentId = tr.getParentId();
+        }
 
-            // add the item to the list.
-            actions.put(tr.getKey(), comments);
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RequestKey that = (RequestKey) o;
+            return parentId == that.parentId &&
+                    Objects.equals(imgurId, that.imgurId);
         }
 
-        // remove all entries that should be deleted.
-        for (ICommentRequest icr : removal)
-            actions.remove(icr);
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(imgurId, parentId);
+        }
+    }
+
+    /**
+     * The tag requests that are part of the action queue.
+     */
+    private HashMap<RequestKey, TagRequest> activeTags;
+
+    /**
+     * The stored tag requests that are waiting for room in the action queue,
+     * in the order in which they were queued.
+     */
+    private LinkedHashMap<RequestKey, TagRequest> pendingTags;
+
+    /**
+     * The changes to the storages that were not yet applied. The storages notify
+     * us from other threads, so the changes are applied by the execution thread.
+     */
+    private ConcurrentLinkedQueue<Runnable> changes;
+
+    private boolean isListening;
 
+    /**
+     * Indicates whether the current contents of the storages were loaded.
+     */
+    private boolean isLoaded;
+
+    /**
+     * Start listening to the changes of the storages and load their current contents.
+     */
+    private void listen() throws SQLException
+    {
+        if (isLoaded)
+            return;
 
+        if (!isListening)
+            addListeners();
 
-        // retrieve all current tag requests. Create a local copy.
-        ArrayList<TagRequest> queueItems = new ArrayList<>(TagRequestStorage.handler().getAll());
+        // any change that was made in the meantime is applied again afterwards, which has no effect.
+        tagsReloaded(TagRequestStorage.handler().getAll());
+        simpleReloaded(SimpleCommentRequestStorage.handler().getAll());
 
-        removal = new LinkedList<>();
-        LinkedList<TagRequest> additions = new LinkedList<>();
+        isLoaded = true;
+    }
 
-        // if an old tagRequest has changed, replace it.
-        for (ICommentRequest tr : actions.keySet())
+    private void addListeners()
+    {
+        TagRequestStorage.handler().addListener(new LocalStorageHandler.ChangeListener<TagRequest>()
         {
-            // skip the entry if it wasn't a tag request
-            if (!(tr instanceof TagRequest))
-                continue;
+            @Override
+            public void itemSet(TagRequest oldItem, TagRequest newItem)
+            {
+                changes.add(() -> tagSet(oldItem, newItem));
+            }
 
-            // find the corresponding item in queueItems.
-            int index = queueItems.indexOf(tr);
+            @Override
+            public void itemRemoved(TagRequest item)
+            {
+                changes.add(() -> tagRemoved(item));
+            }
 
-            // if the item wasn't in the queue anymore, complete it from the list
-            if (index < 0)
+            @Override
+            public void itemsReloaded(List<TagRequest> items)
             {
-                removal.add(tr);
-                continue;
+                changes.add(() -> tagsReloaded(items));
             }
+        });
 
-            TagRequest myTr = queueItems.get(index);
+        SimpleCommentRequestStorage.handler().addListener(new LocalStorageHandler.ChangeListener<SimpleCommentRequest>()
+        {
+            @Override
+            public void itemSet(SimpleCommentRequest oldItem, SimpleCommentRequest newItem)
+            {
+                changes.add(() -> simpleSet(oldItem, newItem));
+            }
 
-            // replace the item if it isn't deepequal. This indicates that the entry was
-            // changed (most likely merged).
-            if (!tr.deepEquals(myTr))
+            @Override
+            public void itemRemoved(SimpleCommentRequest item)
+            {
+                changes.add(() -> removeItem(item));
+            }
+
+            @Override
+            public void itemsReloaded(List<SimpleCommentRequest> items)
             {
-                removal.add(tr);
-                additions.add(myTr);
+                changes.add(() -> simpleReloaded(items));
             }
+        });
 
-            // if the entry was equal, we are good.
+        isListening = true;
+    }
 
+    private void activateTag(RequestKey key, TagRequest tr)
+    {
+        activeTags.put(key, tr);
+        addItem(tr);
+    }
 
-            // finally, complete the tagrequest from the queue-items since it was already handled.
-            queueItems.remove(index);
-        }
+    private void deactivateTag(RequestKey key)
+    {
+        TagRequest tr = activeTags.remove(key);
 
-        assert(removal.size() >= additions.size());
+        if (tr != null)
+            removeItem(tr);
+    }
 
-        // remove the entries that should be removed.
-        for (ICommentRequest icr : removal)
-            actions.remove(icr);
+    /**
+     * A tag request was stored.
+     * @param oldItem The tag request that it replaced, or null.
+     * @param newItem The tag request that was stored.
+     */
+    private void tagSet(TagRequest oldItem, TagRequest newItem)
+    {
+        RequestKey key = new RequestKey(newItem);
 
-        // add all new entries
-        for (TagRequest tr : additions)
-            addItem(tr);
+        if (oldItem != null && !key.equals(new RequestKey(oldItem)))
+            tagRemoved(oldItem);
 
+        TagRequest active = activeTags.get(key);
 
+        if (active != null)
+        {
+            // replace the entry if it isn't deepequal. This indicates that the entry was
+            // changed (most likely merged).
+            if (!active.deepEquals(newItem))
+            {
+                deactivateTag(key);
+                activateTag(key, newItem);
+            }
 
-        // Skip further additions if there is no room.
-        if (actions.size() >= SimultaneousTagRequest)
             return;
+        }
 
+        // a changed tag request moves to the back of the queue, like its database entry.
+        pendingTags.remove(key);
+        pendingTags.put(key, newItem);
+    }
+
+    /**
+     * A tag request was removed from the storage.
+     * @param item The tag request.
+     */
+    private void tagRemoved(TagRequest item)
+    {
+        RequestKey key = new RequestKey(item);
+
+        pendingTags.remove(key);
+        deactivateTag(key);
+    }
 
-        // if there is still room in the queue, add new items
-        for (int i = 0; i < SimultaneousTagRequest - actions.size() && i < queueItems.size(); i++)
+    /**
+     * The tag requests were reloaded from the storage.
+     * @param items All stored tag requests.
+     */
+    private void tagsReloaded(List<TagRequest> items)
+    {
+        LinkedHashMap<RequestKey, TagRequest> stored = new LinkedHashMap<>();
+
+        for (TagRequest tr : items)
+            stored.put(new RequestKey(tr), tr);
+
+        // remove or replace the active tag requests that have changed.
+        for (RequestKey key : new ArrayList<>(activeTags.keySet()))
         {
-            TagRequest newItem = queueItems.get(i);
-            addItem(newItem);
+            TagRequest current = stored.remove(key);
+
+            if (current == null)
+                deactivateTag(key);
+            else if (!activeTags.get(key).deepEquals(current))
+            {
+                deactivateTag(key);
+                activateTag(key, current);
+            }
         }
+
+        // all other tag requests are waiting for room.
+        pendingTags = stored;
     }
 
+    /**
+     * A simple comment request was stored.
+     * @param oldItem The comment request that it replaced, or null.
+     * @param newItem The comment request that was stored.
+     */
+    private void simpleSet(SimpleCommentRequest oldItem, SimpleCommentRequest newItem)
+    {
+        if (oldItem != null && !oldItem.equals(newItem))
+            removeItem(oldItem);
 
+        // simple comment requests always take priority, so they are added immediately.
+        if (!actions.containsKey(newItem))
+            addItem(newItem);
+    }
 
+    /**
+     * The simple comment requests were reloaded from the storage.
+     * @param items All stored simple comment requests.
+     */
+    private void simpleReloaded(List<SimpleCommentRequest> items)
+    {
+        HashSet<SimpleCommentRequest> stored = new HashSet<>(items);
+
+        // remove the entries that are no longer stored.
+        ArrayList<ICommentRequest> removal = new ArrayList<>();
+
+        for (ICommentRequest icr : actions.keySet())
+        {
+            if (icr instanceof SimpleCommentRequest && !stored.remove(icr))
+                removal.add(icr);
+        }
+
+        for (ICommentRequest icr : removal)
+            removeItem(icr);
+
+        // add all remaining items to the queue.
+        for (SimpleCommentRequest scr : items)
+        {
+            if (stored.contains(scr))
+                addItem(scr);
+        }
+    }
+
+    //endregion
+
+    //region Comment posting
 
     /**
-     * Post the comments of the respective tag requests to their posts.
+     * Post the comments of the respective requests to their posts.
      *
-     * This method will loop through the actions in the queue in no particular order
-     * and will post comments until either its comment counter runs out or all entries
-     * in the queue were empty. The method uses a breadth-first approach to attempt to
-     * spread out the comments between the queue items.
+     * Comments are posted as long as the token bucket allows for it. The scheduler
+     * decides which request posts the next comment, which takes turns between the
+     * requests of the highest priority class that still has comments.
      */
     private void postComments()
     {
-        Set<Map.Entry<ICommentRequest, LinkedList<String>>> entries = actions.entrySet();
+        RateLimitObserver limits = RateLimitObserver.handler();
 
-        while (commentCounter > 0)
+        // stop posting as soon as Imgur starts rate limiting us.
+        while (!scheduler.isEmpty() && limits.millisUntilAllowed() <= 0 && bucket.tryAcquire())
         {
-            boolean allEmpty = true;
+            ICommentRequest icr = scheduler.next();
+            LinkedList<String> comments = actions.get(icr);
 
-            for (Map.Entry<ICommentRequest, LinkedList<String>> e : entries)
-            {
-                // if the comment list is empty, ignore
-                if (e.getValue().isEmpty())
-                {
-                    continue;
-                }
+            // post one of the strings of the current collection and complete it
+            String comment = comments.removeFirst();
 
-                // post one of the strings of the current collection and complete it
-                String comment = e.getValue().remove(0);
-                allEmpty = false;
+            if (comments.isEmpty())
+                scheduler.remove(icr);
 
-                if (commentCounter <= 0)
-                    return;
+            // post a reply. Since the Imgur API can fail but still succeed in posting a comment,
+            // an attempt always costs a token.
+            long commentId = -1;
 
-                // post a reply.
-                try
+            try
+            {
+                if (icr instanceof FeedbackRequest)
                 {
-                    postComment(e.getKey(), comment);
+                    // feedback requests are not part of the regular queue.
+                    actions.remove(icr);
+                    postFeedbackRequest((FeedbackRequest)icr, comment);
                 }
-                catch (Exception ex)
+                else
                 {
-                    // if posting a comment fails for whatever reason, it shouldn't affect the other queries.
-                    ex.printStackTrace();
+                    commentId = postComment(icr, comment);
+                }
+            }
+            catch (Exception ex)
+            {
+                // if Imgur is rate limiting us, the comment was not posted. It is attempted
+                // again once the backoff has passed, so the request stays on this comment.
+                if (limits.notifyException(ex))
+                {
+                    comments.addFirst(comment);
+                    putItem(icr, comments);
+                    continue;
                 }
 
-                // since the Imgur API can fail but still succeed in posting a comment, an attempt should always be counted.
-                commentCounter--;
-
-                // if we exceed the limit, return.
-                if (commentCounter <= 0)
-                    return;
-
+                // if posting a comment fails for whatever reason, it shouldn't affect the other queries.
+                ex.printStackTrace();
             }
 
-            // if all entries were empty, simply return to continue
-            if (allEmpty)
-                return;
+            // the comment is never attempted again, so the request moves on to its next comment.
+            icr.advanceCursor(commentId);
         }
     }
 
@@ -537,17 +827,26 @@ public class CommentExecution extends Thread
     {
         // retrieve the parent comment
         Comment parentComment = icr.getParent();
+        String imgurId = (parentComment == null ? icr.getImgurId() : parentComment.getImageId());
 
-        // if no parent comment was known, simply post directly to the post.
-        if (parentComment == null)
+        try
         {
-            // post the comment.
-            return ImgurManager.client().commentService().addComment(icr.getImgurId(), comment);
+            // if no parent comment was known, simply post directly to the post.
+            if (parentComment == null)
+            {
+                // post the comment.
+                return ImgurManager.client().commentService().addComment(imgurId, comment);
+            }
+            else
+            {
+                // post the reply
+                return ImgurManager.client().commentService().addReply(parentComment, comment);
+            }
         }
-        else
+        finally
         {
-            // post the reply
-            return ImgurManager.client().commentService().addReply(parentComment, comment);
+            // the comments of the post have changed, even if the api reported a failure.
+            PostCommentCache.handler().invalidate(imgurId);
         }
     }
 
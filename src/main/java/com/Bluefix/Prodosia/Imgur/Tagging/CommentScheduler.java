@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.Tagging;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+
+/**
+ * Round-robin scheduler for the comment requests that still have comments to post.
+ *
+ * Every priority class has its own ring. The next request is always taken from the
+ * ring with the highest priority that isn't empty, after which it moves to the back
+ * of that ring. This way every request within a class gets its turn.
+ * @param <T> The type of the requests.
+ */
+public class CommentScheduler<T>
+{
+    /**
+     * The priority classes, from highest to lowest.
+     */
+    public enum Priority
+    {
+        FEEDBACK,
+        SIMPLE,
+        TAG
+    }
+
+    private final EnumMap<Priority, ArrayDeque<T>> rings;
+    private final HashMap<T, Priority> members;
+
+    public CommentScheduler()
+    {
+        this.rings = new EnumMap<>(Priority.class);
+        this.members = new HashMap<>();
+
+        for (Priority p : Priority.values())
+            rings.put(p, new ArrayDeque<>());
+    }
+
+    /**
+     * Add the request to the back of the ring for its priority.
+     *
+     * If the request was already scheduled, its position is kept.
+     * @param item The request.
+     * @param priority The priority of the request.
+     */
+    public void add(T item, Priority priority)
+    {
+        if (members.containsKey(item))
+            return;
+
+        members.put(item, priority);
+        rings.get(priority).addLast(item);
+    }
+
+    /**
+     * Remove the request from the scheduler.
+     * @param item The request.
+     */
+    public void remove(T item)
+    {
+        Priority p = members.remove(item);
+
+        if (p != null)
+            rings.get(p).remove(item);
+    }
+
+    /**
+     * Retrieve the request that should post the next comment, and move it to the back of its ring.
+     * @return The next request, or null if there were none.
+     */
+    public T next()
+    {
+        for (Priority p : Priority.values())
+        {
+            ArrayDeque<T> ring = rings.get(p);
+
+            if (ring.isEmpty())
+                continue;
+
+            T item = ring.pollFirst();
+            ring.addLast(item);
+
+            return item;
+        }
+
+        return null;
+    }
+
+    public boolean contains(T item)
+    {
+        return members.containsKey(item);
+    }
+
+    public boolean isEmpty()
+    {
+        return members.isEmpty();
+    }
+
+    public int size()
+    {
+        return members.size();
+    }
+
+    public void clear()
+    {
+        members.clear();
+
+        for (ArrayDeque<T> ring : rings.values())
+            ring.clear();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.Tagging;
+
+import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.github.kskelm.baringo.model.Comment;
+import com.github.kskelm.baringo.util.BaringoApiException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The result of a single traversal over the comments of a post.
+ *
+ * Collects the users that were already mentioned or commented themselves, along
+ * with the comments of the bot that consist purely of mentions and the amount of
+ * mentions in those comments.
+ */
+public class CommentTreeAnalysis
+{
+    /**
+     * The lower case names of all authors and mentioned users.
+     */
+    private HashSet<String> mentionedUsers;
+
+    /**
+     * The comments of the bot that consist purely of mentions.
+     */
+    private ArrayList<Comment> myTagComments;
+
+    /**
+     * The amount of mentions in `myTagComments`.
+     */
+    private int myMentionCount;
+
+    //region Constructor
+
+    /**
+     * Analyze the comments of a post.
+     * @param comments The top-level comments of the post.
+     * @param posterName The name of the bot account, or null if its comments should not be collected.
+     */
+    public CommentTreeAnalysis(List<Comment> comments, String posterName)
+    {
+        this.mentionedUsers = new HashSet<>();
+        this.myTagComments = new ArrayList<>();
+        this.myMentionCount = 0;
+
+        if (posterName != null && posterName.trim().isEmpty())
+            posterName = null;
+
+        if (comments != null)
+            traverse(comments, posterName);
+    }
+
+    /**
+     * Analyze the comments of a post, collecting the comments of the authenticated account.
+     * @param comments The top-level comments of the post.
+     * @return The analysis of the comments.
+     */
+    public static CommentTreeAnalysis analyze(List<Comment> comments) throws BaringoApiException, IOException, URISyntaxException
+    {
+        if (comments == null || comments.isEmpty())
+            return new CommentTreeAnalysis(comments, null);
+
+        return new CommentTreeAnalysis(comments, ImgurManager.client().getAuthenticatedUserName());
+    }
+
+    //endregion
+
+    //region Getters
+
+    /**
+     * Retrieve all users that were mentioned on the post, including the authors of comments.
+     * @return The lower case names of the users.
+     */
+    public Set<String> getMentionedUsers()
+    {
+        return Collections.unmodifiableSet(mentionedUsers);
+    }
+
+    /**
+     * Retrieve the comments that the bot account has posted purely for mentions.
+     * @return The tag comments of the bot account.
+     */
+    public List<Comment> getMyTagComments()
+    {
+        return Collections.unmodifiableList(myTagComments);
+    }
+
+    /**
+     * Retrieve the amount of users that the bot account has mentioned in its tag comments.
+     * @return The amount of mentions.
+     */
+    public int getMyMentionCount()
+    {
+        return myMentionCount;
+    }
+
+    //endregion
+
+    //region Traversal
+
+    private void traverse(List<Comment> comments, String posterName)
+    {
+        ArrayDeque<Comment> stack = new ArrayDeque<>(comments);
+
+        while (!stack.isEmpty())
+        {
+            Comment c = stack.pop();
+
+            List<Comment> children = c.getChildren();
+
+            if (children != null)
+            {
+                for (Comment child : children)
+                    stack.push(child);
+            }
+
+            String author = c.getAuthorName();
+
+            if (author != null)
+                mentionedUsers.add(author.toLowerCase());
+
+            String text = c.getComment();
+
+            if (text == null)
+                continue;
+
+            int mentions = scan(text);
+
+            // a negative amount indicates that the comment was purely mentions.
+            if (mentions < 0 && posterName != null && posterName.equals(author))
+            {
+                myTagComments.add(c);
+                myMentionCount -= mentions;
+            }
+        }
+    }
+
+    /**
+     * Scan the comment for mentions and add them to the mentioned users.
+     *
+     * A mention is an `@` at the start of the text or after whitespace, followed by a name
+     * that contains neither whitespace nor `@` and ends at whitespace or the end of the text.
+     * @param text The text of the comment.
+     * @return The amount of mentions, negated if the text consists purely of mentions.
+     */
+    private int scan(String text)
+    {
+        int length = text.length();
+        int mentions = 0;
+
+        // the text is pure if it only consists of mentions, each followed by whitespace or the end.
+        boolean pure = length > 0 && !isWhitespace(text.charAt(0));
+
+        int i = 0;
+
+        while (i < length)
+        {
+            if (isWhitespace(text.charAt(i)))
+            {
+                i++;
+                continue;
+            }
+
+            // find the end of the current word, keeping track of any `@` after the first character.
+            int end = i + 1;
+            boolean innerAt = false;
+
+            while (end < length)
+            {
+                char ch = text.charAt(end);
+
+                if (isWhitespace(ch))
+                    break;
+
+                if (ch == '@')
+                    innerAt = true;
+
+                end++;
+            }
+
+            if (text.charAt(i) == '@' && end > i + 1 && !innerAt)
+            {
+                mentionedUsers.add(text.substring(i + 1, end).toLowerCase());
+                mentions++;
+            }
+            else
+            {
+                pure = false;
+            }
+
+            i = end;
+        }
+
+        return pure ? -mentions : mentions;
+    }
+
+    /**
+     * Mirrors `\s` of regular expressions.
+     */
+    private static boolean isWhitespace(char ch)
+    {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+
+    //endregion
+}
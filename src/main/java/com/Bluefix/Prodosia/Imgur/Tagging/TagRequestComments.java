@@ -27,18 +27,15 @@ import com.Bluefix.Prodosia.DataHandler.UserHandler;
 import com.Bluefix.Prodosia.DataType.Comments.StatComment;
 import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
 import com.Bluefix.Prodosia.DataType.User.User;
-import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
 import com.github.kskelm.baringo.model.Comment;
 import com.github.kskelm.baringo.util.BaringoApiException;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * This helper class handles the comment collections for tag requests
@@ -59,12 +56,20 @@ public class TagRequestComments
      */
     public static LinkedList<String> parseCommentsForTagRequest(BaseTagRequest tr, List<Comment> postComments) throws Exception
     {
-        // find all the users necessary for the tag request.
-        ArrayList<String> users = findUsernamesForTagRequest(tr);
-
-        HashSet<String> mentionedUsers = findMentionedUsers(postComments);
+        return parseCommentsForTagRequest(tr, new CommentTreeAnalysis(postComments, null));
+    }
 
-        users.removeIf(u -> mentionedUsers.contains(u.toLowerCase()));
+    /**
+     * Parse the comments that are necessary for the specified tag request.
+     * @param tr
+     * @param analysis The analysis of the comments of the post that this tag request will be posted to.
+     * @return
+     * @throws Exception
+     */
+    public static LinkedList<String> parseCommentsForTagRequest(BaseTagRequest tr, CommentTreeAnalysis analysis) throws Exception
+    {
+        // find all the users necessary for the tag request that weren't mentioned yet.
+        ArrayList<String> users = findUsernamesForTagRequest(tr, analysis.getMentionedUsers());
 
         // convert the users into tag-entries
         LinkedList<String> tagEntries = new LinkedList<>();
@@ -95,85 +100,23 @@ public class TagRequestComments
      */
     public static ArrayList<User> findUsersForTagRequest(BaseTagRequest tr) throws Exception
     {
-        ArrayList<User> output = new ArrayList<>();
-
-        // retrieve all users and filter out the ones that do not adhere to the tag request filters.
-        ArrayList<User> users = UserHandler.handler().getAll();
-
-        for (User u : users)
-        {
-            // add all users that were part of the tag request.
-            if (u.partOfTagRequest(tr))
-                output.add(u);
-        }
-
-        return output;
-    }
-
-    private static ArrayList<String> findUsernamesForTagRequest(BaseTagRequest tr) throws Exception
-    {
-        ArrayList<String> items = new ArrayList<>();
-
-        ArrayList<User> users = findUsersForTagRequest(tr);
-
-        if (users == null || users.isEmpty())
-            return items;
-
-        for (User u : users)
-        {
-            items.add(u.getImgurName());
-        }
-
-        return items;
+        // only the subscribers of the requested taglists are considered.
+        return UserHandler.getUsersForTagRequest(tr);
     }
 
-
-    /**
-     * The pattern for retrieving imgur mentions.
-     */
-    private static final Pattern userMentionPattern = Pattern.compile("(\\G|\\s|\\A)@([^@\\s]+)(\\s|$)");
-
     /**
-     * Retrieve all mentioned users from the post. This includes people that have posted a comment themselves.
-     * @param postComments
-     * @return
+     * Retrieve the names of all users for the specified tag request.
+     * @param tr the tag request to be used as filter.
+     * @param mentionedUsers The lower case names of the users to exclude.
+     * @return The imgur names of the users that correspond with the tag request.
+     * @throws Exception Issue retrieving users in `UserHandler`
      */
-    private static HashSet<String> findMentionedUsers(List<Comment> postComments)
+    private static ArrayList<String> findUsernamesForTagRequest(BaseTagRequest tr, Set<String> mentionedUsers) throws Exception
     {
-        HashSet<String> mentions = new HashSet<>();
-
-        List<Comment> currentTier = postComments;
-
-        while (!currentTier.isEmpty())
-        {
-            List<Comment> newTier = new LinkedList<>();
-
-            for (Comment c : currentTier)
-            {
-                newTier.addAll(c.getChildren());
-
-                mentions.add(c.getAuthorName().toLowerCase());
-
-                // check to see if the comment contains mentions.
-                Matcher m = userMentionPattern.matcher(c.getComment());
-
-                while (m.find())
-                {
-                    mentions.add(m.group(2).toLowerCase());
-                }
-            }
-
-
-            currentTier = newTier;
-        }
-
-        return mentions;
+        return UserHandler.getUsernamesForTagRequest(tr, mentionedUsers);
     }
 
 
-    private static final Pattern pureMentionCommentPattern = Pattern.compile("\\A(@[^@\\s]+(\\s|\\z)+)+");
-
-
     /**
      * Retrieve the amount of Comments that the bot account has posted for us on this post.
      * Will only count mentions that were purely posted for mentions, without any other text.
@@ -185,86 +128,14 @@ public class TagRequestComments
      */
     public static int findNumberOfMyMentions(List<Comment> comments) throws BaringoApiException, IOException, URISyntaxException
     {
-        if (comments == null || comments.isEmpty())
-            return 0;
-
-        List<Comment> myTagComments = findMyTagComments(comments);
-
-        if (myTagComments == null || myTagComments.isEmpty())
-            return 0;
-
-        int counter = 0;
-
-        for (Comment c : myTagComments)
-        {
-            // add the amount of occurences of `@` to the counter.
-            String tmpRep = c.getComment().replace("@", "");
-            counter += c.getComment().length() - tmpRep.length();
-        }
-
-        return counter;
+        return CommentTreeAnalysis.analyze(comments).getMyMentionCount();
     }
 
     public static List<Comment> findMyTagComments(List<Comment> comments) throws BaringoApiException, IOException, URISyntaxException
     {
-        if (comments == null || comments.isEmpty())
-            return null;
-
-        String posterName = ImgurManager.client().getAuthenticatedUserName();
-
-        if (posterName == null || posterName.trim().isEmpty())
-            return null;
-
-        List<Comment> result = new LinkedList<>();
-
-
-        List<Comment> commentTier = comments;
-
-        while (!commentTier.isEmpty())
-        {
-            List<Comment> newTier = new LinkedList<>();
-
-            for (Comment c : commentTier)
-            {
-                newTier.addAll(c.getChildren());
-
-                if (c.getAuthorName().equals(posterName))
-                {
-                    if (pureMentionCommentPattern.matcher(c.getComment()).matches())
-                    {
-                        result.add(c);
-                    }
-                }
-            }
-
-            commentTier = newTier;
-        }
-
-        return result;
+        return CommentTreeAnalysis.analyze(comments).getMyTagComments();
     }
 
 
     //endregion
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
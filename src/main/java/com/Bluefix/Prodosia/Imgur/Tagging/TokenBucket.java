@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.Tagging;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that limits the rate at which comments are posted.
+ *
+ * The bucket holds at most `capacity` tokens, which allows for a burst of that many
+ * comments. A new token is added every `refillInterval` milliseconds.
+ */
+public class TokenBucket
+{
+    private final int capacity;
+    private long refillInterval;
+    private final LongSupplier clock;
+
+    private int tokens;
+
+    /**
+     * The moment at which the last token was added.
+     */
+    private long lastRefill;
+
+    /**
+     * Create a new token bucket that starts out full.
+     * @param capacity The maximum amount of tokens.
+     * @param refillInterval The amount of milliseconds after which a token is added.
+     */
+    public TokenBucket(int capacity, long refillInterval)
+    {
+        this(capacity, refillInterval, System::currentTimeMillis);
+    }
+
+    /**
+     * Create a new token bucket that starts out full.
+     * @param capacity The maximum amount of tokens.
+     * @param refillInterval The amount of milliseconds after which a token is added.
+     * @param clock The source of the current time in milliseconds.
+     */
+    TokenBucket(int capacity, long refillInterval, LongSupplier clock)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The capacity of the token bucket must be positive");
+
+        if (refillInterval < 1)
+            throw new IllegalArgumentException("The refill interval of the token bucket must be positive");
+
+        this.capacity = capacity;
+        this.refillInterval = refillInterval;
+        this.clock = clock;
+
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    private void refill()
+    {
+        long now = clock.getAsLong();
+        long added = (now - lastRefill) / refillInterval;
+
+        if (added <= 0)
+            return;
+
+        if (tokens + added >= capacity)
+        {
+            // a full bucket doesn't save up time towards the next token.
+            tokens = capacity;
+            lastRefill = now;
+        }
+        else
+        {
+            tokens += added;
+            lastRefill += added * refillInterval;
+        }
+    }
+
+    /**
+     * Change the amount of milliseconds after which a token is added.
+     * The tokens that were added with the previous interval are kept.
+     * @param refillInterval The amount of milliseconds after which a token is added.
+     */
+    public synchronized void setRefillInterval(long refillInterval)
+    {
+        if (refillInterval < 1)
+            throw new IllegalArgumentException("The refill interval of the token bucket must be positive");
+
+        refill();
+
+        this.refillInterval = refillInterval;
+    }
+
+    /**
+     * Take a token from the bucket if one is available.
+     * @return True iff a token was taken.
+     */
+    public synchronized boolean tryAcquire()
+    {
+        refill();
+
+        if (tokens <= 0)
+            return false;
+
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Retrieve the amount of tokens that are currently available.
+     */
+    public synchronized int available()
+    {
+        refill();
+
+        return tokens;
+    }
+
+    /**
+     * Retrieve the amount of milliseconds until a token becomes available.
+     * @return 0 if a token is available right now.
+     */
+    public synchronized long millisUntilAvailable()
+    {
+        refill();
+
+        if (tokens > 0)
+            return 0;
+
+        return Math.max(0, lastRefill + refillInterval - clock.getAsLong());
+    }
+}
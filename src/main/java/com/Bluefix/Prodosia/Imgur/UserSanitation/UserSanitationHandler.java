@@ -22,8 +22,7 @@
 
 package com.Bluefix.Prodosia.Imgur.UserSanitation;
 
-import com.Bluefix.Prodosia.DataHandler.UserHandler;
-import com.Bluefix.Prodosia.DataType.User.User;
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.Bluefix.Prodosia.SQLite.SqlDatabase;
 
 import java.sql.PreparedStatement;
@@ -123,30 +122,37 @@ public class UserSanitationHandler
      */
     private static void initializeQueue(HashSet<Long> exclude) throws SQLException
     {
-        // initialize a HashSet with all the Imgur-ids from the existing users.
-        HashSet<Long> imgurIds = new HashSet<>();
-
-        ArrayList<User> users = UserHandler.handler().getAll();
-
-        for (User u : users)
+        // copy the Imgur-ids of all existing users within the database, so the
+        // users never have to be loaded in memory. The excluded entries are filtered
+        // in the selection, so existing entries in the queue are left untouched.
+        StringBuilder query0 = new StringBuilder(
+                "INSERT OR IGNORE INTO UserSanitation (imgurId) " +
+                "SELECT imgurId FROM User " +
+                "WHERE id IN (SELECT userId FROM UserSubscription)");
+
+        if (!exclude.isEmpty())
         {
-            if (exclude.contains(u.getImgurId()))
-                continue;
+            query0.append(" AND imgurId NOT IN (");
+
+            for (int i = 0; i < exclude.size(); i++)
+                query0.append(i == 0 ? "?" : ",?");
 
-            imgurIds.add(u.getImgurId());
+            query0.append(")");
         }
 
-        // add all items to the database.
-        for (Long l : imgurIds)
-        {
-            String query =
-                    "INSERT INTO UserSanitation (imgurId) VALUES (?);";
+        query0.append(";");
 
-            PreparedStatement prep = SqlDatabase.getStatement(query);
-            prep.setLong(1, l);
-            SqlDatabase.execute(prep);
-            prep.close();
-        }
+        PreparedStatement prep0 = SqlDatabase.getStatement(query0.toString());
+
+        int index = 1;
+
+        for (Long l : exclude)
+            prep0.setLong(index++, l);
+
+        SqlBuilder sb = SqlBuilder.Builder();
+        sb.execute(prep0);
+
+        sb.commit();
     }
 
 }
@@ -26,6 +26,7 @@ import com.Bluefix.Prodosia.DataHandler.UserHandler;
 import com.Bluefix.Prodosia.DataType.User.User;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ApiDistribution;
 import com.Bluefix.Prodosia.Imgur.ImgurApi.ImgurManager;
+import com.Bluefix.Prodosia.Imgur.ImgurApi.RateLimitObserver;
 import com.Bluefix.Prodosia.Module.ImgurIntervalRunner;
 import com.github.kskelm.baringo.model.Account;
 
@@ -110,6 +111,7 @@ public class UserSanitationModule extends ImgurIntervalRunner
             // an exception is annoying, but could indicate something simple (like
             // the Imgur servers being overloaded). As such, it shouldn't be considered
             // decisive (however, the API request should be considered used nonetheless).
+            RateLimitObserver.handler().notifyException(e);
             return;
         }
 
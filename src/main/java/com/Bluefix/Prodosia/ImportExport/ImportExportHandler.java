@@ -137,7 +137,7 @@ public class ImportExportHandler
         Map<Long, Long> idMap = new HashMap<>();
 
         // retrieve all currently known taglists.
-        ArrayList<Taglist> dbTaglists = TaglistHandler.handler().getAll();
+        List<Taglist> dbTaglists = TaglistHandler.handler().getAll();
 
         // loop through all taglists to be imported.
         for (JsonTaglist tl : taglists)
@@ -187,7 +187,7 @@ public class ImportExportHandler
             return;
 
         // retrieve all currently known trackers.
-        ArrayList<Tracker> dbTrackers = TrackerHandler.handler().getAll();
+        List<Tracker> dbTrackers = TrackerHandler.handler().getAll();
 
         // loop through all trackers to be imported.
         for (JsonTracker t : trackers)
@@ -288,7 +288,7 @@ public class ImportExportHandler
         // split the taglists that were known and replace full values with their actual taglist values.
         String taglists = t.getTaglists();
         String[] split = taglists.split(";");
-        StringBuilder taglistString = new StringBuilder();
+        ArrayList<Long> taglistIds = new ArrayList<>();
 
         for (int i = 0; i < split.length; i++)
         {
@@ -301,7 +301,7 @@ public class ImportExportHandler
 
                 if (actualValue != null)
                 {
-                    taglistString.append(actualValue + ";");
+                    taglistIds.add(actualValue);
                 }
             }
             catch (Exception ex)
@@ -310,7 +310,7 @@ public class ImportExportHandler
             }
         }
 
-        return new TrackerPermissions(t.getType(), taglistString.toString());
+        return new TrackerPermissions(t.getType(), taglistIds);
     }
 
 
@@ -322,7 +322,7 @@ public class ImportExportHandler
             return;
 
         // retrieve all currently known users.
-        ArrayList<User> dbUsers = UserHandler.handler().getAll();
+        List<User> dbUsers = UserHandler.handler().getAll();
 
         for (JsonUser u : users)
         {
@@ -422,7 +422,7 @@ public class ImportExportHandler
             return;
 
         // retrieve all currently known Archives
-        ArrayList<Archive> dbArchives = ArchiveHandler.handler().getAll();
+        List<Archive> dbArchives = ArchiveHandler.handler().getAll();
 
         // loop through all archives to be imported.
         for (JsonArchive a : archives)
@@ -496,7 +496,7 @@ public class ImportExportHandler
 
         // retrieve all taglists.
         List<JsonTaglist> jsonTaglists = new LinkedList<>();
-        ArrayList<Taglist> dbTaglists = TaglistHandler.handler().getAll();
+        List<Taglist> dbTaglists = TaglistHandler.handler().getAll();
 
         for (Taglist t : dbTaglists)
         {
@@ -510,7 +510,7 @@ public class ImportExportHandler
 
         // retrieve all trackers
         List<JsonTracker> jsonTrackers = new LinkedList<>();
-        ArrayList<Tracker> dbTrackers = TrackerHandler.handler().getAll();
+        List<Tracker> dbTrackers = TrackerHandler.handler().getAll();
 
         for (Tracker t : dbTrackers)
         {
@@ -528,11 +528,10 @@ public class ImportExportHandler
                             taglistPermissions.toString()));
         }
 
-        // retrieve the users.
+        // retrieve the users, one at a time.
         List<JsonUser> jsonUsers = new LinkedList<>();
-        ArrayList<User> dbUsers = UserHandler.handler().getAll();
 
-        for (User u : dbUsers)
+        UserHandler.forEachUser(u ->
         {
             // parse the user-subscriptions.
             List<JsonUserSubscription> jsonUserSubscriptions = new LinkedList<>();
@@ -542,16 +541,16 @@ public class ImportExportHandler
                 jsonUserSubscriptions.add(
                         new JsonUserSubscription(
                                 us.getTaglist().getId(),
-                                us.getDbRating(),
+                                us.getExportRating(),
                                 us.getFilters()));
             }
 
             jsonUsers.add(new JsonUser(u.getImgurName(), u.getImgurId(), jsonUserSubscriptions));
-        }
+        });
 
         // retrieve the archives.
         List<JsonArchive> jsonArchives = new LinkedList<>();
-        ArrayList<Archive> dbArchives = ArchiveHandler.handler().getAll();
+        List<Archive> dbArchives = ArchiveHandler.handler().getAll();
 
         for (Archive a : dbArchives)
         {
@@ -560,7 +559,7 @@ public class ImportExportHandler
                             a.getTaglist().getId(),
                             a.getDescription(),
                             a.getChannelId(),
-                            a.dbGetRatings(),
+                            a.exportGetRatings(),
                             a.getFilters()));
         }
 
@@ -22,6 +22,7 @@
 
 package com.Bluefix.Prodosia.Module;
 
+import com.Bluefix.Prodosia.Imgur.ImgurApi.RateLimitObserver;
 import com.Bluefix.Prodosia.Logger.Logger;
 
 /**
@@ -41,6 +42,9 @@ import com.Bluefix.Prodosia.Logger.Logger;
  * for a short amount of time, The Imgur API isn't optimally used.
  *
  * Recommendation is to create cycles of about 1/6th of the GET requests, so that it runs every 10 minutes.
+ *
+ * The maximum amount of requests is scaled by the `RateLimitObserver`, so the module runs more often
+ * when Imgur reports plenty of remaining credits and less often when they are running out.
  */
 public abstract class ImgurIntervalRunner implements AutoCloseable
 {
@@ -245,10 +249,20 @@ public abstract class ImgurIntervalRunner implements AutoCloseable
 
             previousProjection = requests;
 
+            // if Imgur is rate limiting us, wait until the back-off has passed.
+            RateLimitObserver limits = RateLimitObserver.handler();
+            long backoff = limits.millisUntilAllowed();
+
+            if (backoff > 0)
+            {
+                Thread.sleep(backoff);
+                startTime += backoff;
+            }
 
 
             // Execute the logic of the underlying module
             runner.run();
+            limits.observe();
 
 
             // wait the required amount of time.
@@ -262,7 +276,9 @@ public abstract class ImgurIntervalRunner implements AutoCloseable
 
 
         /**
-         * Retrieve the amount of time that should be waited before resuming
+         * Retrieve the amount of time that should be waited before resuming.
+         *
+         * The maximum amount of requests is scaled with the remaining credits that Imgur reports.
          * @param requests The amount of requests that are added.
          * @return The amount of milliseconds that should be padded between cycles.
          */
@@ -271,8 +287,10 @@ public abstract class ImgurIntervalRunner implements AutoCloseable
             // retrieve the amount of milliseconds in an hour.
             long hourMillis = 60 * 60 * 1000;
 
+            double maximum = runner.maximumRequests * RateLimitObserver.handler().getRequestFactor();
+
             // use the requests as a portion of the hour to indicate how much sleep is necessary.
-            return (long)Math.ceil(hourMillis * (requests / (double)runner.maximumRequests));
+            return (long)Math.ceil(hourMillis * (requests / maximum));
         }
     }
 
@@ -76,10 +76,113 @@ public class SqlBuilder
 
     //endregion
 
+    //region Transactions
+
+    /**
+     * Begin a transaction for the current thread.
+     *
+     * All statements executed by this thread will be part of the transaction until it is
+     * committed or rolled back. Transactions can be nested, in which case the inner
+     * transaction can be rolled back without affecting the outer one.
+     *
+     * Typical usage:
+     * <pre>
+     * SqlBuilder.beginTransaction();
+     * try
+     * {
+     *     ...
+     * }
+     * catch (Exception e)
+     * {
+     *     SqlBuilder.rollbackTransaction();
+     *     throw e;
+     * }
+     * SqlBuilder.commitTransaction();
+     * </pre>
+     * @throws SQLException if the transaction could not be started.
+     */
+    public static void beginTransaction() throws SQLException
+    {
+        SqlDatabase.beginTransaction();
+    }
+
+    /**
+     * Begin a transaction for the current thread, which may be committed together with the
+     * writes of other threads.
+     *
+     * If the current thread has not started a transaction yet and a group commit window is set,
+     * the transaction joins the current commit group. In that case, committing it waits until
+     * the group was committed. Otherwise this is the same as `beginTransaction()`.
+     * @throws SQLException if the transaction could not be started.
+     */
+    public static void beginGroupTransaction() throws SQLException
+    {
+        SqlDatabase.beginGroupTransaction();
+    }
+
+    /**
+     * Commit the innermost transaction of the current thread.
+     * If this fails, the transaction will already have been rolled back.
+     * @throws SQLException if the transaction could not be committed.
+     */
+    public static void commitTransaction() throws SQLException
+    {
+        SqlDatabase.commitTransaction();
+    }
+
+    /**
+     * Roll back the innermost transaction of the current thread.
+     * @throws SQLException if the transaction could not be rolled back.
+     */
+    public static void rollbackTransaction() throws SQLException
+    {
+        SqlDatabase.rollbackTransaction();
+    }
+
+    /**
+     * Check whether the current thread is executing a transaction.
+     * @return True iff a transaction was started and not yet completed.
+     */
+    public static boolean inTransaction()
+    {
+        return SqlDatabase.inTransaction();
+    }
+
+    /**
+     * Listener that is notified when the transaction it was added to is completed.
+     */
+    public interface TransactionListener
+    {
+        /**
+         * The outermost transaction was committed. The listeners are notified in the order
+         * in which they were added, while the current thread still holds the write lock.
+         */
+        void committed();
+
+        /**
+         * The transaction or savepoint that the listener was part of was rolled back.
+         */
+        void rolledBack();
+    }
+
+    /**
+     * Add a listener to the innermost transaction of the current thread.
+     *
+     * If the innermost transaction is a savepoint, the listener is only notified of
+     * a commit once the outermost transaction was committed as well.
+     * @param listener The listener to be notified when the transaction completes.
+     */
+    public static void addTransactionListener(TransactionListener listener)
+    {
+        SqlDatabase.addTransactionListener(listener);
+    }
+
+    //endregion
+
     //region builder methods
 
     /**
-     * Commit all the statements to the database.
+     * Commit all the statements to the database. The statements are executed in a single transaction.
      *
      * Data entries will be either
      * Boolean (for execute),
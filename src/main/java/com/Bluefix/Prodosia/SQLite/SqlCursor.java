@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.SQLite;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+/**
+ * A cursor that parses items from a result set on demand, rather than
+ * loading all items in memory at once.
+ *
+ * An item may span multiple consecutive rows. The cursor should always be
+ * closed after use, which closes the underlying result set.
+ * @param <T> The type of item that is parsed.
+ */
+public abstract class SqlCursor<T> implements AutoCloseable
+{
+    /**
+     * An action that is performed on every item of a cursor.
+     * @param <T> The type of item.
+     */
+    @FunctionalInterface
+    public interface Action<T>
+    {
+        void accept(T item) throws Exception;
+    }
+
+    private ResultSet rs;
+    private boolean hasRow;
+
+    /**
+     * Create a new cursor over the result set.
+     * @param rs The result set, positioned before its first row.
+     */
+    protected SqlCursor(ResultSet rs) throws SQLException
+    {
+        this.rs = rs;
+        this.hasRow = rs.next();
+    }
+
+    /**
+     * Parse the item that starts at the current row. The implementation should
+     * advance past all rows of the item by calling `nextRow()`.
+     * @param rs The result set, positioned on the first row of the item.
+     * @return The parsed item.
+     */
+    protected abstract T parse(ResultSet rs) throws SQLException;
+
+    /**
+     * Advance the result set to the next row.
+     * @return True iff the result set is positioned on a row, false if all rows were read.
+     */
+    protected boolean nextRow() throws SQLException
+    {
+        hasRow = rs.next();
+        return hasRow;
+    }
+
+    /**
+     * Returns true iff the cursor has another item.
+     */
+    public boolean hasNext()
+    {
+        return hasRow;
+    }
+
+    /**
+     * Retrieve the next item of the cursor.
+     * @return The next item.
+     */
+    public T next() throws SQLException
+    {
+        if (!hasRow)
+            throw new NoSuchElementException("The cursor does not have any more items.");
+
+        return parse(rs);
+    }
+
+    /**
+     * Perform the action on all remaining items of the cursor.
+     * @param action The action to perform.
+     */
+    public void forEachRemaining(Action<? super T> action) throws Exception
+    {
+        while (hasNext())
+            action.accept(next());
+    }
+
+    /**
+     * Close the cursor and its result set.
+     */
+    @Override
+    public void close() throws SQLException
+    {
+        hasRow = false;
+
+        if (!rs.isClosed())
+            rs.close();
+    }
+}
@@ -27,6 +27,11 @@ import com.Bluefix.Prodosia.Prefix.CommandPrefix;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class SqlDatabase
 {
@@ -35,11 +40,83 @@ public class SqlDatabase
     /**
      * The current expected version of the database.
      */
-    public static final int DatabaseVersion = 1;
+    public static final int DatabaseVersion = 6;
+
+    /**
+     * The version of a freshly created database, before any migrations were applied.
+     */
+    public static final int BaseVersion = 1;
+
     public static final String CreatedBy =
             "Bluefix Development";
 
+    public static final String EnvVarBusyTimeout = "ENV_DB_BUSY_TIMEOUT";
+    public static final String EnvVarReaderConnections = "ENV_DB_READER_CONNECTIONS";
+    public static final String EnvVarGroupCommitWindow = "ENV_DB_GROUP_COMMIT_WINDOW";
+    public static final String EnvVarStatementCacheSize = "ENV_DB_STATEMENT_CACHE_SIZE";
+
+    /**
+     * The default amount of milliseconds a connection will wait on a lock held by another connection.
+     */
+    public static final int DefaultBusyTimeout = 5000;
+
+    /**
+     * The default amount of read-only connections next to the single write connection.
+     */
+    public static final int DefaultReaderConnections = 3;
+
+    /**
+     * The default group commit window in milliseconds. A value of 0 disables group commits.
+     */
+    public static final int DefaultGroupCommitWindow = 0;
+
+    private static final String DatabaseUrl = "jdbc:sqlite:database.db";
+
+    /**
+     * The connection that performs all writes to the database.
+     */
     private Connection conn;
+    private StatementCache connCache;
+
+    /**
+     * Read-only connections. With WAL journaling these can read
+     * concurrently with each other and with the write connection.
+     */
+    private Connection[] readers;
+    private StatementCache[] readerCaches;
+    private AtomicInteger readerIndex;
+
+    /**
+     * Lock that serializes all work on the write connection.
+     */
+    private ReentrantLock writeLock;
+
+    /**
+     * The amount of nested transactions on the write connection.
+     * Only accessed by the thread that holds the write lock.
+     */
+    private int transactionDepth;
+
+    /**
+     * The listeners of every nested transaction on the write connection, by depth.
+     * Only accessed by the thread that holds the write lock.
+     */
+    private ArrayList<ArrayList<SqlBuilder.TransactionListener>> transactionListeners;
+
+    /**
+     * The group of writes that is currently waiting to be committed.
+     * Only accessed by the thread that holds the write lock.
+     */
+    private CommitGroup commitGroup;
+
+    /**
+     * The commit group that the outermost transaction of the current thread joined, or null
+     * if it is a regular transaction. Only accessed by the thread that holds the write lock.
+     */
+    private CommitGroup joinedGroup;
+    private boolean joinedGroupLeader;
+
+    private volatile int groupCommitWindow;
 
     //endregion
 
@@ -47,7 +124,16 @@ public class SqlDatabase
 
     private SqlDatabase()
     {
-
+        this.readers = new Connection[0];
+        this.readerCaches = new StatementCache[0];
+        this.readerIndex = new AtomicInteger(0);
+        this.writeLock = new ReentrantLock();
+        this.transactionDepth = 0;
+        this.transactionListeners = new ArrayList<>();
+        this.commitGroup = null;
+        this.joinedGroup = null;
+        this.joinedGroupLeader = false;
+        this.groupCommitWindow = parseEnvironmentVariable(EnvVarGroupCommitWindow, DefaultGroupCommitWindow);
     }
 
     private static SqlDatabase myDatabase;
@@ -62,6 +148,7 @@ public class SqlDatabase
                 myDatabase.connect();
                 //myDatabase.conn.setAutoCommit(false);
                 myDatabase.updateDatabase();
+                myDatabase.connectReaders();
 
             } catch (SQLException e)
             {
@@ -78,19 +165,102 @@ public class SqlDatabase
 
     private void connect() throws SQLException
     {
-        String url = "jdbc:sqlite:database.db";
+        conn = DriverManager.getConnection(DatabaseUrl);
+        connCache = new StatementCache(conn, getStatementCacheSize());
 
-        conn = DriverManager.getConnection(url);
+        // WAL journaling allows the read-only connections to keep reading while a write is in progress.
+        executeStatement(conn, "PRAGMA journal_mode=WAL;");
+        executeStatement(conn, "PRAGMA busy_timeout=" + getBusyTimeout() + ";");
 
         System.out.println("Database was connected");
     }
 
+    /**
+     * Open the read-only connections. This is done after the database was created / updated,
+     * since the readers are not allowed to change the schema.
+     */
+    private void connectReaders() throws SQLException
+    {
+        int amount = getReaderConnections();
+        Connection[] tmpReaders = new Connection[amount];
+        StatementCache[] tmpCaches = new StatementCache[amount];
+
+        for (int i = 0; i < amount; i++)
+        {
+            tmpReaders[i] = DriverManager.getConnection(DatabaseUrl);
+            tmpCaches[i] = new StatementCache(tmpReaders[i], getStatementCacheSize());
+
+            executeStatement(tmpReaders[i], "PRAGMA busy_timeout=" + getBusyTimeout() + ";");
+            executeStatement(tmpReaders[i], "PRAGMA query_only=1;");
+        }
+
+        readerCaches = tmpCaches;
+        readers = tmpReaders;
+    }
+
+    /**
+     * Execute a single statement on the specified connection.
+     */
+    private static void executeStatement(Connection connection, String sql) throws SQLException
+    {
+        Statement s = connection.createStatement();
+        s.execute(sql);
+        s.close();
+    }
+
+    /**
+     * Retrieve the busy timeout (in milliseconds) for each connection.
+     * @return The value from the environment variable if available, otherwise the default busy timeout.
+     */
+    private static int getBusyTimeout()
+    {
+        return parseEnvironmentVariable(EnvVarBusyTimeout, DefaultBusyTimeout);
+    }
+
+    /**
+     * Retrieve the amount of read-only connections. A value of 0 will
+     * execute all statements on the write connection.
+     * @return The value from the environment variable if available, otherwise the default amount.
+     */
+    private static int getReaderConnections()
+    {
+        return parseEnvironmentVariable(EnvVarReaderConnections, DefaultReaderConnections);
+    }
+
+    /**
+     * Retrieve the amount of idle prepared statements that are cached for each connection.
+     * @return The value from the environment variable if available, otherwise the default capacity.
+     */
+    private static int getStatementCacheSize()
+    {
+        return parseEnvironmentVariable(EnvVarStatementCacheSize, StatementCache.DefaultCapacity);
+    }
+
+    private static int parseEnvironmentVariable(String name, int defaultValue)
+    {
+        String value = System.getenv(name);
+
+        if (value == null)
+            return defaultValue;
+
+        try
+        {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        }
+        catch (NumberFormatException e)
+        {
+            e.printStackTrace();
+            return defaultValue;
+        }
+    }
+
     //endregion
 
     //region Update the database
 
     /**
-     * Generate the database from the latest design.
+     * Generate the database from the base design. The migrations will
+     * subsequently update it to the latest design.
      */
     private void createDatabase() throws SQLException
     {
@@ -108,18 +278,7 @@ public class SqlDatabase
             assert(prep.isClosed());
         }
 
-        SqlDatabaseHelper.setVersion(DatabaseVersion, CreatedBy);
-
-        // initialize the default CommandPrefixes
-        try
-        {
-
-            createDefaultPrefix();
-        } catch (Exception e)
-        {
-            // exception is annoying but not detrimental to application functionality
-            e.printStackTrace();
-        }
+        SqlDatabaseHelper.setVersion(BaseVersion, CreatedBy);
     }
 
     /**
@@ -149,15 +308,27 @@ public class SqlDatabase
         try
         {
             // check if the 'Info' table exists.
-            if (!SqlDatabaseHelper.tableExists("Info"))
-            {
+            boolean isNew = !SqlDatabaseHelper.tableExists("Info");
+
+            if (isNew)
                 createDatabase();
-                return;
-            }
 
-            // On subsequent updates, compare the version to the current version and apply the update.
+            // compare the version to the current version and apply the updates.
             int dbVersion = SqlDatabaseHelper.getVersion();
+            migrateDatabase(dbVersion);
 
+            // initialize the default CommandPrefixes
+            if (isNew)
+            {
+                try
+                {
+                    createDefaultPrefix();
+                } catch (Exception e)
+                {
+                    // exception is annoying but not detrimental to application functionality
+                    e.printStackTrace();
+                }
+            }
         }
         catch (Exception e)
         {
@@ -165,6 +336,41 @@ public class SqlDatabase
         }
     }
 
+    /**
+     * Apply all migrations that are newer than the current version of the database.
+     * Each migration is applied in its own transaction, together with the version update.
+     * @param dbVersion The current version of the database.
+     * @throws SQLException If a migration failed. The database will remain at the last successful version.
+     */
+    private void migrateDatabase(int dbVersion) throws SQLException
+    {
+        if (dbVersion > DatabaseVersion)
+        {
+            System.out.println("The database version (" + dbVersion + ") is newer than the application supports (" + DatabaseVersion + ")");
+            return;
+        }
+
+        for (SqlMigration m : SqlMigration.getMigrationsAfter(dbVersion))
+        {
+            SqlBuilder.beginTransaction();
+
+            try
+            {
+                m.migrate();
+                SqlDatabaseHelper.updateVersion(m.getVersion());
+            }
+            catch (Exception e)
+            {
+                SqlBuilder.rollbackTransaction();
+                throw e;
+            }
+
+            SqlBuilder.commitTransaction();
+
+            System.out.println("Database was migrated to version " + m.getVersion());
+        }
+    }
+
     //endregion
 
     //region Execute queries
@@ -175,7 +381,7 @@ public class SqlDatabase
      * @return null on query failure, otherwise a dataset for each individual query
      * @throws SQLException SQL exception, indicative of an erroneous query.
      */
-    public synchronized static ArrayList<ResultSet> query(PreparedStatement... statement) throws SQLException
+    public static ArrayList<ResultSet> query(PreparedStatement... statement) throws SQLException
     {
         return commitAll(SqlBuilder.QueryType.QUERY, statement);
     }
@@ -186,7 +392,7 @@ public class SqlDatabase
      * @return null on query failure, otherwise a boolean result for each query, indicating success.
      * @throws SQLException SQL exception, indicative of an erroneous query.
      */
-    public synchronized static ArrayList<Boolean> execute(PreparedStatement... statement) throws SQLException
+    public static ArrayList<Boolean> execute(PreparedStatement... statement) throws SQLException
     {
         return commitAll(SqlBuilder.QueryType.EXECUTE, statement);
     }
@@ -197,7 +403,7 @@ public class SqlDatabase
      * @return null on query failure, otherwise an integer for each individual query, indicating the amount of rows changed.
      * @throws SQLException SQL exception, indicative of an erroneous query.
      */
-    public synchronized static ArrayList<Integer> update(PreparedStatement... statement) throws SQLException
+    public static ArrayList<Integer> update(PreparedStatement... statement) throws SQLException
     {
         return commitAll(SqlBuilder.QueryType.UPDATE, statement);
     }
@@ -225,12 +431,102 @@ public class SqlDatabase
 
     /**
      * Execute all queued queries. Will roll back if any are erroneous.
+     *
+     * Queries that write to the database are executed in a single transaction. If the
+     * current thread already started a transaction, they are executed within a savepoint of that
+     * transaction instead. When a group commit window is set, writes from different threads
+     * are gathered and committed together.
      * @param query The queries to be executed.
      * @param <T> The expected return type. Use 'Object' if there are mixed kinds of queries.
      * @return null on query failure, otherwise the dataset of results based on the queries executed.
      * @throws SQLException SQL exception, indicative of an erroneous query.
      */
-    public synchronized static <T extends Object> ArrayList<T> Commit(SqlBuilder.StoredQuery... query) throws SQLException
+    public static <T extends Object> ArrayList<T> Commit(SqlBuilder.StoredQuery... query) throws SQLException
+    {
+        // statements that only read from the read-only connections do not have to wait on the writer.
+        if (!usesWriter(query))
+            return executeQueries(query);
+
+        SqlDatabase db = Database();
+
+        // queries that do not write anything can be executed as-is.
+        if (!containsWrites(query))
+        {
+            db.writeLock.lock();
+
+            try
+            {
+                return executeQueries(query);
+            }
+            finally
+            {
+                db.writeLock.unlock();
+            }
+        }
+
+        if (db.groupCommitWindow > 0 && !inTransaction())
+            return groupCommit(query);
+
+        beginTransaction();
+
+        ArrayList<T> out;
+
+        try
+        {
+            out = executeQueries(query);
+        }
+        catch (Exception e)
+        {
+            rollbackTransaction();
+            throw e;
+        }
+
+        if (out == null)
+        {
+            rollbackTransaction();
+            return null;
+        }
+
+        commitTransaction();
+
+        return out;
+    }
+
+    /**
+     * Check whether any of the queries could write to the database.
+     */
+    private static boolean containsWrites(SqlBuilder.StoredQuery... query)
+    {
+        for (SqlBuilder.StoredQuery q : query)
+        {
+            if (q.type != SqlBuilder.QueryType.QUERY)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Check whether any of the queries was prepared on the write connection.
+     */
+    private static boolean usesWriter(SqlBuilder.StoredQuery... query) throws SQLException
+    {
+        Connection writer = Database().conn;
+
+        for (SqlBuilder.StoredQuery q : query)
+        {
+            if (q.statement.getConnection() == writer)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Execute the queries in order. Rolling back the changes is left to the caller.
+     * @param query The queries to be executed.
+     */
+    private static <T extends Object> ArrayList<T> executeQueries(SqlBuilder.StoredQuery... query) throws SQLException
     {
         // init an arraylist with the proper size.
         ArrayList<T> out = new ArrayList<T>(query.length);
@@ -263,9 +559,6 @@ public class SqlDatabase
                 // print stacktrace.
                 e.printStackTrace();
 
-                // rollback the changes.
-                Database().conn.rollback();
-
                 // close all the statements.
                 for (int j = 0; j < query.length; j++)
                 {
@@ -297,9 +590,6 @@ public class SqlDatabase
             }
         }
 
-        // commit the queries
-        //Database().conn.commit();
-
         // return the results.
         return out;
     }
@@ -309,13 +599,484 @@ public class SqlDatabase
 
     /**
      * Generate a prepared statement from the sql type.
+     *
+     * Statements are cached by their sql text. Closing the statement will
+     * return it to the cache with its parameters cleared.
      * @param sql The sql query
      * @return A prepared SQL Statement.
      * @throws SQLException If the SQL statement is erroneous.
      */
     public static PreparedStatement getStatement(String sql) throws SQLException
     {
-        return Database().conn.prepareStatement(sql);
+        return Database().connCache.getStatement(sql);
+    }
+
+    /**
+     * Generate a prepared statement for a read-only query.
+     *
+     * The statement is prepared on one of the read-only connections, so it
+     * will not wait on the write connection. The query will only see data that was committed,
+     * unless the current thread is executing a transaction.
+     * @param sql The sql query
+     * @return A prepared SQL Statement.
+     * @throws SQLException If the SQL statement is erroneous.
+     */
+    public static PreparedStatement getReadStatement(String sql) throws SQLException
+    {
+        SqlDatabase db = Database();
+        StatementCache[] tmpCaches = db.readerCaches;
+
+        // within a transaction, the query should be able to see the uncommitted changes.
+        if (tmpCaches.length == 0 || db.writeLock.isHeldByCurrentThread())
+            return db.connCache.getStatement(sql);
+
+        int index = Math.floorMod(db.readerIndex.getAndIncrement(), tmpCaches.length);
+        return tmpCaches[index].getStatement(sql);
+    }
+
+    //endregion
+
+    //region Transactions
+
+    /**
+     * A group of writes from several threads that will be committed in a single transaction.
+     */
+    private static class CommitGroup
+    {
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private SQLException error = null;
+
+        /**
+         * The listeners of the transactions that joined this group.
+         */
+        private final ArrayList<SqlBuilder.TransactionListener> listeners = new ArrayList<>();
+    }
+
+    /**
+     * Begin a transaction on the write connection for the current thread.
+     *
+     * Other threads can not write to the database until the transaction is either
+     * committed or rolled back. Nested transactions are implemented as savepoints.
+     * @throws SQLException if the transaction could not be started.
+     */
+    static void beginTransaction() throws SQLException
+    {
+        begin(false);
+    }
+
+    /**
+     * Begin a transaction on the write connection for the current thread, which may be
+     * committed together with the writes of other threads.
+     *
+     * If the current thread did not start a transaction yet and a group commit window is set,
+     * the transaction joins the current commit group. Committing it releases the write lock
+     * and waits until the group was committed. Otherwise this is the same as `beginTransaction()`.
+     * @throws SQLException if the transaction could not be started.
+     */
+    static void beginGroupTransaction() throws SQLException
+    {
+        begin(true);
+    }
+
+    private static void begin(boolean joinGroup) throws SQLException
+    {
+        SqlDatabase db = Database();
+        db.writeLock.lock();
+
+        try
+        {
+            if (db.transactionDepth > 0)
+            {
+                db.executeOnWriter("SAVEPOINT " + savepointName(db.transactionDepth) + ";");
+            }
+            else if (joinGroup && db.groupCommitWindow > 0)
+            {
+                boolean isLeader = db.commitGroup == null;
+
+                if (isLeader)
+                {
+                    db.executeOnWriter("BEGIN IMMEDIATE;");
+                    db.commitGroup = new CommitGroup();
+                }
+
+                // a savepoint ensures that a failure won't affect the other writes in this group.
+                db.executeOnWriter("SAVEPOINT groupcommit;");
+
+                db.joinedGroup = db.commitGroup;
+                db.joinedGroupLeader = isLeader;
+            }
+            else
+            {
+                // writes that are waiting on a group commit should be committed first.
+                db.flushCommitGroup();
+                db.executeOnWriter("BEGIN IMMEDIATE;");
+            }
+
+            db.transactionListeners.add(new ArrayList<>());
+            db.transactionDepth++;
+        }
+        catch (SQLException e)
+        {
+            db.writeLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Commit the innermost transaction of the current thread.
+     *
+     * If committing fails, the transaction will be rolled back before the exception is thrown.
+     * The listeners of a savepoint are handed to the enclosing transaction, the listeners of
+     * the outermost transaction are notified after it was committed.
+     * @throws SQLException if the transaction could not be committed.
+     */
+    static void commitTransaction() throws SQLException
+    {
+        SqlDatabase db = Database();
+        db.assertTransaction();
+
+        db.transactionDepth--;
+        ArrayList<SqlBuilder.TransactionListener> listeners = db.transactionListeners.remove(db.transactionDepth);
+
+        // a transaction that joined a commit group is committed along with the group.
+        CommitGroup group = (db.transactionDepth == 0 ? db.joinedGroup : null);
+        boolean isLeader = db.joinedGroupLeader;
+
+        try
+        {
+            if (group != null)
+            {
+                db.executeOnWriter("RELEASE groupcommit;");
+                group.listeners.addAll(listeners);
+            }
+            else if (db.transactionDepth == 0)
+            {
+                db.executeOnWriter("COMMIT;");
+                notifyCommitted(listeners);
+            }
+            else
+            {
+                db.executeOnWriter("RELEASE " + savepointName(db.transactionDepth) + ";");
+                db.transactionListeners.get(db.transactionDepth - 1).addAll(listeners);
+            }
+        }
+        catch (SQLException e)
+        {
+            try
+            {
+                db.rollback(db.transactionDepth);
+            }
+            finally
+            {
+                notifyRolledBack(listeners);
+            }
+
+            throw e;
+        }
+        finally
+        {
+            if (db.transactionDepth == 0)
+                db.joinedGroup = null;
+
+            db.writeLock.unlock();
+        }
+
+        if (group != null)
+            awaitCommitGroup(db, group, isLeader);
+    }
+
+    /**
+     * Roll back the innermost transaction of the current thread.
+     * @throws SQLException if the transaction could not be rolled back.
+     */
+    static void rollbackTransaction() throws SQLException
+    {
+        SqlDatabase db = Database();
+        db.assertTransaction();
+
+        db.transactionDepth--;
+        ArrayList<SqlBuilder.TransactionListener> listeners = db.transactionListeners.remove(db.transactionDepth);
+
+        try
+        {
+            db.rollback(db.transactionDepth);
+        }
+        finally
+        {
+            try
+            {
+                notifyRolledBack(listeners);
+            }
+            finally
+            {
+                if (db.transactionDepth == 0)
+                    db.joinedGroup = null;
+
+                db.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Add a listener to the innermost transaction of the current thread.
+     * @param listener The listener to be notified when the transaction completes.
+     */
+    static void addTransactionListener(SqlBuilder.TransactionListener listener)
+    {
+        SqlDatabase db = Database();
+        db.assertTransaction();
+
+        db.transactionListeners.get(db.transactionDepth - 1).add(listener);
+    }
+
+    /**
+     * Notify the listeners that their transaction was committed. Requires the write lock.
+     */
+    private static void notifyCommitted(List<SqlBuilder.TransactionListener> listeners)
+    {
+        for (SqlBuilder.TransactionListener l : listeners)
+        {
+            // a failing listener should not affect the others.
+            try
+            {
+                l.committed();
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Notify the listeners that their transaction was rolled back. Requires the write lock.
+     */
+    private static void notifyRolledBack(List<SqlBuilder.TransactionListener> listeners)
+    {
+        for (SqlBuilder.TransactionListener l : listeners)
+        {
+            try
+            {
+                l.rolledBack();
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Check whether the current thread is executing a transaction.
+     * @return True iff the current thread has started a transaction that was not yet completed.
+     */
+    static boolean inTransaction()
+    {
+        SqlDatabase db = Database();
+        return db.writeLock.isHeldByCurrentThread() && db.transactionDepth > 0;
+    }
+
+    /**
+     * Set the group commit window.
+     *
+     * Writes that are not part of an explicit transaction, including the single writes of the
+     * storage handlers, will wait for this amount of milliseconds, so that writes from other
+     * threads can be committed alongside them.
+     * @param milliseconds The window in milliseconds. 0 to disable group commits.
+     */
+    public static void setGroupCommitWindow(int milliseconds)
+    {
+        if (milliseconds < 0)
+            throw new IllegalArgumentException("The group commit window can not be negative.");
+
+        Database().groupCommitWindow = milliseconds;
+    }
+
+    /**
+     * Execute the queries as part of the current commit group.
+     *
+     * The first thread to join a group will commit it after the group commit window
+     * has passed. All threads will wait until their group was committed.
+     */
+    private static <T extends Object> ArrayList<T> groupCommit(SqlBuilder.StoredQuery... query) throws SQLException
+    {
+        SqlDatabase db = Database();
+        CommitGroup group;
+        boolean isLeader;
+        ArrayList<T> out;
+
+        db.writeLock.lock();
+
+        try
+        {
+            isLeader = db.commitGroup == null;
+
+            if (isLeader)
+            {
+                db.executeOnWriter("BEGIN IMMEDIATE;");
+                db.commitGroup = new CommitGroup();
+            }
+
+            group = db.commitGroup;
+
+            // a savepoint ensures that a failure won't affect the other writes in this group.
+            db.executeOnWriter("SAVEPOINT groupcommit;");
+
+            try
+            {
+                out = executeQueries(query);
+            }
+            catch (Exception e)
+            {
+                db.executeOnWriter("ROLLBACK TO groupcommit;");
+                db.executeOnWriter("RELEASE groupcommit;");
+                throw e;
+            }
+
+            if (out == null)
+                db.executeOnWriter("ROLLBACK TO groupcommit;");
+
+            db.executeOnWriter("RELEASE groupcommit;");
+        }
+        finally
+        {
+            db.writeLock.unlock();
+        }
+
+        awaitCommitGroup(db, group, isLeader);
+
+        return out;
+    }
+
+    /**
+     * Wait until the specified group was committed. The leader of the group
+     * will commit it once the group commit window has passed.
+     */
+    private static void awaitCommitGroup(SqlDatabase db, CommitGroup group, boolean isLeader) throws SQLException
+    {
+        try
+        {
+            if (isLeader && !group.completed.await(db.groupCommitWindow, TimeUnit.MILLISECONDS))
+            {
+                db.writeLock.lock();
+
+                try
+                {
+                    if (db.commitGroup == group)
+                        db.flushCommitGroup();
+                }
+                finally
+                {
+                    db.writeLock.unlock();
+                }
+            }
+
+            group.completed.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("SqlDatabase exception: Interrupted while waiting on the group commit", e);
+        }
+
+        if (group.error != null)
+            throw new SQLException("SqlDatabase exception: The group commit failed", group.error);
+    }
+
+    /**
+     * Commit the current commit group, if any. Requires the write lock.
+     */
+    private void flushCommitGroup()
+    {
+        if (commitGroup == null)
+            return;
+
+        CommitGroup group = commitGroup;
+        commitGroup = null;
+
+        try
+        {
+            executeOnWriter("COMMIT;");
+            notifyCommitted(group.listeners);
+        }
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+            group.error = e;
+
+            try
+            {
+                executeOnWriter("ROLLBACK;");
+            }
+            catch (SQLException ex)
+            {
+                // ignore
+            }
+
+            notifyRolledBack(group.listeners);
+        }
+        finally
+        {
+            group.completed.countDown();
+        }
+    }
+
+    /**
+     * Roll back the transaction or savepoint at the specified depth. Requires the write lock.
+     */
+    private void rollback(int depth) throws SQLException
+    {
+        if (depth == 0 && joinedGroup != null)
+        {
+            // only roll back the writes of this thread, the rest of the group is unaffected.
+            executeOnWriter("ROLLBACK TO groupcommit;");
+            executeOnWriter("RELEASE groupcommit;");
+        }
+        else if (depth == 0)
+        {
+            executeOnWriter("ROLLBACK;");
+        }
+        else
+        {
+            executeOnWriter("ROLLBACK TO " + savepointName(depth) + ";");
+            executeOnWriter("RELEASE " + savepointName(depth) + ";");
+        }
+    }
+
+    private void assertTransaction()
+    {
+        if (!writeLock.isHeldByCurrentThread() || transactionDepth <= 0)
+            throw new IllegalStateException("The current thread has not started a transaction.");
+    }
+
+    private void executeOnWriter(String sql) throws SQLException
+    {
+        executeStatement(conn, sql);
+    }
+
+    private static String savepointName(int depth)
+    {
+        return "transaction" + depth;
+    }
+
+    //endregion
+
+    //region Statement cache statistics
+
+    /**
+     * Retrieve the amount of prepared statements that were reused from the statement cache.
+     */
+    public static long getStatementCacheHits()
+    {
+        return StatementCache.getHits();
+    }
+
+    /**
+     * Retrieve the amount of prepared statements that had to be prepared by the database.
+     */
+    public static long getStatementCacheMisses()
+    {
+        return StatementCache.getMisses();
     }
 
     //endregion
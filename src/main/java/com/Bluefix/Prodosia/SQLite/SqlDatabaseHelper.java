@@ -92,6 +92,23 @@ public class SqlDatabaseHelper
     }
 
 
+    /**
+     * Update the version of the database, without changing its creator.
+     * @param version The new version of the database.
+     * @throws SQLException If the version could not be updated.
+     */
+    public static void updateVersion(int version) throws SQLException
+    {
+        String sql =
+                "UPDATE Info SET version = ?;";
+
+        PreparedStatement s = SqlDatabase.getStatement(sql);
+        s.setInt(1, version);
+
+        if (SqlDatabase.update(s) == null)
+            throw new SQLException("SqlDatabaseHelper exception: The version could not be updated");
+    }
+
     //endregion
 
 
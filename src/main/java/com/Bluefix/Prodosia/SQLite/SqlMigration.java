@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.SQLite;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A forward migration of the database schema.
+ *
+ * Migrations are applied in order of their version, each within its own transaction.
+ * After a migration was applied, the version in the Info table is updated to
+ * the version of the migration.
+ */
+public abstract class SqlMigration
+{
+    //region Migrations
+
+    /**
+     * All migrations, ordered by their version. The last migration
+     * should match the current database version.
+     */
+    private static final List<SqlMigration> Migrations =
+            Collections.unmodifiableList(Arrays.asList(
+                    new StatementMigration(2, SqlStatement.createIndexStatement()),
+                    new StatementMigration(3, SqlStatement.createUniqueSubscriptionStatement()),
+                    new StatementMigration(4, SqlStatement.createBitmaskStatement()),
+                    new StatementMigration(5, SqlStatement.createPostingCursorStatement()),
+                    new StatementMigration(6, SqlStatement.createProcessedEntryStatement())
+            ));
+
+    /**
+     * Retrieve all migrations, ordered by their version.
+     * @return An ordered list of migrations.
+     */
+    public static List<SqlMigration> getMigrations()
+    {
+        return Migrations;
+    }
+
+    /**
+     * Retrieve the migrations that should be applied to a database with the specified version.
+     * @param version The current version of the database.
+     * @return The migrations with a higher version, ordered by their version.
+     */
+    public static List<SqlMigration> getMigrationsAfter(int version)
+    {
+        ArrayList<SqlMigration> out = new ArrayList<>();
+
+        for (SqlMigration m : Migrations)
+        {
+            if (m.getVersion() > version)
+                out.add(m);
+        }
+
+        return out;
+    }
+
+    //endregion
+
+    //region Variables and constructor
+
+    private int version;
+
+    protected SqlMigration(int version)
+    {
+        this.version = version;
+    }
+
+    /**
+     * Retrieve the database version this migration will result in.
+     * @return The version of the database after this migration.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    //endregion
+
+    //region Migration
+
+    /**
+     * Apply the migration. This is executed within a transaction.
+     * @throws SQLException If the migration failed.
+     */
+    protected abstract void migrate() throws SQLException;
+
+    /**
+     * Execute the sql statements in order.
+     * @param sql The sql statements to be executed.
+     * @throws SQLException If any of the statements failed.
+     */
+    protected static void executeAll(String... sql) throws SQLException
+    {
+        for (String s : sql)
+        {
+            PreparedStatement prep = SqlDatabase.getStatement(s);
+
+            if (SqlDatabase.execute(prep) == null)
+                throw new SQLException("SqlMigration exception: The statement could not be executed (" + s + ")");
+        }
+    }
+
+    /**
+     * A migration that only consists of sql statements.
+     */
+    private static class StatementMigration extends SqlMigration
+    {
+        private String[] statements;
+
+        private StatementMigration(int version, String[] statements)
+        {
+            super(version);
+            this.statements = statements;
+        }
+
+        @Override
+        protected void migrate() throws SQLException
+        {
+            executeAll(statements);
+        }
+    }
+
+    //endregion
+}
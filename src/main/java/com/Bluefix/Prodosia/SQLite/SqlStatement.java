@@ -22,6 +22,8 @@
 
 package com.Bluefix.Prodosia.SQLite;
 
+import com.Bluefix.Prodosia.DataType.Taglist.Rating;
+
 /**
  * Prepared SQL statements.
  */
@@ -114,6 +116,210 @@ public class SqlStatement
 
     //endregion
 
+    //region Migrations
+
+    /**
+     * Version 2: secondary indexes for the user, subscription and archive lookups.
+     */
+    public static String[] createIndexStatement()
+    {
+        return new String[]{
+                /* --- UserSubscription --- */
+                        "CREATE INDEX IF NOT EXISTS UserSubscription_userId " +
+                        "ON UserSubscription (userId); ",
+                        "CREATE INDEX IF NOT EXISTS UserSubscription_taglistId " +
+                        "ON UserSubscription (taglistId); ",
+                /* --- User --- */
+                        "CREATE INDEX IF NOT EXISTS User_name " +
+                        "ON User (name); ",
+                /* --- Archive --- */
+                        "CREATE INDEX IF NOT EXISTS Archive_taglistId " +
+                        "ON Archive (taglistId); "
+        };
+    }
+
+    /**
+     * Version 3: unique user subscriptions per taglist, which allows them to be upserted.
+     */
+    public static String[] createUniqueSubscriptionStatement()
+    {
+        return new String[]{
+                /* --- remove duplicate subscriptions, keeping the most recent one --- */
+                        "DELETE FROM UserSubscription " +
+                        "WHERE rowid NOT IN (" +
+                            "SELECT MAX(rowid) FROM UserSubscription " +
+                            "GROUP BY userId, taglistId); ",
+                /* --- UserSubscription --- */
+                        "CREATE UNIQUE INDEX IF NOT EXISTS UserSubscription_userId_taglistId " +
+                        "ON UserSubscription (userId, taglistId); ",
+                /* --- superseded by the unique index --- */
+                        "DROP INDEX IF EXISTS UserSubscription_userId; "
+        };
+    }
+
+    /**
+     * Version 4: rating sets are stored as bitmasks and the taglists of
+     * tracker permissions and tag requests are moved into join tables.
+     */
+    public static String[] createBitmaskStatement()
+    {
+        return new String[]{
+                /* --- UserSubscription --- */
+                        "CREATE TABLE UserSubscription_v4 (" +
+                        "userId integer, " +
+                        "taglistId integer, " +
+                        "ratings integer NOT NULL DEFAULT 0, " +
+                        "filters text); ",
+                        "INSERT INTO UserSubscription_v4 " +
+                        "(userId, taglistId, ratings, filters) " +
+                        "SELECT userId, taglistId, " + ratingMask("ratings") + ", filters " +
+                        "FROM UserSubscription; ",
+                        "DROP TABLE UserSubscription; ",
+                        "ALTER TABLE UserSubscription_v4 RENAME TO UserSubscription; ",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS UserSubscription_userId_taglistId " +
+                        "ON UserSubscription (userId, taglistId); ",
+                        "CREATE INDEX IF NOT EXISTS UserSubscription_taglistId " +
+                        "ON UserSubscription (taglistId); ",
+                /* --- Archive --- */
+                        "CREATE TABLE Archive_v4 (" +
+                        "taglistId integer, " +
+                        "description text, " +
+                        "channel text, " +
+                        "ratings integer NOT NULL DEFAULT 0, " +
+                        "filters text); ",
+                        "INSERT INTO Archive_v4 " +
+                        "(taglistId, description, channel, ratings, filters) " +
+                        "SELECT taglistId, description, channel, " + ratingMask("ratings") + ", filters " +
+                        "FROM Archive; ",
+                        "DROP TABLE Archive; ",
+                        "ALTER TABLE Archive_v4 RENAME TO Archive; ",
+                        "CREATE INDEX IF NOT EXISTS Archive_taglistId " +
+                        "ON Archive (taglistId); ",
+                /* --- PermissionTaglist --- */
+                        "CREATE TABLE IF NOT EXISTS PermissionTaglist (" +
+                        "trackerId integer, " +
+                        "taglistId integer, " +
+                        "UNIQUE(trackerId, taglistId)); ",
+                        "INSERT OR IGNORE INTO PermissionTaglist " +
+                        "(trackerId, taglistId) " +
+                        splitTaglists("trackerId", "Permission") +
+                        "SELECT trackerId, CAST(taglistId AS integer) " +
+                        "FROM Split WHERE taglistId <> ''; ",
+                        "CREATE INDEX IF NOT EXISTS PermissionTaglist_taglistId " +
+                        "ON PermissionTaglist (taglistId); ",
+                /* --- Permission --- */
+                        "CREATE TABLE Permission_v4 (" +
+                        "trackerId integer PRIMARY KEY, " +
+                        "isAdmin integer); ",
+                        "INSERT INTO Permission_v4 " +
+                        "(trackerId, isAdmin) " +
+                        "SELECT trackerId, isAdmin FROM Permission; ",
+                        "DROP TABLE Permission; ",
+                        "ALTER TABLE Permission_v4 RENAME TO Permission; ",
+                /* --- TagQueueTaglist --- */
+                        "CREATE TABLE IF NOT EXISTS TagQueueTaglist (" +
+                        "imgurId text, " +
+                        "parentComment integer, " +
+                        "taglistId integer, " +
+                        "UNIQUE(imgurId, parentComment, taglistId)); ",
+                        "INSERT OR IGNORE INTO TagQueueTaglist " +
+                        "(imgurId, parentComment, taglistId) " +
+                        splitTaglists("imgurId, parentComment", "TagQueue") +
+                        "SELECT imgurId, parentComment, CAST(taglistId AS integer) " +
+                        "FROM Split WHERE taglistId <> ''; ",
+                /* --- TagQueue --- */
+                        "CREATE TABLE TagQueue_v4 (" +
+                        "imgurId text, " +
+                        "parentComment integer, " +
+                        "rating integer, " +
+                        "filters text, " +
+                        "cleanComments integer, " +
+                        "UNIQUE(imgurId, parentComment)); ",
+                        "INSERT INTO TagQueue_v4 " +
+                        "(imgurId, parentComment, rating, filters, cleanComments) " +
+                        "SELECT imgurId, parentComment, rating, filters, cleanComments " +
+                        "FROM TagQueue; ",
+                        "DROP TABLE TagQueue; ",
+                        "ALTER TABLE TagQueue_v4 RENAME TO TagQueue; "
+        };
+    }
+
+    /**
+     * Version 5: posting cursors for the tag requests and comment requests, so that
+     * posting can resume after a restart.
+     */
+    public static String[] createPostingCursorStatement()
+    {
+        return new String[]{
+                /* --- TagQueue --- */
+                        "ALTER TABLE TagQueue ADD COLUMN lines text; ",
+                        "ALTER TABLE TagQueue ADD COLUMN posted integer NOT NULL DEFAULT 0; ",
+                        "ALTER TABLE TagQueue ADD COLUMN lastCommentId integer NOT NULL DEFAULT -1; ",
+                        "ALTER TABLE TagQueue ADD COLUMN nextEligible integer NOT NULL DEFAULT 0; ",
+                /* --- CommentQueue --- */
+                        "ALTER TABLE CommentQueue ADD COLUMN posted integer NOT NULL DEFAULT 0; ",
+                        "ALTER TABLE CommentQueue ADD COLUMN lastCommentId integer NOT NULL DEFAULT -1; "
+        };
+    }
+
+    /**
+     * Version 6: log of the entries whose commands were executed, so that they are not
+     * executed again when they are scanned a second time.
+     */
+    public static String[] createProcessedEntryStatement()
+    {
+        return new String[]{
+                /* --- ProcessedEntry --- */
+                        "CREATE TABLE IF NOT EXISTS ProcessedEntry (" +
+                        "type integer NOT NULL, " +
+                        "entryId integer NOT NULL, " +
+                        "processedAt integer NOT NULL, " +
+                        "PRIMARY KEY(type, entryId)); ",
+                        "CREATE INDEX IF NOT EXISTS ProcessedEntry_processedAt " +
+                        "ON ProcessedEntry (processedAt); "
+        };
+    }
+
+    /**
+     * Expression that converts a ";"-separated list of rating values into a bitmask.
+     * @param column The column that contains the rating values.
+     */
+    private static String ratingMask(String column)
+    {
+        StringBuilder sb = new StringBuilder("(");
+
+        for (Rating r : Rating.values())
+        {
+            if (sb.length() > 1)
+                sb.append(" | ");
+
+            sb.append("(CASE WHEN ';' || " + column + " || ';' LIKE '%;" + r.getValue() + ";%' " +
+                    "THEN " + r.getMask() + " ELSE 0 END)");
+        }
+
+        return sb.append(")").toString();
+    }
+
+    /**
+     * Common table expression `Split` that splits the ";"-separated taglists of
+     * a table into separate rows, identified by the specified key columns.
+     * @param keys The key columns of the table.
+     * @param table The table with a taglists column.
+     */
+    private static String splitTaglists(String keys, String table)
+    {
+        return  "WITH RECURSIVE Split(" + keys + ", taglistId, rest) AS (" +
+                    "SELECT " + keys + ", '', taglists || ';' " +
+                    "FROM " + table + " WHERE taglists IS NOT NULL " +
+                    "UNION ALL " +
+                    "SELECT " + keys + ", " +
+                        "substr(rest, 1, instr(rest, ';') - 1), " +
+                        "substr(rest, instr(rest, ';') + 1) " +
+                    "FROM Split WHERE instr(rest, ';') > 0) ";
+    }
+
+    //endregion
+
 
 
 
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.SQLite;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of prepared statements for a single connection, keyed by their SQL text.
+ *
+ * Statements retrieved from the cache can be used and closed like any other
+ * prepared statement. Closing the statement clears its parameters and returns it
+ * to the cache, so the next request for the same SQL text does not have to prepare it again.
+ * When the cache is full, the statements for the least recently used SQL text are closed.
+ */
+class StatementCache
+{
+    //region Variables
+
+    /**
+     * The default amount of idle statements that will be kept for each connection.
+     */
+    public static final int DefaultCapacity = 64;
+
+    private static final AtomicLong hits = new AtomicLong(0);
+    private static final AtomicLong misses = new AtomicLong(0);
+
+    private Connection connection;
+    private int capacity;
+
+    /**
+     * The idle statements for each SQL text, from least to most recently used.
+     */
+    private LinkedHashMap<String, ArrayDeque<PreparedStatement>> idle;
+    private int idleCount;
+
+    //endregion
+
+    //region Constructor
+
+    StatementCache(Connection connection, int capacity)
+    {
+        if (connection == null)
+            throw new IllegalArgumentException("The connection can not be null.");
+
+        this.connection = connection;
+        this.capacity = Math.max(0, capacity);
+        this.idle = new LinkedHashMap<>(16, 0.75f, true);
+        this.idleCount = 0;
+    }
+
+    //endregion
+
+    //region Cache
+
+    /**
+     * Retrieve a prepared statement for the sql text. The statement is returned to the
+     * cache once it is closed.
+     * @param sql The sql query.
+     * @return A prepared SQL statement.
+     * @throws SQLException If the SQL statement is erroneous.
+     */
+    synchronized PreparedStatement getStatement(String sql) throws SQLException
+    {
+        ArrayDeque<PreparedStatement> queue = idle.get(sql);
+        PreparedStatement statement = (queue == null ? null : queue.poll());
+
+        if (statement != null)
+        {
+            idleCount--;
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+            statement = connection.prepareStatement(sql);
+        }
+
+        return new CachedStatement(this, sql, statement).proxy;
+    }
+
+    /**
+     * Return a statement to the cache.
+     */
+    private synchronized void release(String sql, PreparedStatement statement)
+    {
+        try
+        {
+            statement.clearParameters();
+        }
+        catch (SQLException e)
+        {
+            // a statement that can not be reset should not be reused.
+            closeQuietly(statement);
+            return;
+        }
+
+        ArrayDeque<PreparedStatement> queue = idle.computeIfAbsent(sql, k -> new ArrayDeque<>());
+        queue.push(statement);
+        idleCount++;
+
+        evict();
+    }
+
+    /**
+     * Close the statements for the least recently used sql texts until the cache is within its capacity.
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<String, ArrayDeque<PreparedStatement>>> it = idle.entrySet().iterator();
+
+        while (idleCount > capacity && it.hasNext())
+        {
+            ArrayDeque<PreparedStatement> queue = it.next().getValue();
+
+            for (PreparedStatement statement : queue)
+                closeQuietly(statement);
+
+            idleCount -= queue.size();
+            it.remove();
+        }
+    }
+
+    /**
+     * Close all idle statements.
+     */
+    synchronized void clear()
+    {
+        for (ArrayDeque<PreparedStatement> queue : idle.values())
+        {
+            for (PreparedStatement statement : queue)
+                closeQuietly(statement);
+        }
+
+        idle.clear();
+        idleCount = 0;
+    }
+
+    /**
+     * Retrieve the amount of idle statements in the cache.
+     */
+    synchronized int size()
+    {
+        return idleCount;
+    }
+
+    private static void closeQuietly(PreparedStatement statement)
+    {
+        try
+        {
+            statement.close();
+        }
+        catch (SQLException e)
+        {
+            // ignore
+        }
+    }
+
+    //endregion
+
+    //region Statistics
+
+    /**
+     * Retrieve the amount of statements that were served from a cache.
+     */
+    static long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Retrieve the amount of statements that had to be prepared.
+     */
+    static long getMisses()
+    {
+        return misses.get();
+    }
+
+    //endregion
+
+    //region Cached statement
+
+    /**
+     * Wrapper around a cached statement that returns the statement to the cache
+     * instead of closing it.
+     */
+    private static class CachedStatement implements InvocationHandler
+    {
+        private StatementCache cache;
+        private String sql;
+        private PreparedStatement statement;
+        private PreparedStatement proxy;
+
+        private ResultSet resultSet;
+        private boolean closeOnCompletion;
+        private boolean closed;
+
+        private CachedStatement(StatementCache cache, String sql, PreparedStatement statement)
+        {
+            this.cache = cache;
+            this.sql = sql;
+            this.statement = statement;
+            this.resultSet = null;
+            this.closeOnCompletion = false;
+            this.closed = false;
+
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    this);
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "closeOnCompletion":
+                    closeOnCompletion = true;
+                    return null;
+                case "isCloseOnCompletion":
+                    return closeOnCompletion;
+                case "getConnection":
+                    return statement.getConnection();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + sql + "]";
+            }
+
+            // the underlying statement might already be in use somewhere else.
+            if (closed)
+                throw new SQLException("The statement was already closed.");
+
+            Object result;
+
+            try
+            {
+                result = method.invoke(statement, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+
+            if (result instanceof ResultSet)
+            {
+                resultSet = (ResultSet) result;
+                return new CachedResultSet(this, resultSet).proxy;
+            }
+
+            return result;
+        }
+
+        private synchronized void close() throws SQLException
+        {
+            if (closed)
+                return;
+
+            closed = true;
+
+            // closing the result set will reset the statement.
+            if (resultSet != null && !resultSet.isClosed())
+                resultSet.close();
+
+            resultSet = null;
+            cache.release(sql, statement);
+        }
+
+        private synchronized void resultSetClosed(ResultSet rs) throws SQLException
+        {
+            if (resultSet == rs)
+                resultSet = null;
+
+            if (closeOnCompletion)
+                close();
+        }
+    }
+
+    /**
+     * Wrapper around a result set that returns its statement to the cache
+     * once it is closed, if requested.
+     */
+    private static class CachedResultSet implements InvocationHandler
+    {
+        private CachedStatement statement;
+        private ResultSet resultSet;
+        private ResultSet proxy;
+
+        private CachedResultSet(CachedStatement statement, ResultSet resultSet)
+        {
+            this.statement = statement;
+            this.resultSet = resultSet;
+
+            this.proxy = (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class },
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "getStatement":
+                    return statement.proxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+            }
+
+            Object result;
+
+            try
+            {
+                result = method.invoke(resultSet, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+
+            if ("close".equals(method.getName()))
+                statement.resultSetClosed(resultSet);
+
+            return result;
+        }
+    }
+
+    //endregion
+}
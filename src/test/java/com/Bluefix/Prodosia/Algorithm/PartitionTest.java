@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the partition strategies against each other.
+ */
+public class PartitionTest
+{
+    private static final int MaxLength = 141;
+
+    /**
+     * Generate mention entries with a fixed seed.
+     */
+    private static List<String> entries(int amount, long seed)
+    {
+        Random random = new Random(seed);
+        List<String> output = new ArrayList<>();
+
+        for (int i = 0; i < amount; i++)
+        {
+            StringBuilder sb = new StringBuilder("@");
+            int length = 3 + random.nextInt(18);
+
+            for (int j = 0; j < length; j++)
+                sb.append((char)('a' + random.nextInt(26)));
+
+            output.add(sb.append(' ').toString());
+        }
+
+        return output;
+    }
+
+    /**
+     * Assert that the lines are valid and contain every entry exactly once.
+     */
+    private static void assertValid(List<String> entries, LinkedList<String> lines)
+    {
+        int total = 0;
+
+        for (String e : entries)
+            total += e.length();
+
+        // no solution can have fewer lines than the total length allows.
+        Assert.assertTrue(lines.size() >= (total + MaxLength - 1) / MaxLength);
+
+        List<String> found = new ArrayList<>();
+
+        for (String l : lines)
+        {
+            Assert.assertTrue(l.length() <= MaxLength);
+
+            for (String e : l.split("(?<= )"))
+                found.add(e);
+        }
+
+        List<String> expected = new ArrayList<>(entries);
+        Collections.sort(expected);
+        Collections.sort(found);
+
+        Assert.assertEquals(expected, found);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        Assert.assertTrue(Partition.partitionEntries(new ArrayList<>(), MaxLength, Partition.BestFit).isEmpty());
+        Assert.assertTrue(Partition.partitionEntries(new ArrayList<>(), MaxLength, Partition.Optimal).isEmpty());
+    }
+
+    @Test
+    public void testExactFit()
+    {
+        List<String> entries = new ArrayList<>();
+        entries.add("aaaa");
+        entries.add("bbbbbb");
+        entries.add("cc");
+        entries.add("dddd");
+
+        LinkedList<String> lines = Partition.partitionEntries(entries, 8, Partition.BestFit);
+
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(8, lines.get(0).length());
+        Assert.assertEquals(8, lines.get(1).length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEntryTooLong()
+    {
+        List<String> entries = new ArrayList<>();
+        entries.add("toolong");
+
+        Partition.partitionEntries(entries, 4, Partition.BestFit);
+    }
+
+    @Test
+    public void testStrategiesAreComparable()
+    {
+        for (long seed = 0; seed < 5; seed++)
+        {
+            List<String> entries = entries(500, seed);
+
+            LinkedList<String> bestFit = Partition.partitionEntries(entries, MaxLength, Partition.BestFit);
+            LinkedList<String> optimal = Partition.partitionEntries(entries, MaxLength, Partition.Optimal);
+
+            assertValid(entries, bestFit);
+            assertValid(entries, optimal);
+
+            // best-fit decreasing stays within 11/9 of the optimum.
+            Assert.assertTrue(bestFit.size() * 9 <= optimal.size() * 11 + 9);
+        }
+    }
+
+    @Test
+    public void testManyEntries()
+    {
+        List<String> entries = entries(10000, 42);
+
+        assertValid(entries, Partition.partitionEntries(entries, MaxLength));
+    }
+}
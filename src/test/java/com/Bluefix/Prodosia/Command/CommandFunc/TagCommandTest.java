@@ -38,6 +38,7 @@ import org.mockito.junit.MockitoRule;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -166,7 +167,7 @@ public class TagCommandTest
 
         tagCommand.execute(commandInformation, new String[]{"test0"});
 
-        ArrayList<TagRequest> tagRequests = TagRequestStorage.handler().getAll();
+        List<TagRequest> tagRequests = TagRequestStorage.handler().getAll();
 
         boolean contained = false;
 
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataHandler;
+
+import com.Bluefix.Prodosia.DataType.Tracker.Tracker;
+import com.Bluefix.Prodosia.DataType.Tracker.TrackerBookmark;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+
+public class BookmarkWriterTest
+{
+    private ArrayList<Collection<TrackerBookmark>> batches;
+    private boolean fail;
+    private BookmarkWriter writer;
+
+    @Before
+    public void setUp()
+    {
+        batches = new ArrayList<>();
+        fail = false;
+
+        writer = new BookmarkWriter(bookmarks ->
+        {
+            if (fail)
+                throw new SQLException("failed");
+
+            batches.add(new ArrayList<>(bookmarks));
+        });
+    }
+
+    private static TrackerBookmark bookmark(long imgurId, long commentId)
+    {
+        Tracker t = new Tracker("tracker" + imgurId, imgurId, null, null, null, null);
+        return new TrackerBookmark(commentId, new Date(commentId), t);
+    }
+
+    @Test
+    public void testNewestPerTracker()
+    {
+        TrackerBookmark newest = bookmark(1, 3);
+
+        writer.set(bookmark(1, 1));
+        writer.set(bookmark(2, 2));
+        writer.set(newest);
+
+        Assert.assertSame(newest, writer.getPending(1));
+        Assert.assertTrue(batches.isEmpty());
+
+        Assert.assertTrue(writer.flush());
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+        Assert.assertTrue(batches.get(0).stream().anyMatch(tb -> tb == newest));
+        Assert.assertNull(writer.getPending(1));
+    }
+
+    @Test
+    public void testEmptyFlush()
+    {
+        Assert.assertTrue(writer.flush());
+        Assert.assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testFailedFlushRetains()
+    {
+        TrackerBookmark first = bookmark(1, 1);
+        writer.set(first);
+        writer.set(bookmark(2, 1));
+
+        fail = true;
+        Assert.assertFalse(writer.flush());
+
+        // a newer bookmark replaces the one that failed to be stored.
+        TrackerBookmark newer = bookmark(2, 5);
+        writer.set(newer);
+
+        fail = false;
+        Assert.assertTrue(writer.flush());
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+        Assert.assertTrue(batches.get(0).contains(first));
+        Assert.assertTrue(batches.get(0).stream().anyMatch(tb -> tb == newer));
+    }
+
+    @Test
+    public void testDiscard()
+    {
+        writer.set(bookmark(1, 1));
+        writer.discard(1);
+
+        Assert.assertNull(writer.getPending(1));
+        Assert.assertTrue(writer.flush());
+        Assert.assertTrue(batches.isEmpty());
+    }
+}
@@ -35,7 +35,9 @@ import javax.security.auth.login.LoginException;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 
 public class CommentScannerStorageTest extends DataHandlerTest<TrackerBookmark>
 {
@@ -101,5 +103,28 @@ public class CommentScannerStorageTest extends DataHandlerTest<TrackerBookmark>
         Assert.assertEquals(value, tb);
     }
 
+    @Test
+    public void testSetAll() throws Exception
+    {
+        CommentScannerStorage.handler().setAll(Arrays.asList(value));
+
+        TrackerBookmark tb = CommentScannerStorage.getBookmarkByImgurId(TestImgurId);
+        Assert.assertEquals(value, tb);
+        Assert.assertEquals(value.getLastCommentId(), tb.getLastCommentId());
+    }
+
+    @Test
+    public void testGetBookmarksByImgurIds() throws Exception
+    {
+        HashMap<Long, TrackerBookmark> bookmarks = CommentScannerStorage.getBookmarksByImgurIds(Arrays.asList(TestImgurId, -1L));
+        Assert.assertTrue(bookmarks.isEmpty());
+
+        CommentScannerStorage.handler().set(value);
+
+        bookmarks = CommentScannerStorage.getBookmarksByImgurIds(Arrays.asList(TestImgurId, -1L));
+        Assert.assertEquals(1, bookmarks.size());
+        Assert.assertEquals(value, bookmarks.get(TestImgurId));
+    }
+
 
 }
\ No newline at end of file
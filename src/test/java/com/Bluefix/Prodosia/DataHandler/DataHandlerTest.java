@@ -31,6 +31,7 @@ import org.junit.runners.Parameterized;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -63,7 +64,7 @@ public abstract class DataHandlerTest<T>
     @Test
     public void testSetNullItem() throws Exception
     {
-        ArrayList<T> items = getHandler().getAll();
+        List<T> items = getHandler().getAll();
         int size = items.size();
 
         getHandler().set(null);
@@ -74,7 +75,7 @@ public abstract class DataHandlerTest<T>
     @Test
     public void testDeleteNullItem() throws Exception
     {
-        ArrayList<T> items = getHandler().getAll();
+        List<T> items = getHandler().getAll();
         int size = items.size();
 
         getHandler().remove(null);
@@ -89,7 +90,7 @@ public abstract class DataHandlerTest<T>
     @Test
     public void testAddItem() throws Exception
     {
-        ArrayList<T> items = getHandler().getAll();
+        List<T> items = getHandler().getAll();
 
         Assert.assertFalse(items.contains(getItem()));
 
@@ -102,7 +103,7 @@ public abstract class DataHandlerTest<T>
     @Test
     public void testAddAndRemoveItem() throws Exception
     {
-        ArrayList<T> items = getHandler().getAll();
+        List<T> items = getHandler().getAll();
 
         Assert.assertFalse(items.contains(getItem()));
 
@@ -123,7 +124,7 @@ public abstract class DataHandlerTest<T>
     @Test
     public void testReplaceItem() throws Exception
     {
-        ArrayList<T> items = getHandler().getAll();
+        List<T> items = getHandler().getAll();
         int size = items.size();
 
         Assert.assertFalse(items.contains(getItem()));
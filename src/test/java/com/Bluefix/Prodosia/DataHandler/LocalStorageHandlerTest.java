@@ -0,0 +1,622 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataHandler;
+
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tests the snapshots and secondary keys of the local storage handler against an in-memory storage.
+ */
+public class LocalStorageHandlerTest
+{
+    /**
+     * Item that is identified by its id, with a name as secondary key.
+     */
+    private static class Item
+    {
+        private long id;
+        private String name;
+
+        private Item(long id, String name)
+        {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Item item = (Item) o;
+            return id == item.id;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(id);
+        }
+    }
+
+    /**
+     * Handler that stores its items in a list instead of the database.
+     */
+    private static class MemoryHandler extends LocalStorageHandler<Item>
+    {
+        private ArrayList<Item> storage = new ArrayList<>();
+
+        /**
+         * Stands in for the write lock of the database, along with the listeners of every nested write.
+         */
+        private ReentrantLock database = new ReentrantLock();
+        private ArrayList<ArrayList<SqlBuilder.TransactionListener>> writes = new ArrayList<>();
+        private volatile boolean loadedWhileLocked = false;
+
+        /**
+         * If set, loading the items waits until it is counted down.
+         */
+        private volatile CountDownLatch loadGate;
+        private CountDownLatch loading = new CountDownLatch(1);
+
+        private SecondaryKey<String> nameKey;
+
+        private MemoryHandler(boolean useLocalStorage)
+        {
+            super(useLocalStorage);
+            nameKey = declareKey(i -> i.name);
+        }
+
+        private Item getByName(String name) throws Exception
+        {
+            return getByKey(nameKey, name);
+        }
+
+        private HashMap<String, Item> getByNames(String... names) throws Exception
+        {
+            return getAllByKey(nameKey, Arrays.asList(names));
+        }
+
+        @Override
+        void removeItem(Item item)
+        {
+            storage.remove(item);
+        }
+
+        @Override
+        Item setItem(Item item)
+        {
+            int index = storage.indexOf(item);
+            Item old = (index >= 0 ? storage.remove(index) : null);
+            storage.add(item);
+            return old;
+        }
+
+        @Override
+        ArrayList<Item> getAllItems()
+        {
+            ArrayList<Item> items = new ArrayList<>(storage);
+            CountDownLatch gate = loadGate;
+
+            if (database.isLocked())
+                loadedWhileLocked = true;
+
+            // the items were read, but the load is not yet complete.
+            if (gate != null)
+            {
+                loading.countDown();
+
+                try
+                {
+                    gate.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return items;
+        }
+
+        @Override
+        void beginWrite()
+        {
+            database.lock();
+            writes.add(new ArrayList<>());
+        }
+
+        @Override
+        void commitWrite()
+        {
+            ArrayList<SqlBuilder.TransactionListener> listeners = writes.remove(writes.size() - 1);
+
+            if (writes.isEmpty())
+                listeners.forEach(SqlBuilder.TransactionListener::committed);
+            else
+                writes.get(writes.size() - 1).addAll(listeners);
+
+            database.unlock();
+        }
+
+        @Override
+        void rollbackWrite()
+        {
+            writes.remove(writes.size() - 1).forEach(SqlBuilder.TransactionListener::rolledBack);
+            database.unlock();
+        }
+
+        @Override
+        boolean inWrite()
+        {
+            return database.isHeldByCurrentThread() && !writes.isEmpty();
+        }
+
+        @Override
+        void afterCommit(SqlBuilder.TransactionListener listener)
+        {
+            writes.get(writes.size() - 1).add(listener);
+        }
+    }
+
+    private MemoryHandler handler;
+
+    @Before
+    public void setUp()
+    {
+        handler = new MemoryHandler(true);
+    }
+
+    @Test
+    public void testLookup() throws Exception
+    {
+        Item a = new Item(0, "a");
+        Item b = new Item(1, "b");
+
+        handler.set(a);
+        handler.set(b);
+
+        Assert.assertSame(a, handler.getByName("a"));
+        Assert.assertSame(b, handler.getByName("b"));
+        Assert.assertNull(handler.getByName("c"));
+        Assert.assertNull(handler.getByName(null));
+    }
+
+    @Test
+    public void testReplaceUpdatesKey() throws Exception
+    {
+        Item a = new Item(0, "a");
+        handler.set(a);
+
+        // the same item under a different name.
+        Item renamed = new Item(0, "renamed");
+        handler.set(renamed);
+
+        Assert.assertNull(handler.getByName("a"));
+        Assert.assertSame(renamed, handler.getByName("renamed"));
+        Assert.assertEquals(1, handler.getAll().size());
+    }
+
+    @Test
+    public void testRemoveUpdatesKey() throws Exception
+    {
+        Item a = new Item(0, "a");
+        handler.set(a);
+        handler.set(new Item(1, "b"));
+
+        // remove an item that is only equal to the stored item.
+        handler.remove(new Item(0, "other"));
+
+        Assert.assertNull(handler.getByName("a"));
+        Assert.assertNotNull(handler.getByName("b"));
+    }
+
+    @Test
+    public void testRefreshRebuildsKey() throws Exception
+    {
+        handler.set(new Item(0, "a"));
+
+        // change the underlying storage directly.
+        handler.storage.clear();
+        handler.storage.add(new Item(1, "b"));
+
+        handler.refresh();
+
+        Assert.assertNull(handler.getByName("a"));
+        Assert.assertNotNull(handler.getByName("b"));
+    }
+
+    @Test
+    public void testWithoutLocalStorage() throws Exception
+    {
+        MemoryHandler noStorage = new MemoryHandler(false);
+        Item a = new Item(0, "a");
+        noStorage.set(a);
+
+        Assert.assertSame(a, noStorage.getByName("a"));
+        Assert.assertNull(noStorage.getByName("b"));
+    }
+
+    @Test
+    public void testBatchLookup() throws Exception
+    {
+        MemoryHandler noStorage = new MemoryHandler(false);
+
+        for (MemoryHandler h : new MemoryHandler[] { handler, noStorage })
+        {
+            Item a = new Item(0, "a");
+            Item b = new Item(1, "b");
+            h.set(a);
+            h.set(b);
+            h.set(new Item(2, "c"));
+
+            HashMap<String, Item> items = h.getByNames("a", "b", "d");
+
+            Assert.assertEquals(2, items.size());
+            Assert.assertSame(a, items.get("a"));
+            Assert.assertSame(b, items.get("b"));
+            Assert.assertTrue(h.getByNames().isEmpty());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() throws Exception
+    {
+        handler.set(new Item(0, "a"));
+
+        LocalStorageHandler.Snapshot<Item> snapshot = handler.getSnapshot();
+        List<Item> items = handler.getAll();
+
+        handler.set(new Item(1, "b"));
+        handler.remove(new Item(0, "a"));
+
+        // the earlier snapshot is unaffected by the changes.
+        Assert.assertEquals(1, items.size());
+        Assert.assertEquals("a", items.get(0).name);
+        Assert.assertEquals(1, snapshot.getItems().size());
+
+        Assert.assertEquals(1, handler.getAll().size());
+        Assert.assertEquals("b", handler.getAll().get(0).name);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsUnmodifiable() throws Exception
+    {
+        handler.getAll().add(new Item(0, "a"));
+    }
+
+    @Test
+    public void testSnapshotVersion() throws Exception
+    {
+        long version = handler.getSnapshot().getVersion();
+
+        // reading does not change the snapshot.
+        Assert.assertSame(handler.getSnapshot(), handler.getSnapshot());
+
+        handler.set(new Item(0, "a"));
+        long afterSet = handler.getSnapshot().getVersion();
+        Assert.assertTrue(afterSet > version);
+
+        handler.refresh();
+        Assert.assertTrue(handler.getSnapshot().getVersion() > afterSet);
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception
+    {
+        // load the storage before the writer starts, since the in-memory storage is not thread-safe.
+        handler.getAll();
+
+        Thread writer = new Thread(() ->
+        {
+            try
+            {
+                for (int i = 0; i < 500; i++)
+                {
+                    handler.set(new Item(i, "item" + i));
+
+                    if (i % 2 == 0)
+                        handler.remove(new Item(i, "item" + i));
+                }
+            } catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+
+        writer.start();
+
+        // iterating a snapshot while the writer is active should never fail.
+        while (writer.isAlive())
+        {
+            for (Item item : handler.getAll())
+                Assert.assertNotNull(item);
+        }
+
+        writer.join();
+        Assert.assertEquals(250, handler.getAll().size());
+    }
+
+    @Test
+    public void testWriteDuringLoad() throws Exception
+    {
+        handler.loadGate = new CountDownLatch(1);
+
+        Thread reader = new Thread(() ->
+        {
+            try
+            {
+                handler.getAll();
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+        reader.start();
+
+        // write while the reader is loading the storage.
+        Assert.assertTrue(handler.loading.await(5, TimeUnit.SECONDS));
+
+        Thread writer = new Thread(() ->
+        {
+            try
+            {
+                handler.set(new Item(0, "a"));
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+
+        Thread.sleep(50);
+        handler.loadGate.countDown();
+
+        reader.join();
+        writer.join();
+
+        // the write may not be lost from the snapshot that was being loaded.
+        Assert.assertNotNull(handler.getByName("a"));
+        Assert.assertEquals(1, handler.getAll().size());
+        Assert.assertFalse(handler.database.isLocked());
+    }
+
+    @Test
+    public void testLoadWithoutWriteLock() throws Exception
+    {
+        handler.getAll();
+        handler.refresh();
+
+        // loading the storage should not block the writers.
+        Assert.assertFalse(handler.loadedWhileLocked);
+    }
+
+    @Test
+    public void testPublishedOnCommit() throws Exception
+    {
+        handler.getAll();
+        ArrayList<String> events = recordEvents();
+
+        handler.beginWrite();
+        handler.set(new Item(0, "a"));
+        handler.set(new Item(1, "b"));
+
+        // the current thread sees its own changes, other threads and listeners do not.
+        Assert.assertNotNull(handler.getByName("a"));
+        Assert.assertEquals(2, handler.getAll().size());
+        Assert.assertNull(getByNameOnOtherThread("a"));
+        Assert.assertTrue(events.isEmpty());
+
+        handler.commitWrite();
+
+        Assert.assertNotNull(getByNameOnOtherThread("a"));
+        Assert.assertEquals(Arrays.asList("set - a", "set - b"), events);
+    }
+
+    @Test
+    public void testRollbackDiscardsChanges() throws Exception
+    {
+        handler.set(new Item(0, "a"));
+        handler.getAll();
+        ArrayList<String> events = recordEvents();
+
+        handler.beginWrite();
+        handler.remove(new Item(0, "a"));
+        handler.set(new Item(1, "b"));
+        Assert.assertNull(handler.getByName("a"));
+
+        handler.rollbackWrite();
+
+        // the changes were never published.
+        Assert.assertNotNull(handler.getByName("a"));
+        Assert.assertNull(handler.getByName("b"));
+        Assert.assertEquals(1, handler.getAll().size());
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testRefreshWithinWrite() throws Exception
+    {
+        handler.set(new Item(0, "a"));
+        ArrayList<String> events = recordEvents();
+
+        handler.beginWrite();
+        handler.refresh();
+
+        // the refresh is postponed until the write was committed.
+        Assert.assertTrue(events.isEmpty());
+
+        handler.commitWrite();
+
+        Assert.assertEquals(Arrays.asList("reloaded 1"), events);
+    }
+
+    /**
+     * Record the changes to the handler as text.
+     */
+    private ArrayList<String> recordEvents()
+    {
+        ArrayList<String> events = new ArrayList<>();
+
+        handler.addListener(new LocalStorageHandler.ChangeListener<Item>()
+        {
+            @Override
+            public void itemSet(Item oldItem, Item newItem)
+            {
+                events.add("set " + (oldItem == null ? "-" : oldItem.name) + " " + newItem.name);
+            }
+
+            @Override
+            public void itemRemoved(Item item)
+            {
+                events.add("removed " + item.name);
+            }
+
+            @Override
+            public void itemsReloaded(List<Item> items)
+            {
+                events.add("reloaded " + items.size());
+            }
+        });
+
+        return events;
+    }
+
+    private Item getByNameOnOtherThread(String name) throws Exception
+    {
+        Item[] result = new Item[1];
+        Exception[] error = new Exception[1];
+
+        Thread reader = new Thread(() ->
+        {
+            try
+            {
+                result[0] = handler.getByName(name);
+            }
+            catch (Exception e)
+            {
+                error[0] = e;
+            }
+        });
+
+        reader.start();
+        reader.join();
+
+        if (error[0] != null)
+            throw error[0];
+
+        return result[0];
+    }
+
+    @Test
+    public void testSetAll() throws Exception
+    {
+        handler.set(new Item(0, "a"));
+        long version = handler.getSnapshot().getVersion();
+
+        ArrayList<String> events = new ArrayList<>();
+        handler.addListener(new LocalStorageHandler.ChangeListener<Item>()
+        {
+            @Override
+            public void itemSet(Item oldItem, Item newItem)
+            {
+                events.add((oldItem == null ? "-" : oldItem.name) + " " + newItem.name);
+            }
+
+            @Override
+            public void itemRemoved(Item item)
+            {
+            }
+
+            @Override
+            public void itemsReloaded(List<Item> items)
+            {
+            }
+        });
+
+        handler.setAll(Arrays.asList(new Item(0, "renamed"), new Item(1, "b"), null));
+
+        Assert.assertNull(handler.getByName("a"));
+        Assert.assertNotNull(handler.getByName("renamed"));
+        Assert.assertNotNull(handler.getByName("b"));
+        Assert.assertEquals(2, handler.getAll().size());
+
+        // the items are published in a single snapshot.
+        Assert.assertEquals(version + 1, handler.getSnapshot().getVersion());
+        Assert.assertEquals(Arrays.asList("a renamed", "- b"), events);
+    }
+
+    @Test
+    public void testChangeListener() throws Exception
+    {
+        ArrayList<String> events = new ArrayList<>();
+
+        handler.addListener(new LocalStorageHandler.ChangeListener<Item>()
+        {
+            @Override
+            public void itemSet(Item oldItem, Item newItem)
+            {
+                events.add("set " + (oldItem == null ? "-" : oldItem.name) + " " + newItem.name);
+            }
+
+            @Override
+            public void itemRemoved(Item item)
+            {
+                events.add("removed " + item.name);
+            }
+
+            @Override
+            public void itemsReloaded(List<Item> items)
+            {
+                events.add("reloaded " + items.size());
+            }
+        });
+
+        Item a = new Item(0, "a");
+        handler.set(a);
+        handler.set(new Item(0, "renamed"));
+        handler.set(null);
+        handler.remove(a);
+        handler.refresh();
+
+        Assert.assertEquals(4, events.size());
+        Assert.assertEquals("set - a", events.get(0));
+        Assert.assertEquals("set a renamed", events.get(1));
+        Assert.assertEquals("removed a", events.get(2));
+        Assert.assertEquals("reloaded 0", events.get(3));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataHandler;
+
+import com.Bluefix.Prodosia.Prefix.CommandPrefix;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+public class ProcessedEntryLogTest
+{
+    private static final long Start = 1000L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Store that keeps its rows in a list instead of the database.
+     */
+    private static class MemoryStore implements ProcessedEntryLog.Store
+    {
+        private ArrayList<long[]> rows = new ArrayList<>();
+        private int loads = 0;
+        private boolean fail = false;
+
+        @Override
+        public ArrayList<long[]> load(long since) throws SQLException
+        {
+            loads++;
+
+            if (fail)
+                throw new SQLException("failed");
+
+            ArrayList<long[]> output = new ArrayList<>();
+
+            for (long[] row : rows)
+                if (row[2] >= since)
+                    output.add(row);
+
+            return output;
+        }
+
+        @Override
+        public void insert(CommandPrefix.Type type, long entryId, long processedAt) throws SQLException
+        {
+            if (fail)
+                throw new SQLException("failed");
+
+            rows.add(new long[]{ type.getValue(), entryId, processedAt });
+        }
+
+        @Override
+        public void prune(long before)
+        {
+            rows.removeIf(row -> row[2] < before);
+        }
+    }
+
+    private MemoryStore store;
+
+    @Before
+    public void setUp()
+    {
+        store = new MemoryStore();
+    }
+
+    @Test
+    public void testProcessedOnce()
+    {
+        ProcessedEntryLog log = new ProcessedEntryLog(store);
+
+        Assert.assertTrue(log.markProcessed(CommandPrefix.Type.IMGUR, 1, Start));
+        Assert.assertFalse(log.markProcessed(CommandPrefix.Type.IMGUR, 1, Start + 1));
+
+        // the same id from another service is a different entry.
+        Assert.assertTrue(log.markProcessed(CommandPrefix.Type.DISCORD, 1, Start + 2));
+
+        Assert.assertEquals(2, store.rows.size());
+        Assert.assertEquals(1, store.loads);
+    }
+
+    @Test
+    public void testSurvivesRestart()
+    {
+        new ProcessedEntryLog(store).markProcessed(CommandPrefix.Type.IMGUR, 1, Start);
+
+        ProcessedEntryLog restarted = new ProcessedEntryLog(store);
+
+        Assert.assertFalse(restarted.markProcessed(CommandPrefix.Type.IMGUR, 1, Start + 1000));
+        Assert.assertTrue(restarted.markProcessed(CommandPrefix.Type.IMGUR, 2, Start + 1000));
+    }
+
+    @Test
+    public void testRetention()
+    {
+        ProcessedEntryLog log = new ProcessedEntryLog(store);
+        log.markProcessed(CommandPrefix.Type.IMGUR, 1, Start);
+
+        long later = Start + ProcessedEntryLog.Retention + 1;
+
+        // the entry is forgotten in memory and removed from the storage.
+        Assert.assertTrue(log.markProcessed(CommandPrefix.Type.IMGUR, 1, later));
+        Assert.assertEquals(1, store.rows.size());
+        Assert.assertEquals(later, store.rows.get(0)[2]);
+
+        // an expired entry is not loaded after a restart.
+        store.rows.add(0, new long[]{ CommandPrefix.Type.IMGUR.getValue(), 2, Start });
+        Assert.assertTrue(new ProcessedEntryLog(store).markProcessed(CommandPrefix.Type.IMGUR, 2, later));
+    }
+
+    @Test
+    public void testStorageFailure()
+    {
+        store.fail = true;
+        ProcessedEntryLog log = new ProcessedEntryLog(store);
+
+        // the entry is still known in memory.
+        Assert.assertTrue(log.markProcessed(CommandPrefix.Type.IMGUR, 1, Start));
+        Assert.assertFalse(log.markProcessed(CommandPrefix.Type.IMGUR, 1, Start + 1));
+
+        // the storage is loaded once it is available again.
+        store.fail = false;
+        store.rows.add(new long[]{ CommandPrefix.Type.IMGUR.getValue(), 2, Start });
+
+        Assert.assertFalse(log.markProcessed(CommandPrefix.Type.IMGUR, 2, Start + 2));
+    }
+}
@@ -24,7 +24,12 @@ package com.Bluefix.Prodosia.DataHandler;
 
 import com.Bluefix.Prodosia.DataType.Comments.SimpleCommentRequest;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
 
 public class SimpleCommentRequestStorageTest extends DataHandlerTest<SimpleCommentRequest>
 {
@@ -70,4 +75,66 @@ public class SimpleCommentRequestStorageTest extends DataHandlerTest<SimpleComme
     {
         SimpleCommentRequestStorage.handler().remove(request);
     }
-}
\ No newline at end of file
+
+    //region Posting cursor
+
+    @Test
+    public void testCursor() throws Exception
+    {
+        SimpleCommentRequest multiple = new SimpleCommentRequest(parentCommentId, "first", "second; third");
+
+        try
+        {
+            SimpleCommentRequestStorage.handler().set(multiple);
+            multiple.advanceCursor(1234);
+
+            // reload the requests from the database.
+            SimpleCommentRequestStorage.handler().refresh();
+            List<SimpleCommentRequest> items = SimpleCommentRequestStorage.handler().getAll();
+
+            SimpleCommentRequest stored = items.get(items.indexOf(multiple));
+
+            Assert.assertEquals(1, stored.getCursor().getPosted());
+            Assert.assertEquals(1234, stored.getCursor().getLastCommentId());
+            Assert.assertEquals(Arrays.asList("second; third"), stored.getComments());
+        }
+        finally
+        {
+            SimpleCommentRequestStorage.handler().remove(multiple);
+        }
+    }
+
+    @Test
+    public void testUpsertResetsCursor() throws Exception
+    {
+        SimpleCommentRequest multiple = new SimpleCommentRequest(parentCommentId, "first", "second");
+
+        try
+        {
+            SimpleCommentRequestStorage.handler().set(multiple);
+            multiple.advanceCursor(1234);
+
+            Assert.assertEquals(Arrays.asList("second"), multiple.getComments());
+
+            // storing the request again resets both the stored and the in-memory cursor.
+            SimpleCommentRequestStorage.handler().set(multiple);
+
+            Assert.assertEquals(0, multiple.getCursor().getPosted());
+            Assert.assertEquals(Arrays.asList("first", "second"), multiple.getComments());
+
+            SimpleCommentRequestStorage.handler().refresh();
+            List<SimpleCommentRequest> items = SimpleCommentRequestStorage.handler().getAll();
+
+            SimpleCommentRequest stored = items.get(items.indexOf(multiple));
+
+            Assert.assertEquals(0, stored.getCursor().getPosted());
+            Assert.assertEquals(Arrays.asList("first", "second"), stored.getComments());
+        }
+        finally
+        {
+            SimpleCommentRequestStorage.handler().remove(multiple);
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataHandler;
+
+import com.Bluefix.Prodosia.DataType.Comments.TagRequest.BaseTagRequest;
+import com.Bluefix.Prodosia.DataType.Taglist.Rating;
+import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
+import com.Bluefix.Prodosia.DataType.User.Filter;
+import com.Bluefix.Prodosia.DataType.User.User;
+import com.Bluefix.Prodosia.DataType.User.UserSubscription;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Tests the subscriber index against users that are stored in memory.
+ */
+public class SubscriberIndexTest
+{
+    private Taglist plain;
+    private Taglist rated;
+
+    private ArrayList<User> storage;
+    private int loads;
+    private SubscriberIndex index;
+
+    @Before
+    public void setUp()
+    {
+        plain = new Taglist(1, "plain", "without ratings", false);
+        rated = new Taglist(2, "rated", "with ratings", true);
+
+        storage = new ArrayList<>();
+        loads = 0;
+        index = new SubscriberIndex(() ->
+        {
+            loads++;
+            return new ArrayList<>(storage);
+        });
+    }
+
+    private static User user(long id, UserSubscription... subscriptions) throws Exception
+    {
+        return new User("user" + id, id, new HashSet<>(Arrays.asList(subscriptions)));
+    }
+
+    private static UserSubscription sub(Taglist t, String filters, Rating... ratings)
+    {
+        return new UserSubscription(t, new HashSet<>(Arrays.asList(ratings)), filters);
+    }
+
+    private static BaseTagRequest request(Rating rating, String filter, Taglist... taglists)
+    {
+        return new BaseTagRequest(new HashSet<>(Arrays.asList(taglists)), rating, filter, false);
+    }
+
+    private static String filter(String... filters)
+    {
+        return Filter.getPatternForFilters(Arrays.asList(filters).iterator());
+    }
+
+    @Test
+    public void testOnlyRequestedTaglists() throws Exception
+    {
+        User a = user(1, sub(plain, ""));
+        User b = user(2, sub(rated, "", Rating.SAFE));
+        storage.add(a);
+        storage.add(b);
+
+        ArrayList<User> result = index.getSubscribers(request(Rating.SAFE, "", plain));
+
+        Assert.assertEquals(1, result.size());
+        Assert.assertTrue(result.contains(a));
+    }
+
+    @Test
+    public void testRatings() throws Exception
+    {
+        User safe = user(1, sub(rated, "", Rating.SAFE));
+        User all = user(2, sub(rated, "", Rating.ALL));
+        storage.add(safe);
+        storage.add(all);
+
+        Assert.assertEquals(2, index.getSubscribers(request(Rating.SAFE, "", rated)).size());
+
+        ArrayList<User> explicit = index.getSubscribers(request(Rating.EXPLICIT, "", rated));
+        Assert.assertEquals(1, explicit.size());
+        Assert.assertTrue(explicit.contains(all));
+    }
+
+    @Test
+    public void testFilters() throws Exception
+    {
+        User filtered = user(1, sub(plain, "spiders"));
+        User unfiltered = user(2, sub(plain, "snakes"));
+        storage.add(filtered);
+        storage.add(unfiltered);
+
+        ArrayList<User> result = index.getSubscribers(request(Rating.SAFE, filter("spiders"), plain));
+
+        Assert.assertEquals(1, result.size());
+        Assert.assertTrue(result.contains(unfiltered));
+    }
+
+    @Test
+    public void testMatchesUser() throws Exception
+    {
+        storage.add(user(1, sub(plain, "spiders")));
+        storage.add(user(2, sub(rated, "", Rating.SAFE), sub(plain, "")));
+        storage.add(user(3, sub(rated, "", Rating.EXPLICIT)));
+
+        BaseTagRequest tr = request(Rating.SAFE, filter("spiders"), plain, rated);
+
+        // the index should agree with the full scan over all users.
+        HashSet<User> expected = new HashSet<>();
+
+        for (User u : storage)
+        {
+            if (u.partOfTagRequest(tr))
+                expected.add(u);
+        }
+
+        Assert.assertEquals(expected, new HashSet<>(index.getSubscribers(tr)));
+    }
+
+    @Test
+    public void testIncrementalUpdates() throws Exception
+    {
+        User a = user(1, sub(plain, ""));
+        storage.add(a);
+
+        Assert.assertEquals(1, index.getSubscribers(request(Rating.SAFE, "", plain)).size());
+
+        // move the user to another taglist.
+        User moved = user(1, sub(rated, "", Rating.SAFE));
+        index.set(moved);
+
+        Assert.assertTrue(index.getSubscribers(request(Rating.SAFE, "", plain)).isEmpty());
+        Assert.assertEquals(1, index.getSubscribers(request(Rating.SAFE, "", rated)).size());
+
+        index.remove(moved);
+        Assert.assertTrue(index.getSubscribers(request(Rating.SAFE, "", rated)).isEmpty());
+
+        // the storage is only loaded once.
+        Assert.assertEquals(1, loads);
+    }
+
+    @Test
+    public void testRemoveTaglist() throws Exception
+    {
+        User both = user(1, sub(plain, ""), sub(rated, "", Rating.ALL));
+        User single = user(2, sub(plain, ""));
+        storage.add(both);
+        storage.add(single);
+
+        Assert.assertEquals(2, index.getSubscribers(request(Rating.SAFE, "", plain)).size());
+
+        index.removeTaglist(plain.getId());
+
+        Assert.assertTrue(index.getSubscribers(request(Rating.SAFE, "", plain)).isEmpty());
+
+        ArrayList<User> result = index.getSubscribers(request(Rating.SAFE, "", rated));
+        Assert.assertEquals(1, result.size());
+        Assert.assertNull(result.get(0).getSubscription(plain.getId()));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        index.getSubscribers(request(Rating.SAFE, "", plain));
+
+        storage.add(user(1, sub(plain, "")));
+        index.invalidate();
+
+        Assert.assertEquals(1, index.getSubscribers(request(Rating.SAFE, "", plain)).size());
+        Assert.assertEquals(2, loads);
+    }
+
+    @Test
+    public void testMentionedNames() throws Exception
+    {
+        storage.add(new User("Mentioned", 1, new HashSet<>(Arrays.asList(sub(plain, "")))));
+        storage.add(user(2, sub(plain, "")));
+
+        HashSet<String> mentioned = new HashSet<>(Arrays.asList("mentioned"));
+
+        ArrayList<String> result = index.getSubscriberNames(request(Rating.SAFE, "", plain), mentioned);
+
+        Assert.assertEquals(Arrays.asList("user2"), result);
+    }
+
+    @Test
+    public void testParallelIsDeterministic() throws Exception
+    {
+        Random random = new Random(42);
+
+        for (long id = 1; id <= 5000; id++)
+        {
+            ArrayList<UserSubscription> subscriptions = new ArrayList<>();
+
+            if (random.nextBoolean())
+                subscriptions.add(sub(plain, random.nextInt(10) == 0 ? "spiders" : ""));
+
+            if (random.nextBoolean() || subscriptions.isEmpty())
+                subscriptions.add(sub(rated, "", Rating.values()[random.nextInt(Rating.values().length)]));
+
+            storage.add(user(id, subscriptions.toArray(new UserSubscription[0])));
+        }
+
+        BaseTagRequest tr = request(Rating.SAFE, filter("spiders"), plain, rated);
+        HashSet<String> mentioned = new HashSet<>(Arrays.asList("user7", "user100"));
+
+        ArrayList<String> sequential = index.getSubscriberNames(tr, mentioned, Integer.MAX_VALUE);
+
+        Assert.assertFalse(sequential.isEmpty());
+        Assert.assertFalse(sequential.contains("user7"));
+        Assert.assertEquals(sequential.size(), new HashSet<>(sequential).size());
+
+        for (int threshold : new int[] { 1, 16, 1000 })
+        {
+            Assert.assertEquals(sequential, index.getSubscriberNames(tr, mentioned, threshold));
+        }
+    }
+}
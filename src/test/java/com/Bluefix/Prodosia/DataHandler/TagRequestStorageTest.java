@@ -22,6 +22,7 @@
 
 package com.Bluefix.Prodosia.DataHandler;
 
+import com.Bluefix.Prodosia.DataType.Comments.PostingCursor;
 import com.Bluefix.Prodosia.DataType.Comments.TagRequest.TagRequest;
 import com.Bluefix.Prodosia.DataType.Taglist.Rating;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
@@ -36,6 +37,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 
 public class TagRequestStorageTest extends DataHandlerTest<TagRequest>
@@ -141,6 +143,40 @@ public class TagRequestStorageTest extends DataHandlerTest<TagRequest>
 
     //endregion
 
+    //region Test posting cursor
+
+    @Test
+    public void testCursor() throws Exception
+    {
+        TagRequestStorage.handler().set(request);
+
+        int index = TagRequestStorage.handler().getAll().indexOf(request);
+        TagRequest storedRequest = TagRequestStorage.handler().getAll().get(index);
+
+        Assert.assertNull(storedRequest.getCursor());
+
+        // store a cursor where the first of two lines was posted.
+        request = new TagRequest(TestImgurId, request.getParentId(), request.getDbTaglistIds(),
+                request.getRating().getValue(), request.getFilter(), request.isCleanComments(),
+                new PostingCursor(Arrays.asList("@first", "@second")));
+        request.advanceCursor(4321);
+
+        TagRequestStorage.handler().refresh();
+        index = TagRequestStorage.handler().getAll().indexOf(request);
+        storedRequest = TagRequestStorage.handler().getAll().get(index);
+
+        PostingCursor cursor = storedRequest.getCursor();
+        Assert.assertNotNull(cursor);
+        Assert.assertEquals(1, cursor.getPosted());
+        Assert.assertEquals(4321, cursor.getLastCommentId());
+        Assert.assertEquals(Arrays.asList("@second"), cursor.getRemaining());
+
+        // the restored tag request resumes with the remaining line.
+        Assert.assertEquals(Arrays.asList("@second"), storedRequest.getComments());
+    }
+
+    //endregion
+
 
 
 }
@@ -22,10 +22,12 @@
 
 package com.Bluefix.Prodosia.DataHandler;
 
+import com.Bluefix.Prodosia.DataType.Comments.TagRequest.TagRequest;
 import com.Bluefix.Prodosia.DataType.Taglist.Rating;
 import com.Bluefix.Prodosia.DataType.Taglist.Taglist;
 import com.Bluefix.Prodosia.DataType.User.User;
 import com.Bluefix.Prodosia.DataType.User.UserSubscription;
+import com.Bluefix.Prodosia.SQLite.SqlBuilder;
 import com.github.kskelm.baringo.util.BaringoApiException;
 import org.junit.After;
 import org.junit.Assert;
@@ -163,4 +165,25 @@ public class UserHandlerTest extends DataHandlerTest<User>
     //endregion
 
 
+    @Test
+    public void testSubscriberIndexAfterRollback() throws Exception
+    {
+        HashSet<Taglist> tlSet = new HashSet<>();
+        tlSet.add(taglist);
+
+        TagRequest request = new TagRequest("abcdefg", null, tlSet, Rating.ALL, "", false);
+
+        // load the subscriber index before the transaction.
+        Assert.assertFalse(UserHandler.getUsersForTagRequest(request).contains(user));
+
+        SqlBuilder.beginTransaction();
+        UserHandler.handler().set(user);
+        SqlBuilder.rollbackTransaction();
+
+        // the user was never committed, so it should not be indexed.
+        Assert.assertFalse(UserHandler.getUsersForTagRequest(request).contains(user));
+
+        UserHandler.handler().set(user);
+        Assert.assertTrue(UserHandler.getUsersForTagRequest(request).contains(user));
+    }
 }
\ No newline at end of file
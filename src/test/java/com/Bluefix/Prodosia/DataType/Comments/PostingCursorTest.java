@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataType.Comments;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+public class PostingCursorTest
+{
+    @Test
+    public void testAdvance()
+    {
+        PostingCursor cursor = new PostingCursor(Arrays.asList("a", "b", "c"));
+
+        Assert.assertFalse(cursor.isExhausted());
+        Assert.assertEquals(-1, cursor.getLastCommentId());
+
+        cursor.advance(10);
+        cursor.advance(-1);
+
+        // a failed comment doesn't replace the last known comment id.
+        Assert.assertEquals(2, cursor.getPosted());
+        Assert.assertEquals(10, cursor.getLastCommentId());
+        Assert.assertEquals(Arrays.asList("c"), cursor.getRemaining());
+
+        cursor.advance(12);
+        cursor.advance(13);
+
+        Assert.assertTrue(cursor.isExhausted());
+        Assert.assertEquals(3, cursor.getPosted());
+        Assert.assertEquals(12, cursor.getLastCommentId());
+        Assert.assertTrue(cursor.getRemaining().isEmpty());
+    }
+
+    @Test
+    public void testRestoredPostedIsBounded()
+    {
+        PostingCursor cursor = new PostingCursor(Arrays.asList("a", "b"), 5, 1, 0);
+
+        Assert.assertEquals(2, cursor.getPosted());
+        Assert.assertTrue(cursor.isExhausted());
+    }
+
+    @Test
+    public void testLinesRoundTrip()
+    {
+        List<String> lines = Arrays.asList("@user1 @user2", "semi;colon", "trailing;");
+
+        String stored = PostingCursor.joinLines(lines);
+        LinkedList<String> parsed = PostingCursor.parseLines(stored);
+
+        Assert.assertEquals(lines, parsed);
+        Assert.assertEquals("", PostingCursor.joinLines(null));
+    }
+}
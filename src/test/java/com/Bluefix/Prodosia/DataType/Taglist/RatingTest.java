@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.DataType.Taglist;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+
+public class RatingTest
+{
+    @Test
+    public void testUniqueMasks()
+    {
+        int combined = 0;
+
+        for (Rating r : Rating.values())
+        {
+            Assert.assertEquals(0, combined & r.getMask());
+            combined |= r.getMask();
+        }
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        HashSet<Rating> ratings = new HashSet<>(Arrays.asList(Rating.SAFE, Rating.EXPLICIT));
+
+        int mask = Rating.toMask(ratings);
+
+        Assert.assertEquals(EnumSet.of(Rating.SAFE, Rating.EXPLICIT), Rating.parseMask(mask));
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        Assert.assertEquals(0, Rating.toMask(null));
+        Assert.assertEquals(0, Rating.toMask(new HashSet<>()));
+        Assert.assertTrue(Rating.parseMask(0).isEmpty());
+    }
+
+    @Test
+    public void testUnknownBits()
+    {
+        Assert.assertEquals(EnumSet.of(Rating.ALL), Rating.parseMask(Rating.ALL.getMask() | (1 << 30)));
+    }
+}
@@ -97,4 +97,46 @@ public class FilterTest
         Assert.assertTrue(s1.matches(pattern));
         Assert.assertTrue(s2.matches(pattern));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompiledFilter()
+    {
+        List<String> filters = new LinkedList<>();
+        filters.add("filter0");
+        filters.add("Filter2");
+
+        Filter f = Filter.compile(Filter.getPatternForFilters(filters.iterator()));
+
+        Assert.assertTrue(f.matches(s0, Filter.tokenize(s0)));
+        Assert.assertFalse(f.matches(s1, Filter.tokenize(s1)));
+        Assert.assertTrue(f.matches(s2, Filter.tokenize(s2)));
+        Assert.assertTrue(f.matches("FILTER2", Filter.tokenize("FILTER2")));
+
+        // every word of the subscription is considered, not only the first.
+        Assert.assertTrue(f.matches("filter1 filter2", Filter.tokenize("filter1 filter2")));
+    }
+
+    @Test
+    public void testCompiledEmptyFilter()
+    {
+        Assert.assertFalse(Filter.compile(null).matches(s0, Filter.tokenize(s0)));
+        Assert.assertFalse(Filter.compile("").matches(s0, Filter.tokenize(s0)));
+        Assert.assertEquals(0, Filter.tokenize("   ").length);
+    }
+
+    @Test
+    public void testCompiledRegexFallback()
+    {
+        List<String> filters = new LinkedList<>();
+        filters.add("filter.");
+
+        Filter f = Filter.compile(Filter.getPatternForFilters(filters.iterator()));
+
+        Assert.assertTrue(f.matches(s0, Filter.tokenize(s0)));
+        Assert.assertFalse(f.matches("other", Filter.tokenize("other")));
+
+        // every word of the subscription is considered, the same as for plain words.
+        Assert.assertTrue(f.matches("other Filter1", Filter.tokenize("other Filter1")));
+        Assert.assertFalse(f.matches("other filter12", Filter.tokenize("other filter12")));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.CommentScanner;
+
+import com.Bluefix.Prodosia.DataType.Tracker.Tracker;
+import com.github.kskelm.baringo.model.Comment;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PageFetcherTest
+{
+    private static PageFetcher.Page page(String imgurName, int page)
+    {
+        return new PageFetcher.Page(new Tracker(imgurName, 1, null, null, null, null), page);
+    }
+
+    @Test
+    public void testResultsInOrder()
+    {
+        ArrayList<List<Comment>> results = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++)
+            results.add(new ArrayList<>());
+
+        PageFetcher fetcher = new PageFetcher((name, p) -> results.get(Integer.parseInt(name) + p), 3);
+
+        ArrayList<PageFetcher.Page> pages = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            pages.add(page(Integer.toString(i), 0));
+
+        fetcher.fetch(pages);
+
+        for (int i = 0; i < 6; i++)
+        {
+            Assert.assertSame(results.get(i), pages.get(i).getComments());
+            Assert.assertNull(pages.get(i).getException());
+        }
+    }
+
+    @Test
+    public void testConcurrencyBounded() throws Exception
+    {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        CountDownLatch overlap = new CountDownLatch(2);
+
+        PageFetcher fetcher = new PageFetcher((name, p) ->
+        {
+            int current = active.incrementAndGet();
+            maximum.accumulateAndGet(current, Math::max);
+
+            // make sure the pages are actually retrieved at the same time.
+            overlap.countDown();
+            try
+            {
+                overlap.await(5, TimeUnit.SECONDS);
+                Thread.sleep(20);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            active.decrementAndGet();
+            return Collections.emptyList();
+        }, 2);
+
+        ArrayList<PageFetcher.Page> pages = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            pages.add(page("user", i));
+
+        fetcher.fetch(pages);
+
+        Assert.assertEquals(2, maximum.get());
+
+        for (PageFetcher.Page p : pages)
+            Assert.assertNotNull(p.getComments());
+    }
+
+    @Test
+    public void testFailureIsolated()
+    {
+        PageFetcher fetcher = new PageFetcher((name, p) ->
+        {
+            if (p == 1)
+                throw new IOException("failed");
+
+            return Collections.emptyList();
+        }, 2);
+
+        ArrayList<PageFetcher.Page> pages = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            pages.add(page("user", i));
+
+        fetcher.fetch(pages);
+
+        Assert.assertNotNull(pages.get(0).getComments());
+        Assert.assertNull(pages.get(1).getComments());
+        Assert.assertTrue(pages.get(1).getException() instanceof IOException);
+        Assert.assertNotNull(pages.get(2).getComments());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.CommentScanner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+
+public class TrackerActivityTest
+{
+    private static final long Minute = 60 * 1000;
+    private static final long Hour = 60 * Minute;
+    private static final long Start = 1000 * Hour;
+
+    @Test
+    public void testNewTrackerIsDue()
+    {
+        TrackerActivity activity = new TrackerActivity();
+
+        Assert.assertTrue(activity.isDue(0));
+        Assert.assertEquals(0, activity.getPriority(), 0);
+    }
+
+    @Test
+    public void testIdleTrackerPolledRarely()
+    {
+        TrackerActivity activity = new TrackerActivity();
+
+        // the last comment was placed weeks ago.
+        activity.record(Start, 0, 0, new Date(Start - 21 * 24 * Hour));
+
+        Assert.assertFalse(activity.isDue(Start + TrackerActivity.MaximumInterval - 1));
+        Assert.assertTrue(activity.isDue(Start + TrackerActivity.MaximumInterval));
+
+        // a tracker without any comments is treated the same.
+        TrackerActivity empty = new TrackerActivity();
+        empty.record(Start, 0, 0, new Date(Long.MAX_VALUE));
+
+        Assert.assertFalse(empty.isDue(Start + TrackerActivity.MaximumInterval - 1));
+    }
+
+    @Test
+    public void testActiveTrackerPolledOften()
+    {
+        TrackerActivity active = new TrackerActivity();
+        TrackerActivity quiet = new TrackerActivity();
+
+        active.record(Start, 0, 0, new Date(Start - Hour));
+        quiet.record(Start, 0, 0, new Date(Start - Hour));
+
+        long now = Start + 10 * Minute;
+        active.record(now, 5, 2, new Date(now - Minute));
+        quiet.record(now, 0, 0, new Date(Start - Hour));
+
+        Assert.assertTrue(active.getPriority() > quiet.getPriority());
+
+        // the active tracker is due within a few seconds, the quiet one waits a while longer.
+        Assert.assertTrue(active.isDue(now + 1000));
+        Assert.assertFalse(quiet.isDue(now + 10 * Minute));
+    }
+
+    @Test
+    public void testCommandsWeighMore()
+    {
+        TrackerActivity commenter = new TrackerActivity();
+        TrackerActivity tagger = new TrackerActivity();
+
+        commenter.record(Start, 0, 0, null);
+        tagger.record(Start, 0, 0, null);
+
+        commenter.record(Start + Hour, 4, 0, null);
+        tagger.record(Start + Hour, 4, 4, null);
+
+        Assert.assertTrue(tagger.getPriority() > commenter.getPriority());
+    }
+
+    @Test
+    public void testPriorityDecays()
+    {
+        TrackerActivity activity = new TrackerActivity();
+
+        activity.record(Start, 0, 0, null);
+        activity.record(Start + Hour, 10, 0, null);
+
+        double priority = activity.getPriority();
+
+        activity.record(Start + 2 * Hour, 0, 0, null);
+
+        Assert.assertTrue(activity.getPriority() < priority);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.ImgurApi;
+
+import com.github.kskelm.baringo.model.Comment;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PostCommentCacheTest
+{
+    private static final String Post = "abc123";
+
+    private static final String Tree =
+            "[{\"id\": 1, \"comment\": \"first\", \"children\": " +
+            "[{\"id\": 2, \"parent_id\": 1, \"comment\": \"reply\", \"children\": []}]}]";
+
+    private AtomicInteger fetches;
+
+    @Before
+    public void setUp()
+    {
+        fetches = new AtomicInteger();
+    }
+
+    private static List<Comment> tree()
+    {
+        return new Gson().fromJson(Tree, new TypeToken<List<Comment>>(){}.getType());
+    }
+
+    @Test
+    public void testCached() throws Exception
+    {
+        PostCommentCache cache = new PostCommentCache(id -> { fetches.incrementAndGet(); return tree(); }, 60000);
+
+        List<Comment> first = cache.getComments(Post);
+        List<Comment> second = cache.getComments(Post);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, fetches.get());
+
+        cache.getComments("other");
+        Assert.assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void testExpired() throws Exception
+    {
+        PostCommentCache cache = new PostCommentCache(id -> { fetches.incrementAndGet(); return tree(); }, 0);
+
+        cache.getComments(Post);
+        Thread.sleep(2);
+        cache.getComments(Post);
+
+        Assert.assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        PostCommentCache cache = new PostCommentCache(id -> { fetches.incrementAndGet(); return tree(); }, 60000);
+
+        cache.getComments(Post);
+        cache.invalidate(Post);
+        cache.getComments(Post);
+
+        Assert.assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void testFailureIsNotCached() throws Exception
+    {
+        PostCommentCache cache = new PostCommentCache(id ->
+        {
+            if (fetches.incrementAndGet() == 1)
+                throw new IOException("failure");
+
+            return tree();
+        }, 60000);
+
+        try
+        {
+            cache.getComments(Post);
+            Assert.fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+
+        Assert.assertEquals(1, cache.getComments(Post).size());
+        Assert.assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void testCoalesced() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        PostCommentCache cache = new PostCommentCache(id ->
+        {
+            fetches.incrementAndGet();
+            started.countDown();
+
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                throw new IOException(e);
+            }
+
+            return tree();
+        }, 60000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            Future<List<Comment>> first = executor.submit(() -> cache.getComments(Post));
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<List<Comment>> second = executor.submit(() -> cache.getComments(Post));
+            Future<List<Comment>> third = executor.submit(() -> cache.getComments(Post));
+
+            // give the other requests the opportunity to join the request in flight.
+            Thread.sleep(50);
+            release.countDown();
+
+            Assert.assertSame(first.get(), second.get());
+            Assert.assertSame(first.get(), third.get());
+            Assert.assertEquals(1, fetches.get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFindComment() throws Exception
+    {
+        PostCommentCache cache = new PostCommentCache(id -> { fetches.incrementAndGet(); return tree(); }, 60000);
+
+        Assert.assertEquals("reply", cache.findComment(Post, 2).getComment());
+        Assert.assertNull(cache.findComment(Post, 3));
+        Assert.assertEquals(1, fetches.get());
+    }
+}
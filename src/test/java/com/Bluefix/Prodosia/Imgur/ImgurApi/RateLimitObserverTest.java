@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.ImgurApi;
+
+import com.github.kskelm.baringo.BaringoClient;
+import com.github.kskelm.baringo.util.BaringoApiException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests the rate limit observer against a local server that stands in for the Imgur API.
+ */
+public class RateLimitObserverTest
+{
+    private static final String Success =
+            "{\"data\": {\"id\": 1, \"comment\": \"comment\", \"children\": []}, \"success\": true, \"status\": 200}";
+
+    private static final String TooManyRequests =
+            "{\"data\": {\"error\": \"Too Many Requests\"}, \"success\": false, \"status\": 429}";
+
+    private HttpServer server;
+    private BaringoClient client;
+    private RateLimitObserver observer;
+
+    private long now;
+    private int status;
+    private Map<String, String> headers;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        now = 1539734400000L;
+        status = 200;
+        headers = new LinkedHashMap<>();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange ->
+        {
+            byte[] body = (status == 200 ? Success : TooManyRequests).getBytes(StandardCharsets.UTF_8);
+
+            for (Map.Entry<String, String> e : headers.entrySet())
+                exchange.getResponseHeaders().add(e.getKey(), e.getValue());
+
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+
+            try (OutputStream os = exchange.getResponseBody())
+            {
+                os.write(body);
+            }
+        });
+        server.start();
+
+        BaringoClient.setApiEndpoint("http://localhost:" + server.getAddress().getPort() + "/");
+        client = new BaringoClient.Builder()
+                .clientAuth("client-id", "client-secret")
+                .build();
+
+        observer = new RateLimitObserver(client::getQuota, () -> now);
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+        BaringoClient.setApiEndpoint(BaringoClient.DEFAULT_API_BASE_URL);
+    }
+
+    private void userCredits(int limit, int remaining, long resetSeconds)
+    {
+        headers.put("X-RateLimit-UserLimit", Integer.toString(limit));
+        headers.put("X-RateLimit-UserRemaining", Integer.toString(remaining));
+        headers.put("X-RateLimit-UserReset", Long.toString(now / 1000 + resetSeconds));
+        headers.put("X-RateLimit-ClientLimit", "12500");
+        headers.put("X-RateLimit-ClientRemaining", "12500");
+    }
+
+    /**
+     * Execute a request against the stand-in server.
+     * @return True iff the request was rate limited.
+     */
+    private boolean request() throws IOException
+    {
+        try
+        {
+            client.commentService().getComment(1);
+            return false;
+        }
+        catch (BaringoApiException ex)
+        {
+            return observer.notifyException(ex);
+        }
+        finally
+        {
+            observer.observe();
+        }
+    }
+
+    @Test
+    public void testUnknownQuota()
+    {
+        RateLimitObserver empty = new RateLimitObserver(() -> null, () -> now);
+        empty.observe();
+
+        Assert.assertEquals(1.0, empty.getRequestFactor(), 0.0001);
+        Assert.assertEquals(1.0, empty.getPostFactor(), 0.0001);
+        Assert.assertEquals(0, empty.millisUntilAllowed());
+    }
+
+    @Test
+    public void testPlentifulQuota() throws Exception
+    {
+        userCredits(2000, 2000, 3600);
+
+        Assert.assertFalse(request());
+
+        // the application credits are spread out over a day.
+        double expected = 12500 / (ApiDistribution.HourlyBudget * 24.0);
+        Assert.assertEquals(expected, observer.getRequestFactor(), 0.0001);
+        Assert.assertTrue(observer.getRequestFactor() > 1.0);
+        Assert.assertEquals(0, observer.millisUntilAllowed());
+    }
+
+    @Test
+    public void testScarceQuota() throws Exception
+    {
+        userCredits(2000, ApiDistribution.HourlyBudget / 2, 3600);
+
+        Assert.assertFalse(request());
+        Assert.assertEquals(0.5, observer.getRequestFactor(), 0.0001);
+
+        userCredits(2000, 1, 3600);
+
+        Assert.assertFalse(request());
+        Assert.assertEquals(RateLimitObserver.MinimumFactor, observer.getRequestFactor(), 0.0001);
+    }
+
+    @Test
+    public void testExhaustedQuota() throws Exception
+    {
+        userCredits(2000, 0, 1800);
+
+        Assert.assertFalse(request());
+        Assert.assertEquals(1800 * 1000, observer.millisUntilAllowed());
+    }
+
+    @Test
+    public void testPostFactor() throws Exception
+    {
+        userCredits(2000, 2000, 3600);
+
+        // the post reset is reported in seconds until the reset.
+        headers.put("X-Post-Rate-Limit-Limit", "1250");
+        headers.put("X-Post-Rate-Limit-Remaining", "1250");
+        headers.put("X-Post-Rate-Limit-Reset", "600");
+
+        Assert.assertFalse(request());
+        Assert.assertEquals(1.0, observer.getPostFactor(), 0.0001);
+
+        // 30 remaining out of the 60 that are planned in the next 10 minutes.
+        headers.put("X-Post-Rate-Limit-Remaining", "30");
+
+        Assert.assertFalse(request());
+        Assert.assertEquals(0.5, observer.getPostFactor(), 0.0001);
+    }
+
+    @Test
+    public void testExponentialBackoff() throws Exception
+    {
+        userCredits(2000, 1000, 3600);
+        status = 429;
+
+        Assert.assertTrue(request());
+        Assert.assertEquals(RateLimitObserver.MinimumBackoff, observer.millisUntilAllowed());
+
+        Assert.assertTrue(request());
+        Assert.assertEquals(2 * RateLimitObserver.MinimumBackoff, observer.millisUntilAllowed());
+
+        for (int i = 0; i < 10; i++)
+            request();
+
+        Assert.assertEquals(RateLimitObserver.MaximumBackoff, observer.millisUntilAllowed());
+
+        // once a request succeeds after the back-off, the next 429 starts over.
+        now += RateLimitObserver.MaximumBackoff;
+        status = 200;
+        Assert.assertFalse(request());
+        Assert.assertEquals(0, observer.millisUntilAllowed());
+
+        status = 429;
+        Assert.assertTrue(request());
+        Assert.assertEquals(RateLimitObserver.MinimumBackoff, observer.millisUntilAllowed());
+    }
+}
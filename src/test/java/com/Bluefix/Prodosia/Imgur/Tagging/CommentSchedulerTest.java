@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.Tagging;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CommentSchedulerTest
+{
+    private CommentScheduler<String> scheduler;
+
+    @Before
+    public void setUp()
+    {
+        scheduler = new CommentScheduler<>();
+    }
+
+    private List<String> take(int amount)
+    {
+        List<String> output = new ArrayList<>();
+
+        for (int i = 0; i < amount; i++)
+            output.add(scheduler.next());
+
+        return output;
+    }
+
+    @Test
+    public void testRoundRobin()
+    {
+        scheduler.add("a", CommentScheduler.Priority.TAG);
+        scheduler.add("b", CommentScheduler.Priority.TAG);
+        scheduler.add("c", CommentScheduler.Priority.TAG);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "a", "b", "c"), take(6));
+    }
+
+    @Test
+    public void testPriority()
+    {
+        scheduler.add("tag", CommentScheduler.Priority.TAG);
+        scheduler.add("simple", CommentScheduler.Priority.SIMPLE);
+
+        Assert.assertEquals(Arrays.asList("simple", "simple"), take(2));
+
+        scheduler.add("feedback", CommentScheduler.Priority.FEEDBACK);
+        Assert.assertEquals("feedback", scheduler.next());
+
+        scheduler.remove("feedback");
+        scheduler.remove("simple");
+        Assert.assertEquals("tag", scheduler.next());
+    }
+
+    @Test
+    public void testAddKeepsPosition()
+    {
+        scheduler.add("a", CommentScheduler.Priority.TAG);
+        scheduler.add("b", CommentScheduler.Priority.TAG);
+        scheduler.add("a", CommentScheduler.Priority.TAG);
+
+        Assert.assertEquals(2, scheduler.size());
+        Assert.assertEquals(Arrays.asList("a", "b"), take(2));
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        Assert.assertTrue(scheduler.isEmpty());
+        Assert.assertNull(scheduler.next());
+
+        scheduler.add("a", CommentScheduler.Priority.SIMPLE);
+        scheduler.remove("a");
+
+        Assert.assertTrue(scheduler.isEmpty());
+        Assert.assertNull(scheduler.next());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.Tagging;
+
+import com.github.kskelm.baringo.model.Comment;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class CommentTreeAnalysisTest
+{
+    private static final String Poster = "prodosia";
+
+    /**
+     * The patterns that were used before the single-pass scanner.
+     */
+    private static final Pattern userMentionPattern = Pattern.compile("(\\G|\\s|\\A)@([^@\\s]+)(\\s|$)");
+    private static final Pattern pureMentionCommentPattern = Pattern.compile("\\A(@[^@\\s]+(\\s|\\z)+)+");
+
+    private static final String[] Texts =
+            {
+                    "@user0 @user1 @User2",
+                    "@user0\t@user1 ",
+                    " @user0",
+                    "hello @user3 and @user4",
+                    "@user5@user6 @user7",
+                    "mail@user8 @",
+                    "@user9 text",
+                    "",
+                    "@@user10",
+                    "@user11\n@user12\r\n"
+            };
+
+    private static JsonObject comment(long id, String author, String text)
+    {
+        JsonObject c = new JsonObject();
+        c.addProperty("id", id);
+        c.addProperty("author", author);
+        c.addProperty("comment", text);
+        c.add("children", new JsonArray());
+        return c;
+    }
+
+    /**
+     * Build a tree where every text is posted by the bot, nested as replies to each other.
+     */
+    private static List<Comment> tree()
+    {
+        JsonArray root = new JsonArray();
+        JsonObject parent = comment(100, "SomeAuthor", "first!");
+        root.add(parent);
+
+        for (int i = 0; i < Texts.length; i++)
+        {
+            JsonObject c = comment(i + 1, Poster, Texts[i]);
+            parent.getAsJsonArray("children").add(c);
+            parent = c;
+        }
+
+        return new Gson().fromJson(root, new TypeToken<List<Comment>>(){}.getType());
+    }
+
+    @Test
+    public void testMentionsMatchPattern()
+    {
+        HashSet<String> expected = new HashSet<>();
+        expected.add("someauthor");
+        expected.add(Poster);
+
+        for (String t : Texts)
+        {
+            Matcher m = userMentionPattern.matcher(t);
+
+            while (m.find())
+                expected.add(m.group(2).toLowerCase());
+        }
+
+        CommentTreeAnalysis analysis = new CommentTreeAnalysis(tree(), Poster);
+
+        Assert.assertEquals(expected, analysis.getMentionedUsers());
+    }
+
+    @Test
+    public void testMyTagComments()
+    {
+        HashSet<String> expected = new HashSet<>();
+        int expectedCount = 0;
+
+        for (String t : Texts)
+        {
+            if (pureMentionCommentPattern.matcher(t).matches())
+            {
+                expected.add(t);
+                expectedCount += t.length() - t.replace("@", "").length();
+            }
+        }
+
+        CommentTreeAnalysis analysis = new CommentTreeAnalysis(tree(), Poster);
+
+        HashSet<String> actual = new HashSet<>();
+
+        for (Comment c : analysis.getMyTagComments())
+            actual.add(c.getComment());
+
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expectedCount, analysis.getMyMentionCount());
+    }
+
+    @Test
+    public void testWithoutPoster()
+    {
+        CommentTreeAnalysis analysis = new CommentTreeAnalysis(tree(), null);
+
+        Assert.assertTrue(analysis.getMyTagComments().isEmpty());
+        Assert.assertEquals(0, analysis.getMyMentionCount());
+        Assert.assertTrue(analysis.getMentionedUsers().contains("user0"));
+    }
+
+    @Test
+    public void testNoComments()
+    {
+        CommentTreeAnalysis analysis = new CommentTreeAnalysis(null, Poster);
+
+        Assert.assertTrue(analysis.getMentionedUsers().isEmpty());
+        Assert.assertTrue(analysis.getMyTagComments().isEmpty());
+    }
+}
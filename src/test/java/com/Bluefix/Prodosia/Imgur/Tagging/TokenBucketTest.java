@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.Imgur.Tagging;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenBucketTest
+{
+    private long now;
+    private TokenBucket bucket;
+
+    @Before
+    public void setUp()
+    {
+        now = 1000;
+        bucket = new TokenBucket(3, 10000, () -> now);
+    }
+
+    @Test
+    public void testBurst()
+    {
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertFalse(bucket.tryAcquire());
+        Assert.assertEquals(10000, bucket.millisUntilAvailable());
+    }
+
+    @Test
+    public void testRefill()
+    {
+        for (int i = 0; i < 3; i++)
+            bucket.tryAcquire();
+
+        now += 4000;
+        Assert.assertEquals(6000, bucket.millisUntilAvailable());
+
+        now += 6000;
+        Assert.assertEquals(0, bucket.millisUntilAvailable());
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertFalse(bucket.tryAcquire());
+
+        // partial progress towards the next token is kept.
+        now += 25000;
+        Assert.assertEquals(2, bucket.available());
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertEquals(5000, bucket.millisUntilAvailable());
+    }
+
+    @Test
+    public void testCapacity()
+    {
+        now += 1000000;
+        Assert.assertEquals(3, bucket.available());
+    }
+
+    @Test
+    public void testRefillInterval()
+    {
+        for (int i = 0; i < 3; i++)
+            bucket.tryAcquire();
+
+        now += 5000;
+        bucket.setRefillInterval(20000);
+        Assert.assertEquals(15000, bucket.millisUntilAvailable());
+
+        now += 15000;
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertEquals(20000, bucket.millisUntilAvailable());
+    }
+}
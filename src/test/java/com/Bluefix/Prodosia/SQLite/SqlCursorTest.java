@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.SQLite;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+/**
+ * Tests the SqlCursor against an in-memory result set.
+ */
+public class SqlCursorTest
+{
+    /**
+     * Create a result set over the rows, which supports next, getLong, close and isClosed.
+     */
+    private static ResultSet resultSet(long[][] rows)
+    {
+        int[] index = new int[]{-1};
+        boolean[] closed = new boolean[]{false};
+
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class[]{ResultSet.class},
+                (proxy, method, args) ->
+                {
+                    switch (method.getName())
+                    {
+                        case "next":
+                            return ++index[0] < rows.length;
+                        case "getLong":
+                            return rows[index[0]][(int) args[0] - 1];
+                        case "close":
+                            closed[0] = true;
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Cursor that groups the values in the second column by the key in the first column.
+     */
+    private static class GroupCursor extends SqlCursor<ArrayList<Long>>
+    {
+        private GroupCursor(ResultSet rs) throws SQLException
+        {
+            super(rs);
+        }
+
+        @Override
+        protected ArrayList<Long> parse(ResultSet rs) throws SQLException
+        {
+            long key = rs.getLong(1);
+            ArrayList<Long> values = new ArrayList<>();
+
+            do
+            {
+                values.add(rs.getLong(2));
+            }
+            while (nextRow() && rs.getLong(1) == key);
+
+            return values;
+        }
+    }
+
+    @Test
+    public void testGrouping() throws Exception
+    {
+        ResultSet rs = resultSet(new long[][]{{1, 10}, {1, 11}, {2, 20}, {3, 30}, {3, 31}});
+
+        ArrayList<ArrayList<Long>> items = new ArrayList<>();
+
+        try (GroupCursor cursor = new GroupCursor(rs))
+        {
+            cursor.forEachRemaining(items::add);
+        }
+
+        Assert.assertEquals(3, items.size());
+        Assert.assertEquals(2, items.get(0).size());
+        Assert.assertEquals(1, items.get(1).size());
+        Assert.assertEquals(Long.valueOf(31), items.get(2).get(1));
+        Assert.assertTrue(rs.isClosed());
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        try (GroupCursor cursor = new GroupCursor(resultSet(new long[0][])))
+        {
+            Assert.assertFalse(cursor.hasNext());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextAfterLast() throws Exception
+    {
+        try (GroupCursor cursor = new GroupCursor(resultSet(new long[][]{{1, 10}})))
+        {
+            cursor.next();
+            cursor.next();
+        }
+    }
+
+    @Test
+    public void testCloseEarly() throws Exception
+    {
+        ResultSet rs = resultSet(new long[][]{{1, 10}, {2, 20}});
+        GroupCursor cursor = new GroupCursor(rs);
+
+        cursor.next();
+        cursor.close();
+
+        Assert.assertFalse(cursor.hasNext());
+        Assert.assertTrue(rs.isClosed());
+    }
+}
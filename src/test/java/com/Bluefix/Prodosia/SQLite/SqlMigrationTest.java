@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.SQLite;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SqlMigrationTest
+{
+    @Test
+    public void testMigrationsAreOrdered()
+    {
+        List<SqlMigration> migrations = SqlMigration.getMigrations();
+
+        int version = SqlDatabase.BaseVersion;
+
+        for (SqlMigration m : migrations)
+        {
+            Assert.assertTrue(m.getVersion() > version);
+            version = m.getVersion();
+        }
+    }
+
+    @Test
+    public void testLastMigrationMatchesDatabaseVersion()
+    {
+        List<SqlMigration> migrations = SqlMigration.getMigrations();
+
+        Assert.assertEquals(SqlDatabase.DatabaseVersion, migrations.get(migrations.size() - 1).getVersion());
+    }
+
+    @Test
+    public void testMigrationsAfter()
+    {
+        Assert.assertEquals(
+                SqlMigration.getMigrations().size(),
+                SqlMigration.getMigrationsAfter(SqlDatabase.BaseVersion).size());
+
+        Assert.assertTrue(SqlMigration.getMigrationsAfter(SqlDatabase.DatabaseVersion).isEmpty());
+    }
+}
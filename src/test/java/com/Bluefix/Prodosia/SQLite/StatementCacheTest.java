@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018 J.S. Boellaard
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.Bluefix.Prodosia.SQLite;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.mockito.Mockito.*;
+
+public class StatementCacheTest
+{
+    private static final String Query0 = "SELECT id FROM User;";
+    private static final String Query1 = "SELECT id FROM Taglist;";
+    private static final String Query2 = "SELECT id FROM Tracker;";
+
+    private Connection connection;
+    private PreparedStatement statement0;
+    private PreparedStatement statement1;
+    private PreparedStatement statement2;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        connection = mock(Connection.class);
+        statement0 = mock(PreparedStatement.class);
+        statement1 = mock(PreparedStatement.class);
+        statement2 = mock(PreparedStatement.class);
+
+        when(connection.prepareStatement(Query0)).thenReturn(statement0);
+        when(connection.prepareStatement(Query1)).thenReturn(statement1);
+        when(connection.prepareStatement(Query2)).thenReturn(statement2);
+    }
+
+    @Test
+    public void testReuseAfterClose() throws Exception
+    {
+        StatementCache cache = new StatementCache(connection, 4);
+
+        long misses = StatementCache.getMisses();
+        long hits = StatementCache.getHits();
+
+        PreparedStatement prep = cache.getStatement(Query0);
+        prep.setLong(1, 5);
+        prep.close();
+
+        Assert.assertTrue(prep.isClosed());
+        Assert.assertEquals(1, cache.size());
+
+        // the parameters should have been cleared and the statement should not be closed.
+        verify(statement0).clearParameters();
+        verify(statement0, never()).close();
+
+        PreparedStatement prep2 = cache.getStatement(Query0);
+        Assert.assertFalse(prep2.isClosed());
+        Assert.assertEquals(0, cache.size());
+
+        verify(connection, times(1)).prepareStatement(Query0);
+        Assert.assertEquals(misses + 1, StatementCache.getMisses());
+        Assert.assertEquals(hits + 1, StatementCache.getHits());
+    }
+
+    @Test
+    public void testClosedStatementCanNotBeUsed() throws Exception
+    {
+        StatementCache cache = new StatementCache(connection, 4);
+
+        PreparedStatement prep = cache.getStatement(Query0);
+        prep.close();
+
+        try
+        {
+            prep.executeQuery();
+            Assert.fail("A closed statement should not be usable.");
+        }
+        catch (java.sql.SQLException e)
+        {
+            // expected
+        }
+
+        verify(statement0, never()).executeQuery();
+    }
+
+    @Test
+    public void testCloseOnCompletion() throws Exception
+    {
+        ResultSet rs = mock(ResultSet.class);
+        when(statement0.executeQuery()).thenReturn(rs);
+
+        StatementCache cache = new StatementCache(connection, 4);
+
+        PreparedStatement prep = cache.getStatement(Query0);
+        prep.closeOnCompletion();
+        ResultSet result = prep.executeQuery();
+
+        Assert.assertFalse(prep.isClosed());
+
+        result.close();
+
+        Assert.assertTrue(prep.isClosed());
+        Assert.assertEquals(1, cache.size());
+        verify(rs).close();
+    }
+
+    @Test
+    public void testEviction() throws Exception
+    {
+        StatementCache cache = new StatementCache(connection, 2);
+
+        PreparedStatement prep0 = cache.getStatement(Query0);
+        PreparedStatement prep1 = cache.getStatement(Query1);
+        PreparedStatement prep2 = cache.getStatement(Query2);
+
+        prep0.close();
+        prep1.close();
+
+        // use the first query again, so the second query becomes the least recently used.
+        cache.getStatement(Query0).close();
+
+        prep2.close();
+
+        Assert.assertEquals(2, cache.size());
+        verify(statement1).close();
+        verify(statement0, never()).close();
+        verify(statement2, never()).close();
+    }
+}